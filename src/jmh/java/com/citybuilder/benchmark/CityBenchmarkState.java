@@ -0,0 +1,44 @@
+package com.citybuilder.benchmark;
+
+import com.citybuilder.model.GameState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared parameters for benchmarks that run against a generated city.
+ *
+ * Every combination of map size, building density and vehicle count gets
+ * its own city from {@link CityGenerator}, so results are comparable across
+ * runs and machines. Narrow the matrix from the command line with e.g.
+ * {@code -p mapSize=256}.
+ */
+@State(Scope.Benchmark)
+public abstract class CityBenchmarkState {
+    
+    @Param({"50", "256", "1024"})
+    public int mapSize;
+    
+    @Param({"0.3", "0.8"})
+    public double density;
+    
+    @Param({"100", "5000"})
+    public int vehicleCount;
+    
+    protected GameState gameState;
+    protected final List<CityGenerator.Trip> routedTrips = new ArrayList<>();
+    
+    @Setup(Level.Trial)
+    public void generateCity() {
+        routedTrips.clear();
+        gameState = CityGenerator.generate(mapSize, density, vehicleCount, CityGenerator.DEFAULT_SEED, routedTrips);
+        cityGenerated();
+    }
+    
+    /**
+     * Called once the city exists, for benchmarks that need more setup.
+     */
+    protected void cityGenerated() {
+    }
+}
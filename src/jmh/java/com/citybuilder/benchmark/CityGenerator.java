@@ -0,0 +1,150 @@
+package com.citybuilder.benchmark;
+
+import com.citybuilder.core.Simulation;
+import com.citybuilder.model.*;
+import com.citybuilder.system.AStarRouter;
+import com.citybuilder.system.Route;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds reproducible cities for benchmarks from a seed.
+ *
+ * The map is laid out as a road grid with a power plant and a water tower in
+ * every district; the remaining lots are filled with random buildings at the
+ * requested density, then populated as the simulation would. Vehicles are
+ * routed to a road a few blocks away, and the trips that found a route can
+ * be recorded. The same arguments always produce the same city.
+ */
+public final class CityGenerator {
+    public static final long DEFAULT_SEED = 20240601L;
+    
+    private static final int BLOCK_SIZE = 6; // Road every 6 tiles
+    private static final int DISTRICT_SIZE = 24; // One power plant and water tower per district
+    private static final int LIGHT_SPACING = BLOCK_SIZE * 2; // Light beside every other intersection
+    private static final int TRIP_RANGE = BLOCK_SIZE * 4;
+    private static final BuildingType[] LOT_TYPES = {
+        BuildingType.HOUSE, BuildingType.HOUSE, BuildingType.APARTMENT, BuildingType.APARTMENT,
+        BuildingType.SHOP, BuildingType.RESTAURANT, BuildingType.FAST_FOOD, BuildingType.OFFICE,
+        BuildingType.FACTORY, BuildingType.SCHOOL, BuildingType.HOSPITAL, BuildingType.POLICE_STATION,
+        BuildingType.PARK, BuildingType.MALL, BuildingType.LIBRARY, BuildingType.GYM
+    };
+    
+    /**
+     * Where a routed vehicle started and where it is headed.
+     */
+    public static final class Trip {
+        private final int vehicle;
+        private final int startX;
+        private final int startY;
+        private final int goalX;
+        private final int goalY;
+        
+        Trip(int vehicle, int startX, int startY, int goalX, int goalY) {
+            this.vehicle = vehicle;
+            this.startX = startX;
+            this.startY = startY;
+            this.goalX = goalX;
+            this.goalY = goalY;
+        }
+        
+        /**
+         * Index of the vehicle in {@link GameState#getVehicles()}.
+         */
+        public int getVehicle() {
+            return vehicle;
+        }
+        
+        public int getStartX() {
+            return startX;
+        }
+        
+        public int getStartY() {
+            return startY;
+        }
+        
+        public int getGoalX() {
+            return goalX;
+        }
+        
+        public int getGoalY() {
+            return goalY;
+        }
+    }
+    
+    private CityGenerator() {
+    }
+    
+    public static GameState generate(int mapSize, double density, int vehicleCount) {
+        return generate(mapSize, density, vehicleCount, DEFAULT_SEED);
+    }
+    
+    public static GameState generate(int mapSize, double density, int vehicleCount, long seed) {
+        return generate(mapSize, density, vehicleCount, seed, null);
+    }
+    
+    /**
+     * Generate a city and add the trip of every vehicle that found a route
+     * to {@code trips}, if it is not null.
+     */
+    public static GameState generate(int mapSize, double density, int vehicleCount, long seed, List<Trip> trips) {
+        Random random = new Random(seed);
+        GameState gameState = new GameState();
+        gameState.initializeNewGame(mapSize, mapSize, seed);
+        gameState.setMoney(Integer.MAX_VALUE / 2);
+        
+        CityMap map = gameState.getCityMap();
+        for (int y = 0; y < mapSize; y++) {
+            for (int x = 0; x < mapSize; x++) {
+                // Clear the generated trees; lots are laid out below
+                map.setNaturalFeature(x, y, null);
+                if (map.getTerrainType(x, y) == TerrainType.WATER) {
+                    continue;
+                }
+                
+                if (x % BLOCK_SIZE == 0 || y % BLOCK_SIZE == 0) {
+                    map.setBuildingType(x, y, BuildingType.ROAD);
+                } else if (x % LIGHT_SPACING == LIGHT_SPACING - 1 && y % LIGHT_SPACING == LIGHT_SPACING - 1) {
+                    // On the corner lot, where lights are placed in the game
+                    map.setBuildingType(x, y, BuildingType.TRAFFIC_LIGHT);
+                    gameState.addTrafficLight(new TrafficLight(x, y));
+                } else if (x % DISTRICT_SIZE == 1 && y % DISTRICT_SIZE == 1) {
+                    map.setBuildingType(x, y, BuildingType.POWER_PLANT);
+                } else if (x % DISTRICT_SIZE == 2 && y % DISTRICT_SIZE == 1) {
+                    map.setBuildingType(x, y, BuildingType.WATER_TOWER);
+                } else if (random.nextDouble() < density) {
+                    map.setBuildingType(x, y, LOT_TYPES[random.nextInt(LOT_TYPES.length)]);
+                } else if (random.nextInt(10) == 0) {
+                    map.setNaturalFeature(x, y, NaturalFeature.TREE);
+                }
+            }
+        }
+        gameState.recomputeUtilities();
+        new Simulation(gameState).updatePopulation();
+        
+        AStarRouter router = new AStarRouter(gameState.getRoadGraph());
+        Route route = new Route();
+        VehicleType[] vehicleTypes = VehicleType.values();
+        for (int i = 0; i < vehicleCount; i++) {
+            int x = random.nextInt(mapSize);
+            int y = (random.nextInt(mapSize) / BLOCK_SIZE) * BLOCK_SIZE; // On an east-west road
+            int goalX = clamp(x + random.nextInt(2 * TRIP_RANGE) - TRIP_RANGE, mapSize) / BLOCK_SIZE * BLOCK_SIZE;
+            int goalY = clamp(y + random.nextInt(2 * TRIP_RANGE) - TRIP_RANGE, mapSize); // On a north-south road
+            Vehicle vehicle = new Vehicle(x, y, vehicleTypes[random.nextInt(vehicleTypes.length)]);
+            if (router.findRoute(x, y, goalX, goalY, route)) {
+                vehicle.setPath(route.getXs(), route.getYs(), route.getLength());
+                if (trips != null) {
+                    trips.add(new Trip(i, x, y, goalX, goalY));
+                }
+            }
+            gameState.addVehicle(vehicle);
+        }
+        
+        return gameState;
+    }
+    
+    private static int clamp(int value, int mapSize) {
+        return Math.max(0, Math.min(mapSize - 1, value));
+    }
+}
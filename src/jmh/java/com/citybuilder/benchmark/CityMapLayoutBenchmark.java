@@ -0,0 +1,131 @@
+package com.citybuilder.benchmark;
+
+import com.citybuilder.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares full-map scans over the packed {@link CityMap} storage with the
+ * previous layout of one {@code Tile} object per cell.
+ *
+ * Run with {@code ./gradlew jmh -Pjmh.includes=CityMapLayoutBenchmark} and
+ * add {@code -prof gc} to the JMH arguments to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CityMapLayoutBenchmark {
+    
+    @Param({"256", "1024"})
+    public int mapSize;
+    
+    private CityMap packedMap;
+    private LegacyTile[][] legacyTiles;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(1234);
+        BuildingType[] types = BuildingType.values();
+        packedMap = new CityMap(mapSize, mapSize);
+        legacyTiles = new LegacyTile[mapSize][mapSize];
+        
+        for (int x = 0; x < mapSize; x++) {
+            for (int y = 0; y < mapSize; y++) {
+                LegacyTile legacy = new LegacyTile(x, y);
+                legacy.terrainType = packedMap.getTerrainType(x, y);
+                legacy.height = packedMap.getHeight(x, y);
+                if (random.nextInt(3) == 0) {
+                    BuildingType type = types[random.nextInt(types.length)];
+                    packedMap.setBuildingType(x, y, type);
+                    legacy.building = new LegacyBuilding(type);
+                }
+                legacyTiles[x][y] = legacy;
+            }
+        }
+    }
+    
+    @Benchmark
+    public int packedArrays() {
+        int income = 0;
+        for (int y = 0; y < mapSize; y++) {
+            for (int x = 0; x < mapSize; x++) {
+                BuildingType type = packedMap.getBuildingType(x, y);
+                if (type != null) {
+                    income += type.getMonthlyIncome();
+                }
+            }
+        }
+        return income;
+    }
+    
+    @Benchmark
+    public int packedTileViews() {
+        int income = 0;
+        for (int x = 0; x < mapSize; x++) {
+            for (int y = 0; y < mapSize; y++) {
+                Building building = packedMap.getTile(x, y).getBuilding();
+                if (building != null) {
+                    income += building.getType().getMonthlyIncome();
+                }
+            }
+        }
+        return income;
+    }
+    
+    @Benchmark
+    public int legacyObjectGraph() {
+        int income = 0;
+        for (int x = 0; x < mapSize; x++) {
+            for (int y = 0; y < mapSize; y++) {
+                LegacyBuilding building = legacyTiles[x][y].building;
+                if (building != null) {
+                    income += building.type.getMonthlyIncome();
+                }
+            }
+        }
+        return income;
+    }
+    
+    /**
+     * Field-for-field copy of the old per-cell tile object.
+     */
+    static class LegacyTile {
+        final int x;
+        final int y;
+        int height;
+        TerrainType terrainType = TerrainType.GRASS;
+        ZoneType zoneType = ZoneType.NONE;
+        LegacyBuilding building;
+        NaturalFeature naturalFeature;
+        boolean hasElectricity;
+        boolean hasWater;
+        TrafficDirection trafficDirection = TrafficDirection.ALL_DIRECTIONS;
+        
+        LegacyTile(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+    
+    /**
+     * Field-for-field copy of the old per-tile building object.
+     */
+    static class LegacyBuilding {
+        final BuildingType type;
+        final String name;
+        final int cost;
+        boolean powered;
+        boolean hasWaterAccess;
+        
+        LegacyBuilding(BuildingType type) {
+            this.type = type;
+            this.name = type.getName();
+            this.cost = type.getCost();
+        }
+    }
+}
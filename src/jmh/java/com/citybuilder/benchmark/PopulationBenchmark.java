@@ -0,0 +1,46 @@
+package com.citybuilder.benchmark;
+
+import com.citybuilder.core.Simulation;
+import com.citybuilder.util.StripedScan;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the resident spawn pass that fills housing with power and water.
+ * Each invocation starts from an empty city so every pass spawns residents.
+ * The striped pass runs on the common fork/join pool, the sequential one on
+ * the benchmark thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopulationBenchmark extends CityBenchmarkState {
+    
+    private Simulation simulation;
+    private Simulation sequentialSimulation;
+    
+    @Override
+    protected void cityGenerated() {
+        simulation = new Simulation(gameState);
+        sequentialSimulation = new Simulation(gameState, StripedScan.sequential());
+    }
+    
+    @Setup(Level.Invocation)
+    public void clearResidents() {
+        gameState.getResidents().clear();
+        gameState.setPopulation(0);
+    }
+    
+    @Benchmark
+    public void updatePopulation() {
+        simulation.updatePopulation();
+    }
+    
+    @Benchmark
+    public void updatePopulationSequential() {
+        sequentialSimulation.updatePopulation();
+    }
+}
@@ -0,0 +1,62 @@
+package com.citybuilder.benchmark;
+
+import com.citybuilder.core.SimulationSnapshot;
+import com.citybuilder.model.Camera;
+import com.citybuilder.ui.GamePanel;
+import com.citybuilder.util.IsometricUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one full repaint of the {@link GamePanel} into an offscreen image
+ * the size of a typical window, at zoom 1 or zoomed out to show the whole
+ * map. Runs headless.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark extends CityBenchmarkState {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 800;
+    
+    @Param({"false", "true"})
+    public boolean wholeMap;
+    
+    private GamePanel panel;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    
+    @Override
+    protected void cityGenerated() {
+        panel = new GamePanel(gameState);
+        panel.setSize(WIDTH, HEIGHT);
+        panel.setSnapshot(SimulationSnapshot.capture(gameState, 0));
+        if (wholeMap) {
+            // The map's diamond is (width + height) half tiles across
+            int halfTiles = gameState.getCityMap().getWidth() + gameState.getCityMap().getHeight();
+            Camera camera = gameState.getCamera();
+            camera.setZoom(Math.min((double) WIDTH / (halfTiles * IsometricUtils.getTileWidth() / 2),
+                (double) HEIGHT / (halfTiles * IsometricUtils.getTileHeight() / 2)));
+            camera.setOffsetX(WIDTH / 2);
+            camera.setOffsetY(0);
+        }
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+    
+    @TearDown(Level.Trial)
+    public void disposeGraphics() {
+        graphics.dispose();
+    }
+    
+    @Benchmark
+    public BufferedImage paint() {
+        panel.paint(graphics);
+        return image;
+    }
+}
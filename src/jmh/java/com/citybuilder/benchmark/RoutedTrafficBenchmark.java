@@ -0,0 +1,91 @@
+package com.citybuilder.benchmark;
+
+import com.citybuilder.model.Vehicle;
+import com.citybuilder.system.AStarRouter;
+import com.citybuilder.system.Route;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-tick traffic step on generated cities whose vehicles
+ * drive routes along the streets. Vehicles that have arrived turn around
+ * and drive back every few ticks, inside the measured call, so the step
+ * keeps moving the same vehicles however long it runs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutedTrafficBenchmark extends CityBenchmarkState {
+    private static final int TURN_AROUND_INTERVAL = 16; // Ticks, a power of two
+    
+    private final List<Commute> commutes = new ArrayList<>();
+    private int ticks;
+    
+    @Override
+    protected void cityGenerated() {
+        commutes.clear();
+        AStarRouter router = new AStarRouter(gameState.getRoadGraph());
+        Route route = new Route();
+        List<Vehicle> vehicles = gameState.getVehicles();
+        for (CityGenerator.Trip trip : routedTrips) {
+            if (!router.findRoute(trip.getStartX(), trip.getStartY(), trip.getGoalX(), trip.getGoalY(), route)) {
+                continue;
+            }
+            int[] outboundXs = Arrays.copyOf(route.getXs(), route.getLength());
+            int[] outboundYs = Arrays.copyOf(route.getYs(), route.getLength());
+            // One-way streets can make the way back differ, or not exist
+            if (router.findRoute(trip.getGoalX(), trip.getGoalY(), trip.getStartX(), trip.getStartY(), route)) {
+                commutes.add(new Commute(vehicles.get(trip.getVehicle()), outboundXs, outboundYs,
+                    Arrays.copyOf(route.getXs(), route.getLength()), Arrays.copyOf(route.getYs(), route.getLength())));
+            }
+        }
+    }
+    
+    @Benchmark
+    public void updateTraffic() {
+        gameState.updateTraffic();
+        if ((++ticks & (TURN_AROUND_INTERVAL - 1)) == 0) {
+            for (Commute commute : commutes) {
+                commute.turnAroundIfArrived();
+            }
+        }
+    }
+    
+    /**
+     * A vehicle's generated route and the way back to its start.
+     */
+    private static final class Commute {
+        private final Vehicle vehicle;
+        private final int[] outboundXs;
+        private final int[] outboundYs;
+        private final int[] returnXs;
+        private final int[] returnYs;
+        private boolean outbound = true;
+        
+        Commute(Vehicle vehicle, int[] outboundXs, int[] outboundYs, int[] returnXs, int[] returnYs) {
+            this.vehicle = vehicle;
+            this.outboundXs = outboundXs;
+            this.outboundYs = outboundYs;
+            this.returnXs = returnXs;
+            this.returnYs = returnYs;
+        }
+        
+        void turnAroundIfArrived() {
+            if (vehicle.hasPath()) {
+                return;
+            }
+            outbound = !outbound;
+            if (outbound) {
+                vehicle.setPath(outboundXs, outboundYs, outboundXs.length);
+            } else {
+                vehicle.setPath(returnXs, returnYs, returnXs.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.citybuilder.benchmark;
+
+import com.citybuilder.model.CityMap;
+import com.citybuilder.system.AStarRouter;
+import com.citybuilder.system.FlowFieldService;
+import com.citybuilder.system.HierarchicalRouter;
+import com.citybuilder.system.RoadGraph;
+import com.citybuilder.system.Route;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one route query between random road tiles, as a monthly trip
+ * would make, with flat A* and with the hierarchical router, and one
+ * trip driven to one of a few hot destinations along cached flow fields.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark extends CityBenchmarkState {
+    private static final int TRIPS = 1024;
+    private static final int HOT_DESTINATIONS = 8;
+    
+    private final int[] trips = new int[TRIPS * 4];
+    private final Route route = new Route();
+    private AStarRouter router;
+    private HierarchicalRouter hierarchicalRouter;
+    private FlowFieldService flowFields;
+    private int next;
+    
+    @Override
+    protected void cityGenerated() {
+        router = new AStarRouter(gameState.getRoadGraph());
+        hierarchicalRouter = new HierarchicalRouter(gameState.getRoadGraph());
+        flowFields = new FlowFieldService(gameState.getRoadGraph());
+        CityMap map = gameState.getCityMap();
+        Random random = new Random(5);
+        for (int i = 0; i < trips.length; i += 2) {
+            int x;
+            int y;
+            do {
+                x = random.nextInt(map.getWidth());
+                y = random.nextInt(map.getHeight());
+            } while (!map.isRoad(x, y));
+            trips[i] = x;
+            trips[i + 1] = y;
+        }
+    }
+    
+    @Benchmark
+    public int findRoute() {
+        int i = (next++ & (TRIPS - 1)) * 4;
+        router.findRoute(trips[i], trips[i + 1], trips[i + 2], trips[i + 3], route);
+        return route.getLength();
+    }
+    
+    @Benchmark
+    public int findHierarchicalRoute() {
+        int i = (next++ & (TRIPS - 1)) * 4;
+        hierarchicalRouter.findRoute(trips[i], trips[i + 1], trips[i + 2], trips[i + 3], route);
+        return route.getLength();
+    }
+    
+    @Benchmark
+    public int followFlowField() {
+        int trip = next++ & (TRIPS - 1);
+        int i = trip * 4;
+        int hot = (trip & (HOT_DESTINATIONS - 1)) * 4;
+        RoadGraph graph = flowFields.getGraph();
+        int destination = graph.index(trips[hot + 2], trips[hot + 3]);
+        int tile = graph.index(trips[i], trips[i + 1]);
+        int steps = 0;
+        int step;
+        while ((step = flowFields.nextStep(destination, tile % graph.getWidth(), tile / graph.getWidth())) >= 0) {
+            tile = graph.neighbour(tile, step);
+            steps++;
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,89 @@
+package com.citybuilder.benchmark;
+
+import com.citybuilder.model.BinarySaveFormat;
+import com.citybuilder.model.GameState;
+import com.citybuilder.model.JsonSaveFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares save and load times of the binary format against JSON. The
+ * file sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveFormatBenchmark {
+    
+    @Param({"256", "1024"})
+    public int mapSize;
+    
+    @Param({"0.8"})
+    public double density;
+    
+    @Param({"5000"})
+    public int vehicleCount;
+    
+    private GameState gameState;
+    private Path binaryFile;
+    private Path compressedFile;
+    private Path jsonFile;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        gameState = CityGenerator.generate(mapSize, density, vehicleCount);
+        binaryFile = Files.createTempFile("bench", BinarySaveFormat.EXTENSION);
+        compressedFile = Files.createTempFile("bench-compressed", BinarySaveFormat.EXTENSION);
+        jsonFile = Files.createTempFile("bench", JsonSaveFormat.EXTENSION);
+        
+        BinarySaveFormat.write(gameState, binaryFile, false);
+        BinarySaveFormat.write(gameState, compressedFile, true);
+        JsonSaveFormat.write(gameState, jsonFile);
+        System.out.printf("%nSave sizes for %dx%d: binary %,d bytes, compressed %,d bytes, JSON %,d bytes%n",
+            mapSize, mapSize, Files.size(binaryFile), Files.size(compressedFile), Files.size(jsonFile));
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(binaryFile);
+        Files.deleteIfExists(compressedFile);
+        Files.deleteIfExists(jsonFile);
+    }
+    
+    @Benchmark
+    public void writeBinary() throws IOException {
+        BinarySaveFormat.write(gameState, binaryFile, false);
+    }
+    
+    @Benchmark
+    public void writeCompressed() throws IOException {
+        BinarySaveFormat.write(gameState, compressedFile, true);
+    }
+    
+    @Benchmark
+    public void writeJson() throws IOException {
+        JsonSaveFormat.write(gameState, jsonFile);
+    }
+    
+    @Benchmark
+    public GameState readBinary() throws IOException {
+        return BinarySaveFormat.read(binaryFile);
+    }
+    
+    @Benchmark
+    public GameState readCompressed() throws IOException {
+        return BinarySaveFormat.read(compressedFile);
+    }
+    
+    @Benchmark
+    public GameState readJson() throws IOException {
+        return JsonSaveFormat.read(jsonFile);
+    }
+}
@@ -0,0 +1,36 @@
+package com.citybuilder.benchmark;
+
+import com.citybuilder.model.GameDate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the monthly economy step on generated, fully populated cities.
+ * Each call first puts the calendar and treasury back, which is negligible
+ * next to the step, so residents never age past the life expectancy and
+ * every monthly step sees the whole population.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark extends CityBenchmarkState {
+    
+    private int startYear;
+    private int startMoney;
+    
+    @Override
+    protected void cityGenerated() {
+        startYear = gameState.getGameDate().getYear();
+        startMoney = gameState.getMoney();
+    }
+    
+    @Benchmark
+    public void updateMonthly() {
+        gameState.setGameDate(new GameDate(startYear));
+        gameState.setMoney(startMoney);
+        gameState.updateMonthly();
+    }
+}
@@ -0,0 +1,53 @@
+package com.citybuilder.benchmark;
+
+import com.citybuilder.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures traffic ticks per second for {@link GameState#updateTraffic()}
+ * with many vehicles and traffic lights.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrafficBenchmark {
+    
+    @Param({"512"})
+    public int mapSize;
+    
+    @Param({"10000"})
+    public int vehicleCount;
+    
+    @Param({"1000"})
+    public int lightCount;
+    
+    private GameState gameState;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(99);
+        gameState = new GameState();
+        gameState.initializeNewGame(mapSize, mapSize);
+        
+        for (int i = 0; i < lightCount; i++) {
+            gameState.addTrafficLight(new TrafficLight(random.nextInt(mapSize), random.nextInt(mapSize)));
+        }
+        
+        VehicleType[] types = VehicleType.values();
+        for (int i = 0; i < vehicleCount; i++) {
+            gameState.addVehicle(new Vehicle(random.nextInt(mapSize), random.nextInt(mapSize),
+                types[random.nextInt(types.length)]));
+        }
+    }
+    
+    @Benchmark
+    public void updateTraffic() {
+        gameState.updateTraffic();
+    }
+}
@@ -0,0 +1,28 @@
+package com.citybuilder.benchmark;
+
+import com.citybuilder.system.ElectricitySystem;
+import com.citybuilder.system.WaterSystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full recomputation of electricity and water coverage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilityBenchmark extends CityBenchmarkState {
+    
+    @Benchmark
+    public void updateElectricity() {
+        ElectricitySystem.updateElectricity(gameState.getCityMap());
+    }
+    
+    @Benchmark
+    public void updateWater() {
+        WaterSystem.updateWater(gameState.getCityMap());
+    }
+}
@@ -0,0 +1,106 @@
+package com.citybuilder;
+
+import com.citybuilder.core.Simulation;
+import com.citybuilder.model.GameState;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Headless entry point that loads a saved city, simulates it a number of
+ * months ahead as fast as the CPU allows and writes the final state plus a
+ * metrics summary. No Swing classes are loaded, so it runs on build servers.
+ * The save carries its random number generator, so running the same save
+ * again gives the same final state and {@code stateHash}.
+ *
+ * Usage: {@code BatchSimulation <save> <months> [output-save]}
+ */
+public class BatchSimulation {
+    private static final String USAGE = "Usage: BatchSimulation <save> <months> [output-save]";
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        String saveName = args[0];
+        int months;
+        try {
+            months = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            months = -1;
+        }
+        if (months < 0) {
+            System.err.println("Months must be a whole number, 0 or more: " + args[1]);
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        String outputName = args.length > 2 ? args[2] : saveName + "-after-" + months + "m";
+
+        GameState gameState = GameState.loadFromFile(saveName);
+        if (gameState == null) {
+            System.err.println("Failed to load game: " + saveName);
+            System.exit(1);
+        }
+
+        Simulation simulation = new Simulation(gameState);
+        long start = System.nanoTime();
+        simulation.advanceMonths(months);
+        long elapsedNanos = System.nanoTime() - start;
+
+        if (!gameState.saveToFile(outputName)) {
+            System.err.println("Failed to save game: " + outputName);
+            System.exit(1);
+        }
+
+        Map<String, String> metrics = collectMetrics(gameState, simulation, months, elapsedNanos);
+        for (Map.Entry<String, String> entry : metrics.entrySet()) {
+            System.out.println(entry.getKey() + "=" + entry.getValue());
+        }
+
+        try {
+            writeMetrics(new File("saves", outputName + ".metrics"), metrics);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, String> collectMetrics(GameState gameState, Simulation simulation,
+                                                      int months, long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+
+        Map<String, String> metrics = new LinkedHashMap<>();
+        metrics.put("months", String.valueOf(months));
+        metrics.put("ticks", String.valueOf(simulation.getTickCount()));
+        metrics.put("wallSeconds", String.format(Locale.ROOT, "%.3f", seconds));
+        metrics.put("ticksPerSecond", String.format(Locale.ROOT, "%.0f", simulation.getTickCount() / Math.max(seconds, 1e-9)));
+        metrics.put("date", gameState.getGameDate().getFormattedDate());
+        metrics.put("money", String.valueOf(gameState.getMoney()));
+        metrics.put("population", String.valueOf(gameState.getPopulation()));
+        metrics.put("happiness", String.format(Locale.ROOT, "%.2f", gameState.getCityHappiness()));
+        metrics.put("monthlyIncome", String.valueOf(gameState.getMonthlyIncome()));
+        metrics.put("monthlyExpenses", String.valueOf(gameState.getMonthlyExpenses()));
+        metrics.put("vehicles", String.valueOf(gameState.getVehicles().size()));
+        metrics.put("trafficLights", String.valueOf(gameState.getTrafficLights().size()));
+        metrics.put("stateHash", String.format("%016x", simulation.getStateHash()));
+        return metrics;
+    }
+
+    private static void writeMetrics(File file, Map<String, String> metrics) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            for (Map.Entry<String, String> entry : metrics.entrySet()) {
+                writer.println(entry.getKey() + "=" + entry.getValue());
+            }
+        }
+    }
+}
@@ -13,6 +13,7 @@ public class GameEngine {
     private GameState gameState;
     private MainMenuFrame mainMenu;
     private GameFrame gameFrame;
+    private SaveService saveService;
     
     public GameEngine() {
         this.gameState = new GameState();
@@ -23,6 +24,7 @@ public class GameEngine {
     }
     
     public void showMainMenu() {
+        stopSaveService();
         if (gameFrame != null) {
             gameFrame.dispose();
             gameFrame = null;
@@ -40,9 +42,7 @@ public class GameEngine {
         
         gameState = new GameState();
         gameState.initializeNewGame();
-        
-        gameFrame = new GameFrame(this, gameState);
-        gameFrame.setVisible(true);
+        startGame();
     }
     
     public void loadGame(String filename) {
@@ -61,24 +61,61 @@ public class GameEngine {
             return;
         }
         
+        startGame();
+    }
+    
+    private void startGame() {
+        stopSaveService();
+        saveService = new SaveService(gameState);
+        saveService.startAutosave();
+        
         gameFrame = new GameFrame(this, gameState);
         gameFrame.setVisible(true);
     }
     
+    private void stopSaveService() {
+        if (saveService != null) {
+            saveService.shutdown();
+            saveService = null;
+        }
+    }
+    
+    /**
+     * Save in the background and report the result once it is on disk.
+     */
     public void saveGame(String filename) {
-        if (gameState != null) {
-            boolean success = gameState.saveToFile(filename);
-            if (success) {
-                JOptionPane.showMessageDialog(gameFrame, 
-                    "Game saved successfully!", 
-                    "Save Complete", 
-                    JOptionPane.INFORMATION_MESSAGE);
-            } else {
-                JOptionPane.showMessageDialog(gameFrame, 
-                    "Failed to save game!", 
-                    "Save Error", 
-                    JOptionPane.ERROR_MESSAGE);
-            }
+        if (saveService != null) {
+            saveService.save(filename, success -> SwingUtilities.invokeLater(() -> {
+                if (success) {
+                    JOptionPane.showMessageDialog(gameFrame, 
+                        "Game saved successfully!", 
+                        "Save Complete", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(gameFrame, 
+                        "Failed to save game!", 
+                        "Save Error", 
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            }));
+        }
+    }
+    
+    public void exportGame(String filename) {
+        if (saveService != null) {
+            saveService.exportJson(filename, success -> SwingUtilities.invokeLater(() -> {
+                if (success) {
+                    JOptionPane.showMessageDialog(gameFrame, 
+                        "Game exported to saves/" + filename + ".json", 
+                        "Export Complete", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(gameFrame, 
+                        "Failed to export game!", 
+                        "Export Error", 
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            }));
         }
     }
     
@@ -0,0 +1,185 @@
+package com.citybuilder.core;
+
+import com.citybuilder.model.BinarySaveFormat;
+import com.citybuilder.model.GameState;
+import com.citybuilder.model.JsonSaveFormat;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Writes saves on a background thread so gameplay never waits on disk.
+ *
+ * Every save starts from {@link GameState#copyForSave()}, taken briefly
+ * under the game state lock; serialization and file I/O then run on a
+ * single "save" thread, one save at a time. Once started, the service also
+ * autosaves every few game months or minutes of play, whichever comes
+ * first, keeping the newest autosaves as {@code autosave-1} (newest) to
+ * {@code autosave-K}. Autosaves are written to a temporary file and only
+ * then rotated into place, so a crash mid-write leaves the previous ones
+ * intact.
+ */
+public class SaveService {
+    public static final String AUTOSAVE_PREFIX = "autosave-";
+    public static final int DEFAULT_INTERVAL_MONTHS = 6;
+    public static final long DEFAULT_INTERVAL_MINUTES = 5;
+    public static final int DEFAULT_KEEP = 3;
+    
+    private static final long CHECK_INTERVAL_MILLIS = 1000;
+    
+    private final GameState gameState;
+    private final Path directory;
+    private final int intervalMonths;
+    private final long intervalNanos;
+    private final int keep;
+    private final ScheduledExecutorService executor;
+    private int lastAutosaveMonth;
+    private long lastAutosaveNanos;
+    
+    public SaveService(GameState gameState) {
+        this(gameState, Paths.get("saves"), DEFAULT_INTERVAL_MONTHS, DEFAULT_INTERVAL_MINUTES, DEFAULT_KEEP);
+    }
+    
+    public SaveService(GameState gameState, Path directory, int intervalMonths, long intervalMinutes, int keep) {
+        this.gameState = gameState;
+        this.directory = directory;
+        this.intervalMonths = intervalMonths;
+        this.intervalNanos = TimeUnit.MINUTES.toNanos(intervalMinutes);
+        this.keep = keep;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "save");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Start checking once a second whether an autosave is due.
+     */
+    public void startAutosave() {
+        synchronized (gameState) {
+            lastAutosaveMonth = gameState.getGameMonth();
+        }
+        lastAutosaveNanos = System.nanoTime();
+        executor.scheduleWithFixedDelay(this::autosaveIfDue,
+            CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Save under the given name in the background. The snapshot is taken
+     * before this returns; the callback receives the result on the save thread.
+     */
+    public void save(String filename, Consumer<Boolean> onComplete) {
+        GameState copy = snapshot();
+        executor.execute(() -> {
+            boolean success;
+            try {
+                Files.createDirectories(directory);
+                BinarySaveFormat.writeAtomically(copy, directory.resolve(filename + BinarySaveFormat.EXTENSION), true);
+                success = true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                success = false;
+            }
+            onComplete.accept(success);
+        });
+    }
+    
+    /**
+     * Export as JSON in the background, like {@link #save}.
+     */
+    public void exportJson(String filename, Consumer<Boolean> onComplete) {
+        GameState copy = snapshot();
+        executor.execute(() -> {
+            boolean success;
+            try {
+                Files.createDirectories(directory);
+                JsonSaveFormat.write(copy, directory.resolve(filename + JsonSaveFormat.EXTENSION));
+                success = true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                success = false;
+            }
+            onComplete.accept(success);
+        });
+    }
+    
+    /**
+     * Stop autosaving. Saves that were already requested still finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    Future<?> autosaveNow() {
+        return executor.submit(this::autosave);
+    }
+    
+    private GameState snapshot() {
+        synchronized (gameState) {
+            return gameState.copyForSave();
+        }
+    }
+    
+    private void autosaveIfDue() {
+        int month;
+        synchronized (gameState) {
+            month = gameState.getGameMonth();
+        }
+        if (month - lastAutosaveMonth >= intervalMonths || System.nanoTime() - lastAutosaveNanos >= intervalNanos) {
+            autosave();
+        }
+    }
+    
+    private void autosave() {
+        GameState copy = snapshot();
+        lastAutosaveMonth = copy.getGameMonth();
+        lastAutosaveNanos = System.nanoTime();
+        
+        Path temp = directory.resolve(AUTOSAVE_PREFIX + "new" + BinarySaveFormat.EXTENSION + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            BinarySaveFormat.write(copy, temp, true);
+            
+            // Shift older autosaves down, dropping the oldest
+            Files.deleteIfExists(autosaveFile(keep));
+            for (int i = keep - 1; i >= 1; i--) {
+                Path older = autosaveFile(i);
+                if (Files.exists(older)) {
+                    move(older, autosaveFile(i + 1));
+                }
+            }
+            move(temp, autosaveFile(1));
+        } catch (IOException | RuntimeException e) {
+            // Try again next interval; renames keep every existing autosave whole
+            e.printStackTrace();
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    private Path autosaveFile(int index) {
+        return directory.resolve(AUTOSAVE_PREFIX + index + BinarySaveFormat.EXTENSION);
+    }
+    
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.citybuilder.core;
+
+import com.citybuilder.model.*;
+import com.citybuilder.system.FlowFieldService;
+import com.citybuilder.system.HierarchicalRouter;
+import com.citybuilder.system.RoadGraph;
+import com.citybuilder.util.SplitMix64;
+import com.citybuilder.util.StripedScan;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Headless, fixed-step simulation of a city.
+ *
+ * One tick is 50 ms of game time: traffic moves every tick, the clock
+ * advances one hour every 20 ticks and a month passes every 60 ticks,
+ * matching the original Swing timer intervals. Ticks hold the
+ * {@link GameState} monitor, so edits from other threads must synchronize on
+ * the game state as well. The monthly housing scan runs in stripes on a
+ * {@link StripedScan} and gives the same result on any number of threads.
+ *
+ * Random choices come from the game state's seeded generator, so the same
+ * save ticked the same number of times ends in the same state. The state
+ * hash taken after every tick shows where two runs part ways.
+ */
+public class Simulation {
+    public static final int TICK_MILLIS = 50;
+    public static final int TICKS_PER_HOUR = 1000 / TICK_MILLIS;
+    public static final int TICKS_PER_MONTH = 3000 / TICK_MILLIS;
+    
+    private static final int RESIDENT_SPAWN_DIVISOR = 10; // How many building capacity units per resident
+    private static final int VEHICLE_CLEANUP_MARGIN = 10; // Distance beyond map to remove vehicles
+    private static final int MIN_TRIPS_PER_MONTH = 3;
+    private static final int MAX_TRIPS_PER_MONTH = 500;
+    private static final int RESIDENTS_PER_TRIP = 100; // One trip a month per this many residents
+    private static final int DESTINATION_ATTEMPTS = 10; // Random tiles tried when looking for a road to drive to
+    private static final double HOT_DESTINATION_SHARE = 0.5; // Share of trips bound for malls, factories, offices and the airport
+    
+    private final GameState gameState;
+    private final StripedScan scan;
+    private HierarchicalRouter router;
+    private FlowFieldService flowFields;
+    private long tickCount;
+    private long stateHash;
+    
+    public Simulation(GameState gameState) {
+        this(gameState, StripedScan.shared());
+    }
+    
+    public Simulation(GameState gameState, StripedScan scan) {
+        this.gameState = gameState;
+        this.scan = scan;
+    }
+    
+    /**
+     * Advance the simulation by one fixed step.
+     */
+    public void tick() {
+        synchronized (gameState) {
+            tickCount++;
+            
+            // Catch up with map edits made since the last tick
+            gameState.applyTileChanges();
+            
+            advanceVehicles();
+            gameState.updateTraffic();
+            cleanupVehicles(); // Clean up off-map vehicles frequently
+            
+            if (tickCount % TICKS_PER_HOUR == 0) {
+                gameState.advanceTime();
+            }
+            
+            if (tickCount % TICKS_PER_MONTH == 0) {
+                gameState.updateMonthly();
+                spawnVehicles();
+                updatePopulation();
+            }
+            
+            stateHash = gameState.computeStateHash();
+        }
+    }
+    
+    /**
+     * Advance the simulation by a whole number of game months.
+     */
+    public void advanceMonths(int months) {
+        for (long i = 0; i < (long) months * TICKS_PER_MONTH; i++) {
+            tick();
+        }
+    }
+    
+    /**
+     * Start this month's trips: each vehicle appears on a random road tile
+     * and is routed along the streets to another one, or about half the
+     * time follows the flow field to a mall, factory, office or the
+     * airport. Trips whose destination cannot be reached are dropped.
+     */
+    public void spawnVehicles() {
+        CityMap map = gameState.getCityMap();
+        SplitMix64 random = gameState.getRandom();
+        HierarchicalRouter router = getRouter();
+        FlowFieldService flowFields = getFlowFields();
+        flowFields.refreshDestinations();
+        int trips = Math.max(MIN_TRIPS_PER_MONTH,
+            Math.min(MAX_TRIPS_PER_MONTH, gameState.getPopulation() / RESIDENTS_PER_TRIP));
+        for (int i = 0; i < trips; i++) {
+            int x = random.nextInt(map.getWidth());
+            int y = random.nextInt(map.getHeight());
+            if (!map.isRoad(x, y)) {
+                continue;
+            }
+            
+            if (flowFields.getDestinationCount() > 0 && random.nextDouble() < HOT_DESTINATION_SHARE) {
+                int goal = flowFields.getDestination(random.nextInt(flowFields.getDestinationCount()));
+                int goalX = goal % map.getWidth();
+                int goalY = goal / map.getWidth();
+                if ((goalX != x || goalY != y) && flowFields.canReach(goal, x, y)) {
+                    VehicleType type = VehicleType.values()[random.nextInt(VehicleType.values().length)];
+                    Vehicle vehicle = new Vehicle(x, y, type);
+                    vehicle.setWaypoints(new int[] {goalX}, new int[] {goalY}, 1);
+                    flowFields.advance(vehicle);
+                    gameState.addVehicle(vehicle);
+                }
+                continue;
+            }
+            
+            for (int attempt = 0; attempt < DESTINATION_ATTEMPTS; attempt++) {
+                int goalX = random.nextInt(map.getWidth());
+                int goalY = random.nextInt(map.getHeight());
+                if (map.isRoad(goalX, goalY)) {
+                    VehicleType type = VehicleType.values()[random.nextInt(VehicleType.values().length)];
+                    Vehicle vehicle = new Vehicle(x, y, type);
+                    if (router.planTrip(vehicle, goalX, goalY)) {
+                        gameState.addVehicle(vehicle);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Route the next legs of vehicles that reached the end of their path
+     * but not their destination, from a flow field where the destination
+     * has one.
+     */
+    public void advanceVehicles() {
+        HierarchicalRouter router = null;
+        FlowFieldService flowFields = null;
+        for (Vehicle vehicle : gameState.getVehicles()) {
+            if (!vehicle.hasPath() && vehicle.hasWaypoints()) {
+                if (router == null) {
+                    router = getRouter();
+                    flowFields = getFlowFields();
+                }
+                if (flowFields.isDestination(vehicle.getDestinationX(), vehicle.getDestinationY())) {
+                    flowFields.advance(vehicle);
+                } else {
+                    router.advance(vehicle);
+                }
+            }
+        }
+    }
+    
+    public void cleanupVehicles() {
+        // Remove vehicles that have finished their trip or are far off map
+        CityMap map = gameState.getCityMap();
+        gameState.getVehicles().removeIf(v -> (!v.hasPath() && !v.hasWaypoints()) ||
+            v.getX() < -VEHICLE_CLEANUP_MARGIN || v.getX() > map.getWidth() + VEHICLE_CLEANUP_MARGIN ||
+            v.getY() < -VEHICLE_CLEANUP_MARGIN || v.getY() > map.getHeight() + VEHICLE_CLEANUP_MARGIN
+        );
+    }
+    
+    /**
+     * Move residents into buildings with power and water. Housing is counted
+     * in column stripes in parallel; residents then move in tile by tile in
+     * map order, each tile only while the housing counted up to and
+     * including it still has room.
+     */
+    public void updatePopulation() {
+        CityMap map = gameState.getCityMap();
+        List<HousingStripe> stripes = scan.scan(map.getWidth(), (fromX, toX) -> countHousing(map, fromX, toX));
+        
+        int year = gameState.getGameDate().getYear();
+        int capacityBefore = 0; // Housing in the stripes already done
+        for (HousingStripe stripe : stripes) {
+            for (int i = 0; i < stripe.size; i++) {
+                int arrivals = Math.min(stripe.arrivals[i],
+                    capacityBefore + stripe.capacity[i] - gameState.getPopulation());
+                if (arrivals > 0) {
+                    // Happy with utilities
+                    gameState.addResidents(stripe.x[i], stripe.y[i], year,
+                        ResidentStore.DEFAULT_HAPPINESS + 10, arrivals);
+                }
+            }
+            capacityBefore += stripe.totalCapacity;
+        }
+    }
+    
+    // Housing and utility-served tiles in the columns fromX up to toX
+    private static HousingStripe countHousing(CityMap map, int fromX, int toX) {
+        HousingStripe stripe = new HousingStripe();
+        for (int x = fromX; x < toX; x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                BuildingType type = map.getBuildingType(x, y);
+                if (type != null) {
+                    stripe.totalCapacity += type.getResidents();
+                    int arrivals = type.getResidents() / RESIDENT_SPAWN_DIVISOR;
+                    if (arrivals > 0 && map.hasElectricity(x, y) && map.hasWater(x, y)) {
+                        stripe.add(x, y, arrivals);
+                    }
+                }
+            }
+        }
+        return stripe;
+    }
+    
+    public GameState getGameState() {
+        return gameState;
+    }
+    
+    // A new game or load replaces the road graph
+    private HierarchicalRouter getRouter() {
+        RoadGraph graph = gameState.getRoadGraph();
+        if (router == null || router.getGraph() != graph) {
+            router = new HierarchicalRouter(graph);
+        }
+        return router;
+    }
+    
+    private FlowFieldService getFlowFields() {
+        RoadGraph graph = gameState.getRoadGraph();
+        if (flowFields == null || flowFields.getGraph() != graph) {
+            flowFields = new FlowFieldService(graph);
+        }
+        return flowFields;
+    }
+    
+    public long getTickCount() {
+        return tickCount;
+    }
+    
+    /**
+     * {@link GameState#computeStateHash()} as of the end of the last tick.
+     */
+    public long getStateHash() {
+        return stateHash;
+    }
+    
+    /**
+     * Housing found in one stripe: the tiles residents may move into, with
+     * the capacity counted in the stripe up to and including each of them.
+     */
+    private static class HousingStripe {
+        private int[] x = new int[16];
+        private int[] y = new int[16];
+        private int[] arrivals = new int[16];
+        private int[] capacity = new int[16];
+        private int size;
+        private int totalCapacity;
+        
+        void add(int x, int y, int arrivals) {
+            if (size == this.x.length) {
+                this.x = Arrays.copyOf(this.x, size * 2);
+                this.y = Arrays.copyOf(this.y, size * 2);
+                this.arrivals = Arrays.copyOf(this.arrivals, size * 2);
+                this.capacity = Arrays.copyOf(capacity, size * 2);
+            }
+            this.x[size] = x;
+            this.y[size] = y;
+            this.arrivals[size] = arrivals;
+            this.capacity[size] = totalCapacity;
+            size++;
+        }
+    }
+}
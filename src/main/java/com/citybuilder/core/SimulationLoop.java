@@ -0,0 +1,139 @@
+package com.citybuilder.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs a {@link Simulation} on its own thread with a fixed timestep.
+ *
+ * Real time is scaled by the current {@link SimulationSpeed} and collected
+ * in an accumulator that is drained one {@link Simulation#TICK_MILLIS} step
+ * at a time, so game time advances at the same rate regardless of how long
+ * individual ticks or repaints take. At {@link SimulationSpeed#MAX} ticks run
+ * back to back. After each batch of ticks an immutable
+ * {@link SimulationSnapshot} is published to the listener, at most once per
+ * {@link #PUBLISH_INTERVAL_MILLIS}.
+ */
+public class SimulationLoop implements Runnable {
+    public static final long PUBLISH_INTERVAL_MILLIS = 16;
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(Simulation.TICK_MILLIS);
+    private static final long PUBLISH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(PUBLISH_INTERVAL_MILLIS);
+    private static final int MAX_CATCH_UP_TICKS = 64; // Drop backlog rather than spiral after a stall
+
+    private final Simulation simulation;
+    private final Consumer<SimulationSnapshot> listener;
+    private volatile SimulationSpeed speed;
+    private volatile SimulationSnapshot latestSnapshot;
+    private volatile boolean running;
+    private Thread thread;
+
+    public SimulationLoop(Simulation simulation, Consumer<SimulationSnapshot> listener) {
+        this.simulation = simulation;
+        this.listener = listener;
+        this.speed = SimulationSpeed.NORMAL;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        publish();
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long lastPublish = previous;
+        long accumulator = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            long elapsed = now - previous;
+            previous = now;
+
+            SimulationSpeed currentSpeed = speed;
+            int ticks = 0;
+            if (currentSpeed.isUnbounded()) {
+                // Run flat out until it's time to show the player a frame
+                accumulator = 0;
+                long deadline = now + PUBLISH_INTERVAL_NANOS;
+                do {
+                    simulation.tick();
+                    ticks++;
+                } while (running && System.nanoTime() < deadline);
+            } else {
+                accumulator += elapsed * currentSpeed.getMultiplier();
+                while (accumulator >= TICK_NANOS && ticks < MAX_CATCH_UP_TICKS) {
+                    simulation.tick();
+                    accumulator -= TICK_NANOS;
+                    ticks++;
+                }
+                if (ticks == MAX_CATCH_UP_TICKS) {
+                    accumulator = 0;
+                }
+            }
+
+            long afterTicks = System.nanoTime();
+            if (ticks > 0 && afterTicks - lastPublish >= PUBLISH_INTERVAL_NANOS) {
+                publish();
+                lastPublish = afterTicks;
+            }
+
+            if (!currentSpeed.isUnbounded()) {
+                // Sleep until the next tick is due
+                long untilNextTick = (TICK_NANOS - accumulator) / currentSpeed.getMultiplier();
+                sleepNanos(Math.max(TimeUnit.MILLISECONDS.toNanos(1), untilNextTick));
+            }
+        }
+    }
+
+    private void sleepNanos(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private void publish() {
+        SimulationSnapshot snapshot = SimulationSnapshot.capture(simulation.getGameState(), simulation.getTickCount());
+        latestSnapshot = snapshot;
+        if (listener != null) {
+            listener.accept(snapshot);
+        }
+    }
+
+    public SimulationSpeed getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(SimulationSpeed speed) {
+        this.speed = speed;
+    }
+
+    public SimulationSnapshot getLatestSnapshot() {
+        return latestSnapshot;
+    }
+
+    public Simulation getSimulation() {
+        return simulation;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
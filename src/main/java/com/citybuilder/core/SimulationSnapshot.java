@@ -0,0 +1,140 @@
+package com.citybuilder.core;
+
+import com.citybuilder.model.*;
+
+import java.util.List;
+
+/**
+ * Immutable view of the simulation published to the renderer after each
+ * batch of ticks, so painting never iterates live simulation collections.
+ */
+public final class SimulationSnapshot {
+    private final long tick;
+    private final int money;
+    private final int population;
+    private final double cityHappiness;
+    private final int monthlyIncome;
+    private final int monthlyExpenses;
+    private final String formattedDate;
+    private final String formattedTime;
+    private final TimeOfDay timeOfDay;
+    
+    private final int[] vehicleX;
+    private final int[] vehicleY;
+    private final VehicleType[] vehicleTypes;
+    
+    private final int[] lightX;
+    private final int[] lightY;
+    private final TrafficLightState[] lightStates;
+    
+    private SimulationSnapshot(long tick, GameState gameState) {
+        this.tick = tick;
+        this.money = gameState.getMoney();
+        this.population = gameState.getPopulation();
+        this.cityHappiness = gameState.getCityHappiness();
+        this.monthlyIncome = gameState.getMonthlyIncome();
+        this.monthlyExpenses = gameState.getMonthlyExpenses();
+        this.formattedDate = gameState.getGameDate().getFormattedDate();
+        this.formattedTime = gameState.getGameDate().getFormattedTime();
+        this.timeOfDay = gameState.getCurrentTimeOfDay();
+        
+        List<Vehicle> vehicles = gameState.getVehicles();
+        this.vehicleX = new int[vehicles.size()];
+        this.vehicleY = new int[vehicles.size()];
+        this.vehicleTypes = new VehicleType[vehicles.size()];
+        for (int i = 0; i < vehicles.size(); i++) {
+            Vehicle vehicle = vehicles.get(i);
+            vehicleX[i] = vehicle.getX();
+            vehicleY[i] = vehicle.getY();
+            vehicleTypes[i] = vehicle.getType();
+        }
+        
+        List<TrafficLight> lights = gameState.getTrafficLights();
+        this.lightX = new int[lights.size()];
+        this.lightY = new int[lights.size()];
+        this.lightStates = new TrafficLightState[lights.size()];
+        for (int i = 0; i < lights.size(); i++) {
+            TrafficLight light = lights.get(i);
+            lightX[i] = light.getX();
+            lightY[i] = light.getY();
+            lightStates[i] = light.getState();
+        }
+    }
+    
+    /**
+     * Capture the current state of the game.
+     */
+    public static SimulationSnapshot capture(GameState gameState, long tick) {
+        synchronized (gameState) {
+            return new SimulationSnapshot(tick, gameState);
+        }
+    }
+    
+    public long getTick() {
+        return tick;
+    }
+    
+    public int getMoney() {
+        return money;
+    }
+    
+    public int getPopulation() {
+        return population;
+    }
+    
+    public double getCityHappiness() {
+        return cityHappiness;
+    }
+    
+    public int getMonthlyIncome() {
+        return monthlyIncome;
+    }
+    
+    public int getMonthlyExpenses() {
+        return monthlyExpenses;
+    }
+    
+    public String getFormattedDate() {
+        return formattedDate;
+    }
+    
+    public String getFormattedTime() {
+        return formattedTime;
+    }
+    
+    public TimeOfDay getTimeOfDay() {
+        return timeOfDay;
+    }
+    
+    public int getVehicleCount() {
+        return vehicleTypes.length;
+    }
+    
+    public int getVehicleX(int index) {
+        return vehicleX[index];
+    }
+    
+    public int getVehicleY(int index) {
+        return vehicleY[index];
+    }
+    
+    public VehicleType getVehicleType(int index) {
+        return vehicleTypes[index];
+    }
+    
+    public int getTrafficLightCount() {
+        return lightStates.length;
+    }
+    
+    public int getTrafficLightX(int index) {
+        return lightX[index];
+    }
+    
+    public int getTrafficLightY(int index) {
+        return lightY[index];
+    }
+    
+    public TrafficLightState getTrafficLightState(int index) {
+        return lightStates[index];
+    }
+}
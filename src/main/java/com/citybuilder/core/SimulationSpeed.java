@@ -0,0 +1,31 @@
+package com.citybuilder.core;
+
+/**
+ * Speed multipliers for the simulation loop.
+ */
+public enum SimulationSpeed {
+    NORMAL(1, "1x"),
+    FAST(4, "4x"),
+    FASTER(16, "16x"),
+    MAX(0, "Max"); // As fast as the CPU allows
+    
+    private final int multiplier;
+    private final String label;
+    
+    SimulationSpeed(int multiplier, String label) {
+        this.multiplier = multiplier;
+        this.label = label;
+    }
+    
+    public int getMultiplier() {
+        return multiplier;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+    
+    public boolean isUnbounded() {
+        return multiplier == 0;
+    }
+}
@@ -0,0 +1,636 @@
+package com.citybuilder.model;
+
+import com.citybuilder.util.SplitMix64;
+
+import java.awt.Point;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact binary save format.
+ *
+ * Layout: the magic bytes {@code CTYB}, a format version and a flags byte,
+ * followed by the body, which is deflate-compressed when
+ * {@link #FLAG_COMPRESSED} is set. The body holds the enum name tables,
+ * the game state scalars and random number generator, the tile layer as
+ * run-length encoded columns and the residents, vehicles and traffic
+ * lights as packed columns. Enums are stored as ordinals into the saved
+ * name tables, so reordering or adding constants does not break old saves.
+ * Utility coverage is not stored; it is recomputed on load.
+ *
+ * Files are streamed through a {@link FileChannel} without building the
+ * whole save in memory.
+ */
+public final class BinarySaveFormat {
+    public static final String EXTENSION = ".city";
+    // 2 adds vehicle waypoints, 3 packs residents without names, ages or moods, 4 saves them in groups,
+    // 5 adds the random number generator
+    public static final int VERSION = 5;
+    public static final int FLAG_COMPRESSED = 1;
+    
+    private static final byte[] MAGIC = {'C', 'T', 'Y', 'B'};
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Upper bounds on saved counts, so a corrupt count fails the load instead of allocating without limit
+    private static final int MAX_TABLE_SIZE = 1 << 16;
+    private static final int MAX_RESIDENT_GROUPS = 1 << 24;
+    private static final int MAX_VEHICLES = 1 << 20;
+    
+    private BinarySaveFormat() {
+    }
+    
+    /**
+     * Write a save and flush it to disk.
+     */
+    public static void write(GameState state, Path file, boolean compress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream raw = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            raw.write(MAGIC);
+            raw.write(VERSION >>> 8);
+            raw.write(VERSION);
+            raw.write(compress ? FLAG_COMPRESSED : 0);
+            
+            Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+            try {
+                DeflaterOutputStream deflated = compress ? new DeflaterOutputStream(raw, deflater, BUFFER_SIZE) : null;
+                DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(deflated != null ? deflated : raw, BUFFER_SIZE));
+                writeBody(out, state);
+                out.flush();
+                if (deflated != null) {
+                    deflated.finish();
+                }
+                raw.flush();
+                channel.force(true);
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Write a save to a temporary file next to {@code file} and then move it
+     * into place, so a crash while writing never damages an existing save.
+     */
+    public static void writeAtomically(GameState state, Path file, boolean compress) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            write(state, temp, compress);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Read a save. The returned state has its utility coverage and traffic
+     * light index rebuilt and is ready to simulate.
+     */
+    public static GameState read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            InputStream raw = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+            DataInputStream header = new DataInputStream(raw);
+            byte[] magic = new byte[MAGIC.length];
+            header.readFully(magic);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i]) {
+                    throw new IOException("Not a city save file: " + file);
+                }
+            }
+            int version = header.readUnsignedShort();
+            if (version > VERSION) {
+                throw new IOException("Save format version " + version + " is newer than supported version " + VERSION);
+            }
+            int flags = header.readUnsignedByte();
+            
+            Inflater inflater = (flags & FLAG_COMPRESSED) != 0 ? new Inflater() : null;
+            try {
+                InputStream body = inflater != null ? new InflaterInputStream(raw, inflater, BUFFER_SIZE) : raw;
+                GameState state = readBody(new DataInputStream(new BufferedInputStream(body, BUFFER_SIZE)), version);
+                state.restoreTransientState();
+                return state;
+            } finally {
+                if (inflater != null) {
+                    inflater.end();
+                }
+            }
+        }
+    }
+    
+    // Writing
+    
+    private static void writeBody(DataOutputStream out, GameState state) throws IOException {
+        writeEnumTable(out, BuildingType.values());
+        writeEnumTable(out, TerrainType.values());
+        writeEnumTable(out, ZoneType.values());
+        writeEnumTable(out, NaturalFeature.values());
+        writeEnumTable(out, TrafficDirection.values());
+        writeEnumTable(out, VehicleType.values());
+        writeEnumTable(out, ResidentMood.values());
+        writeEnumTable(out, TrafficLightState.values());
+        writeEnumTable(out, TimeOfDay.values());
+        writeEnumTable(out, Currency.values());
+        
+        writeScalars(out, state);
+        writeCityMap(out, state.getCityMap());
+        writeResidents(out, state.getResidents());
+        writeVehicles(out, state.getVehicles());
+        writeTrafficLights(out, state.getTrafficLights());
+    }
+    
+    private static void writeEnumTable(DataOutputStream out, Enum<?>[] constants) throws IOException {
+        writeVarInt(out, constants.length);
+        for (Enum<?> constant : constants) {
+            out.writeUTF(constant.name());
+        }
+    }
+    
+    private static void writeScalars(DataOutputStream out, GameState state) throws IOException {
+        out.writeInt(state.getMoney());
+        out.writeInt(state.getPopulation());
+        out.writeInt(state.getMonthlyIncome());
+        out.writeInt(state.getMonthlyExpenses());
+        out.writeInt(state.getGameMonth());
+        out.writeDouble(state.getCityHappiness());
+        out.writeByte(state.getCurrency().ordinal());
+        out.writeByte(state.getCurrentTimeOfDay().ordinal());
+        
+        GameDate date = state.getGameDate();
+        out.writeInt(date.getYear());
+        out.writeByte(date.getMonth());
+        out.writeByte(date.getDay());
+        out.writeByte(date.getHour());
+        
+        CityBudget budget = state.getCityBudget();
+        out.writeInt(budget.getBalance());
+        out.writeInt(budget.getResidentialTax());
+        out.writeInt(budget.getCommercialTax());
+        out.writeInt(budget.getIndustrialTax());
+        out.writeInt(budget.getTransportationCost());
+        out.writeInt(budget.getHealthcareCost());
+        out.writeInt(budget.getEducationCost());
+        out.writeInt(budget.getPublicsafetyCost());
+        out.writeInt(budget.getUtilitiesCost());
+        
+        out.writeLong(state.getRandom().getState());
+        out.writeLong(state.getRandom().getGamma());
+    }
+    
+    private static void writeCityMap(DataOutputStream out, CityMap map) throws IOException {
+        writeVarInt(out, map.getWidth());
+        writeVarInt(out, map.getHeight());
+        writeRuns(out, map.terrainColumn());
+        writeRuns(out, map.zoneColumn());
+        writeRuns(out, map.buildingColumn());
+        writeRuns(out, map.heightColumn());
+        writeRuns(out, map.featureColumn());
+        writeRuns(out, map.trafficDirectionColumn());
+    }
+    
+    private static void writeRuns(DataOutputStream out, byte[] column) throws IOException {
+        int i = 0;
+        while (i < column.length) {
+            byte value = column[i];
+            int start = i;
+            while (i < column.length && column[i] == value) {
+                i++;
+            }
+            writeVarInt(out, i - start);
+            out.writeByte(value);
+        }
+    }
+    
+    private static void writeRuns(DataOutputStream out, short[] column) throws IOException {
+        int i = 0;
+        while (i < column.length) {
+            short value = column[i];
+            int start = i;
+            while (i < column.length && column[i] == value) {
+                i++;
+            }
+            writeVarInt(out, i - start);
+            writeVarInt(out, value);
+        }
+    }
+    
+    private static void writeResidents(DataOutputStream out, Population residents) throws IOException {
+        // One entry per group of identical residents; a cohort population saves one per cohort.
+        // Each column is its own pass over the groups, so nothing is buffered per resident.
+        int[] groups = new int[1];
+        residents.forEachGroup((x, y, birthYear, happiness, sleeping, size) -> groups[0]++);
+        writeVarInt(out, groups[0]);
+        residents.forEachGroup((x, y, birthYear, happiness, sleeping, size) -> writeSignedVarInt(out, x));
+        residents.forEachGroup((x, y, birthYear, happiness, sleeping, size) -> writeSignedVarInt(out, y));
+        residents.forEachGroup((x, y, birthYear, happiness, sleeping, size) -> writeSignedVarInt(out, birthYear));
+        residents.forEachGroup((x, y, birthYear, happiness, sleeping, size) -> out.writeByte(happiness));
+        
+        // Sleeping flags packed eight to a byte, as writeBits does
+        int[] bits = new int[2]; // Byte being filled, bits in it
+        residents.forEachGroup((x, y, birthYear, happiness, sleeping, size) -> {
+            if (sleeping) {
+                bits[0] |= 1 << bits[1];
+            }
+            if (++bits[1] == 8) {
+                out.writeByte(bits[0]);
+                bits[0] = 0;
+                bits[1] = 0;
+            }
+        });
+        if (bits[1] > 0) {
+            out.writeByte(bits[0]);
+        }
+        
+        residents.forEachGroup((x, y, birthYear, happiness, sleeping, size) -> writeVarInt(out, size));
+    }
+    
+    private static void writeVehicles(DataOutputStream out, List<Vehicle> vehicles) throws IOException {
+        int count = vehicles.size();
+        writeVarInt(out, count);
+        for (Vehicle vehicle : vehicles) {
+            writeSignedVarInt(out, vehicle.getX());
+        }
+        for (Vehicle vehicle : vehicles) {
+            writeSignedVarInt(out, vehicle.getY());
+        }
+        for (Vehicle vehicle : vehicles) {
+            out.writeByte(vehicle.getType().ordinal());
+        }
+        boolean[] stopped = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            stopped[i] = vehicles.get(i).isStopped();
+        }
+        writeBits(out, stopped);
+        
+        for (Vehicle vehicle : vehicles) {
+            int length = vehicle.getPathRemaining();
+            writeVarInt(out, length);
+            for (int i = 0; i < length; i++) {
+                writeSignedVarInt(out, vehicle.getPathX(i));
+                writeSignedVarInt(out, vehicle.getPathY(i));
+            }
+        }
+        for (Vehicle vehicle : vehicles) {
+            int length = vehicle.getWaypointsRemaining();
+            writeVarInt(out, length);
+            for (int i = 0; i < length; i++) {
+                writeSignedVarInt(out, vehicle.getWaypointX(i));
+                writeSignedVarInt(out, vehicle.getWaypointY(i));
+            }
+        }
+    }
+    
+    private static void writeTrafficLights(DataOutputStream out, List<TrafficLight> lights) throws IOException {
+        writeVarInt(out, lights.size());
+        for (TrafficLight light : lights) {
+            writeSignedVarInt(out, light.getX());
+            writeSignedVarInt(out, light.getY());
+            out.writeByte(light.getState().ordinal());
+            writeSignedVarInt(out, light.getTimer());
+        }
+    }
+    
+    private static void writeBits(DataOutputStream out, boolean[] bits) throws IOException {
+        for (int i = 0; i < bits.length; i += 8) {
+            int packed = 0;
+            for (int bit = 0; bit < 8 && i + bit < bits.length; bit++) {
+                if (bits[i + bit]) {
+                    packed |= 1 << bit;
+                }
+            }
+            out.writeByte(packed);
+        }
+    }
+    
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+    
+    private static void writeSignedVarInt(DataOutputStream out, int value) throws IOException {
+        writeVarInt(out, (value << 1) ^ (value >> 31));
+    }
+    
+    // Reading
+    
+    private static GameState readBody(DataInputStream in, int version) throws IOException {
+        BuildingType[] buildingTypes = readEnumTable(in, BuildingType.class);
+        TerrainType[] terrainTypes = readEnumTable(in, TerrainType.class);
+        ZoneType[] zoneTypes = readEnumTable(in, ZoneType.class);
+        NaturalFeature[] features = readEnumTable(in, NaturalFeature.class);
+        TrafficDirection[] directions = readEnumTable(in, TrafficDirection.class);
+        VehicleType[] vehicleTypes = readEnumTable(in, VehicleType.class);
+        ResidentMood[] moods = readEnumTable(in, ResidentMood.class);
+        TrafficLightState[] lightStates = readEnumTable(in, TrafficLightState.class);
+        TimeOfDay[] timesOfDay = readEnumTable(in, TimeOfDay.class);
+        Currency[] currencies = readEnumTable(in, Currency.class);
+        
+        GameState state = new GameState();
+        state.setMoney(in.readInt());
+        state.setPopulation(in.readInt());
+        state.setMonthlyTotals(in.readInt(), in.readInt());
+        state.setGameMonth(in.readInt());
+        state.setCityHappiness(in.readDouble());
+        state.setCurrency(lookup(currencies, in.readUnsignedByte()));
+        state.setCurrentTimeOfDay(lookup(timesOfDay, in.readUnsignedByte()));
+        state.setGameDate(new GameDate(in.readInt(), in.readUnsignedByte(), in.readUnsignedByte(), in.readUnsignedByte()));
+        
+        CityBudget budget = new CityBudget(in.readInt());
+        budget.setResidentialTax(in.readInt());
+        budget.setCommercialTax(in.readInt());
+        budget.setIndustrialTax(in.readInt());
+        budget.setTransportationCost(in.readInt());
+        budget.setHealthcareCost(in.readInt());
+        budget.setEducationCost(in.readInt());
+        budget.setPublicsafetyCost(in.readInt());
+        budget.setUtilitiesCost(in.readInt());
+        budget.calculateMonthly();
+        state.setCityBudget(budget);
+        if (version >= 5) {
+            state.setRandom(new SplitMix64(in.readLong(), in.readLong()));
+        }
+        
+        state.setCityMap(readCityMap(in, buildingTypes, terrainTypes, zoneTypes, features, directions));
+        readResidents(in, state.getResidents(), state.getCityMap(), moods, version);
+        readVehicles(in, state.getVehicles(), vehicleTypes, version);
+        readTrafficLights(in, state.getTrafficLights(), lightStates);
+        return state;
+    }
+    
+    private static <E extends Enum<E>> E[] readEnumTable(DataInputStream in, Class<E> type) throws IOException {
+        int count = readCount(in, MAX_TABLE_SIZE, type.getSimpleName() + " table size");
+        E[] constants = type.getEnumConstants();
+        E[] table = Arrays.copyOf(constants, count);
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            try {
+                table[i] = Enum.valueOf(type, name);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown " + type.getSimpleName() + " in save: " + name);
+            }
+        }
+        return table;
+    }
+    
+    private static <E> E lookup(E[] table, int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= table.length) {
+            throw new IOException("Corrupt save: enum ordinal " + ordinal + " out of range");
+        }
+        return table[ordinal];
+    }
+    
+    private static CityMap readCityMap(DataInputStream in, BuildingType[] buildingTypes, TerrainType[] terrainTypes,
+                                       ZoneType[] zoneTypes, NaturalFeature[] features,
+                                       TrafficDirection[] directions) throws IOException {
+        int width = readVarInt(in);
+        int height = readVarInt(in);
+        if (width <= 0 || height <= 0 || width > CityMap.MAX_SIDE || height > CityMap.MAX_SIDE
+                || (long) width * height > CityMap.MAX_TILES) {
+            throw new IOException("Corrupt save: map size " + width + "x" + height);
+        }
+        
+        CityMap map = new CityMap(width, height, false);
+        readRuns(in, map.terrainColumn());
+        readRuns(in, map.zoneColumn());
+        readRuns(in, map.buildingColumn());
+        readRuns(in, map.heightColumn());
+        readRuns(in, map.featureColumn());
+        readRuns(in, map.trafficDirectionColumn());
+        
+        remap(map.terrainColumn(), terrainTypes, false);
+        remap(map.zoneColumn(), zoneTypes, false);
+        remap(map.buildingColumn(), buildingTypes);
+        remap(map.featureColumn(), features, true);
+        remap(map.trafficDirectionColumn(), directions, false);
+        return map;
+    }
+    
+    private static void readRuns(DataInputStream in, byte[] column) throws IOException {
+        int i = 0;
+        while (i < column.length) {
+            int length = readVarInt(in);
+            if (length <= 0 || length > column.length - i) {
+                throw new IOException("Corrupt save: bad run length in tile layer");
+            }
+            Arrays.fill(column, i, i + length, in.readByte());
+            i += length;
+        }
+    }
+    
+    private static void readRuns(DataInputStream in, short[] column) throws IOException {
+        int i = 0;
+        while (i < column.length) {
+            int length = readVarInt(in);
+            if (length <= 0 || length > column.length - i) {
+                throw new IOException("Corrupt save: bad run length in tile layer");
+            }
+            Arrays.fill(column, i, i + length, (short) readVarInt(in));
+            i += length;
+        }
+    }
+    
+    // Translate saved ordinals (optionally stored + 1 with 0 for none) to current ones
+    private static void remap(byte[] column, Enum<?>[] table, boolean offsetByOne) throws IOException {
+        int offset = offsetByOne ? 1 : 0;
+        for (int i = 0; i < column.length; i++) {
+            int code = column[i] & 0xFF;
+            if (code >= offset) {
+                column[i] = (byte) (lookup(table, code - offset).ordinal() + offset);
+            }
+        }
+    }
+    
+    private static void remap(short[] column, BuildingType[] table) throws IOException {
+        for (int i = 0; i < column.length; i++) {
+            if (column[i] != 0) {
+                column[i] = (short) (lookup(table, column[i] - 1).ordinal() + 1);
+            }
+        }
+    }
+    
+    private static void readResidents(DataInputStream in, Population residents, CityMap map, ResidentMood[] moods,
+                                      int version) throws IOException {
+        int count = readCount(in, MAX_RESIDENT_GROUPS, "resident count");
+        if (version < 3) {
+            readResidentsVersion2(in, residents, map, moods, count);
+            return;
+        }
+        
+        int[] x = readSignedVarInts(in, count);
+        int[] y = readSignedVarInts(in, count);
+        int[] birthYear = readSignedVarInts(in, count);
+        byte[] happiness = new byte[count];
+        in.readFully(happiness);
+        readBits(in, count); // Sleeping follows the time of day
+        int[] size = version >= 4 ? readVarInts(in, count) : null;
+        addResidents(residents, map, x, y, birthYear, happiness, size);
+    }
+    
+    // Names, ages and moods were saved per resident up to version 2; they are derived now
+    private static void readResidentsVersion2(DataInputStream in, Population residents, CityMap map,
+                                              ResidentMood[] moods, int count) throws IOException {
+        String[] names = new String[readCount(in, MAX_TABLE_SIZE, "name table size")];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = in.readUTF();
+        }
+        
+        int[] nameIndex = readVarInts(in, count);
+        int[] x = readSignedVarInts(in, count);
+        int[] y = readSignedVarInts(in, count);
+        int[] birthYear = readSignedVarInts(in, count);
+        readSignedVarInts(in, count); // Age
+        byte[] happiness = new byte[count];
+        in.readFully(happiness);
+        byte[] mood = new byte[count];
+        in.readFully(mood);
+        readBits(in, count); // Sleeping
+        for (int i = 0; i < count; i++) {
+            lookup(names, nameIndex[i]);
+            lookup(moods, mood[i]);
+        }
+        addResidents(residents, map, x, y, birthYear, happiness, null);
+    }
+    
+    // Add each saved group, of one resident each before version 4
+    private static void addResidents(Population residents, CityMap map, int[] x, int[] y, int[] birthYear,
+                                     byte[] happiness, int[] size) throws IOException {
+        for (int i = 0; i < x.length; i++) {
+            if (!map.isValidPosition(x[i], y[i])) {
+                throw new IOException("Corrupt save: resident home (" + x[i] + ", " + y[i] + ") outside the map");
+            }
+            if (happiness[i] < 0 || happiness[i] > 100) {
+                throw new IOException("Corrupt save: resident happiness " + happiness[i]);
+            }
+            if (size != null && size[i] <= 0) {
+                throw new IOException("Corrupt save: resident group size " + size[i]);
+            }
+            residents.add(x[i], y[i], birthYear[i], happiness[i], size != null ? size[i] : 1);
+        }
+    }
+    
+    private static void readVehicles(DataInputStream in, List<Vehicle> vehicles, VehicleType[] types, int version)
+            throws IOException {
+        int count = readCount(in, MAX_VEHICLES, "vehicle count");
+        int[] x = readSignedVarInts(in, count);
+        int[] y = readSignedVarInts(in, count);
+        byte[] type = new byte[count];
+        in.readFully(type);
+        boolean[] stopped = readBits(in, count);
+        
+        for (int i = 0; i < count; i++) {
+            Vehicle vehicle = new Vehicle(x[i], y[i], lookup(types, type[i]));
+            if (stopped[i]) {
+                vehicle.stop();
+            }
+            
+            List<Point> path = readPoints(in);
+            if (!path.isEmpty()) {
+                vehicle.setPath(path);
+            }
+            vehicles.add(vehicle);
+        }
+        
+        if (version >= 2) {
+            for (Vehicle vehicle : vehicles) {
+                List<Point> waypoints = readPoints(in);
+                if (!waypoints.isEmpty()) {
+                    vehicle.setWaypoints(waypoints);
+                }
+            }
+        }
+    }
+    
+    private static List<Point> readPoints(DataInputStream in) throws IOException {
+        int count = readCount(in, CityMap.MAX_TILES, "path length");
+        List<Point> points = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            points.add(new Point(readSignedVarInt(in), readSignedVarInt(in)));
+        }
+        return points;
+    }
+    
+    private static void readTrafficLights(DataInputStream in, List<TrafficLight> lights, TrafficLightState[] states)
+            throws IOException {
+        int count = readCount(in, CityMap.MAX_TILES, "traffic light count");
+        for (int i = 0; i < count; i++) {
+            int x = readSignedVarInt(in);
+            int y = readSignedVarInt(in);
+            TrafficLightState state = lookup(states, in.readUnsignedByte());
+            lights.add(new TrafficLight(x, y, state, readSignedVarInt(in)));
+        }
+    }
+    
+    private static boolean[] readBits(DataInputStream in, int count) throws IOException {
+        boolean[] bits = new boolean[count];
+        for (int i = 0; i < count; i += 8) {
+            int packed = in.readUnsignedByte();
+            for (int bit = 0; bit < 8 && i + bit < count; bit++) {
+                bits[i + bit] = (packed & (1 << bit)) != 0;
+            }
+        }
+        return bits;
+    }
+    
+    private static int[] readVarInts(DataInputStream in, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = readVarInt(in);
+        }
+        return values;
+    }
+    
+    private static int[] readSignedVarInts(DataInputStream in, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = readSignedVarInt(in);
+        }
+        return values;
+    }
+    
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt save: malformed number");
+    }
+    
+    // A count of saved items, from 0 up to the limit
+    private static int readCount(DataInputStream in, int limit, String what) throws IOException {
+        int count = readVarInt(in);
+        if (count < 0 || count > limit) {
+            throw new IOException("Corrupt save: " + what + " " + count);
+        }
+        return count;
+    }
+    
+    private static int readSignedVarInt(DataInputStream in) throws IOException {
+        int encoded = readVarInt(in);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+}
@@ -0,0 +1,94 @@
+package com.citybuilder.model;
+
+import com.citybuilder.util.StripedScan;
+
+import java.util.List;
+
+/**
+ * Budget totals of the buildings on the map, kept up to date as buildings
+ * are placed and demolished rather than recounted every month.
+ *
+ * The ledger remembers the building it last saw on every tile, so a change
+ * reported through {@link #tileChanged(int, int)} moves one building out of
+ * the totals and the new one in. Edits made without reporting them need a
+ * {@link #rebuild()}. Full counts run in row stripes on a
+ * {@link StripedScan}.
+ */
+public class BudgetLedger {
+    private static final BuildingType[] BUILDING_TYPES = BuildingType.values();
+    
+    private final CityMap map;
+    private final StripedScan scan;
+    private final short[] buildings; // Building code per tile as last counted
+    private final BudgetTotals totals = new BudgetTotals();
+    
+    public BudgetLedger(CityMap map) {
+        this(map, StripedScan.shared());
+    }
+    
+    public BudgetLedger(CityMap map, StripedScan scan) {
+        this.map = map;
+        this.scan = scan;
+        this.buildings = new short[map.getWidth() * map.getHeight()];
+        rebuild();
+    }
+    
+    /**
+     * Recount every building on the map.
+     */
+    public void rebuild() {
+        System.arraycopy(map.buildingColumn(), 0, buildings, 0, buildings.length);
+        count(buildings, totals);
+    }
+    
+    public void tileChanged(int x, int y) {
+        int index = y * map.getWidth() + x;
+        short code = map.buildingColumn()[index];
+        short previous = buildings[index];
+        if (code != previous) {
+            if (previous != 0) {
+                totals.remove(BUILDING_TYPES[previous - 1]);
+            }
+            if (code != 0) {
+                totals.add(BUILDING_TYPES[code - 1]);
+            }
+            buildings[index] = code;
+        }
+    }
+    
+    public BudgetTotals getTotals() {
+        return totals;
+    }
+    
+    /**
+     * Cross-check the running totals against a full count of the map, for
+     * debugging. Throws if a building was placed or demolished without the
+     * ledger being told.
+     */
+    public void verify() {
+        BudgetTotals expected = new BudgetTotals();
+        count(map.buildingColumn(), expected);
+        if (!totals.matches(expected)) {
+            throw new IllegalStateException("Budget ledger out of step with the map: income " +
+                totals.getTotalIncome() + " expected " + expected.getTotalIncome() + ", expenses " +
+                totals.getTotalExpenses() + " expected " + expected.getTotalExpenses());
+        }
+    }
+    
+    private void count(short[] codes, BudgetTotals totals) {
+        int width = map.getWidth();
+        List<BudgetTotals> stripes = scan.scan(map.getHeight(), (fromY, toY) -> {
+            BudgetTotals stripe = new BudgetTotals();
+            for (int i = fromY * width; i < toY * width; i++) {
+                if (codes[i] != 0) {
+                    stripe.add(BUILDING_TYPES[codes[i] - 1]);
+                }
+            }
+            return stripe;
+        });
+        totals.clear();
+        for (BudgetTotals stripe : stripes) {
+            totals.addAll(stripe);
+        }
+    }
+}
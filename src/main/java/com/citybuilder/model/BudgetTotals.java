@@ -0,0 +1,141 @@
+package com.citybuilder.model;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+
+/**
+ * Monthly income and upkeep of a set of buildings, by budget line.
+ *
+ * Buildings are counted per type, and running sums per category are kept
+ * from per-type tables indexed by {@link BuildingType#ordinal()}, so adding
+ * or removing a building is a few array updates with no comparisons against
+ * types, and reading the totals does not depend on the number of buildings.
+ */
+public class BudgetTotals {
+    private static final BuildingType[] TYPES = BuildingType.values();
+    private static final IncomeCategory[] INCOME_CATEGORIES = IncomeCategory.values();
+    private static final ExpenseCategory[] EXPENSE_CATEGORIES = ExpenseCategory.values();
+    
+    // Per building type, indexed by ordinal
+    private static final int[] INCOME = new int[TYPES.length];
+    private static final int[] COST = new int[TYPES.length];
+    private static final int[] INCOME_CATEGORY = new int[TYPES.length];
+    private static final int[] EXPENSE_CATEGORY = new int[TYPES.length];
+    
+    static {
+        for (BuildingType type : TYPES) {
+            INCOME[type.ordinal()] = type.getMonthlyIncome();
+            COST[type.ordinal()] = type.getMonthlyCost();
+            INCOME_CATEGORY[type.ordinal()] = type.getIncomeCategory().ordinal();
+            EXPENSE_CATEGORY[type.ordinal()] = type.getExpenseCategory().ordinal();
+        }
+    }
+    
+    private final int[] counts = new int[TYPES.length];
+    private final int[] income = new int[INCOME_CATEGORIES.length];
+    private final int[] expenses = new int[EXPENSE_CATEGORIES.length];
+    private int totalIncome;
+    private int totalExpenses;
+    
+    public void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(income, 0);
+        Arrays.fill(expenses, 0);
+        totalIncome = 0;
+        totalExpenses = 0;
+    }
+    
+    public void add(BuildingType type) {
+        add(type.ordinal(), 1);
+    }
+    
+    public void remove(BuildingType type) {
+        add(type.ordinal(), -1);
+    }
+    
+    /**
+     * Add all buildings counted in another set of totals.
+     */
+    public void addAll(BudgetTotals other) {
+        for (int type = 0; type < counts.length; type++) {
+            if (other.counts[type] != 0) {
+                add(type, other.counts[type]);
+            }
+        }
+    }
+    
+    private void add(int type, int count) {
+        counts[type] += count;
+        income[INCOME_CATEGORY[type]] += count * INCOME[type];
+        expenses[EXPENSE_CATEGORY[type]] += count * COST[type];
+        totalIncome += count * INCOME[type];
+        totalExpenses += count * COST[type];
+    }
+    
+    public int getCount(BuildingType type) {
+        return counts[type.ordinal()];
+    }
+    
+    /**
+     * Income per category, indexed by {@link IncomeCategory#ordinal()}.
+     */
+    public int[] getIncomeByOrdinal() {
+        return income.clone();
+    }
+    
+    /**
+     * Upkeep per category, indexed by {@link ExpenseCategory#ordinal()}.
+     */
+    public int[] getExpensesByOrdinal() {
+        return expenses.clone();
+    }
+    
+    public EnumMap<IncomeCategory, Integer> getIncome() {
+        EnumMap<IncomeCategory, Integer> map = new EnumMap<>(IncomeCategory.class);
+        for (IncomeCategory category : INCOME_CATEGORIES) {
+            map.put(category, income[category.ordinal()]);
+        }
+        return map;
+    }
+    
+    public EnumMap<ExpenseCategory, Integer> getExpenses() {
+        EnumMap<ExpenseCategory, Integer> map = new EnumMap<>(ExpenseCategory.class);
+        for (ExpenseCategory category : EXPENSE_CATEGORIES) {
+            map.put(category, expenses[category.ordinal()]);
+        }
+        return map;
+    }
+    
+    public int getTotalIncome() {
+        return totalIncome;
+    }
+    
+    public int getTotalExpenses() {
+        return totalExpenses;
+    }
+    
+    /**
+     * Whether both hold the same buildings and the same running sums.
+     */
+    boolean matches(BudgetTotals other) {
+        return Arrays.equals(counts, other.counts) && Arrays.equals(income, other.income) &&
+               Arrays.equals(expenses, other.expenses) &&
+               totalIncome == other.totalIncome && totalExpenses == other.totalExpenses;
+    }
+    
+    /**
+     * Report the totals on the budget's income and expense lines. Buildings
+     * in the OTHER categories count towards no line.
+     */
+    public void applyTo(CityBudget budget) {
+        budget.setResidentialTax(income[IncomeCategory.RESIDENTIAL.ordinal()]);
+        budget.setCommercialTax(income[IncomeCategory.COMMERCIAL.ordinal()]);
+        budget.setIndustrialTax(income[IncomeCategory.INDUSTRIAL.ordinal()]);
+        budget.setTransportationCost(expenses[ExpenseCategory.TRANSPORTATION.ordinal()]);
+        budget.setHealthcareCost(expenses[ExpenseCategory.HEALTHCARE.ordinal()]);
+        budget.setEducationCost(expenses[ExpenseCategory.EDUCATION.ordinal()]);
+        budget.setPublicsafetyCost(expenses[ExpenseCategory.PUBLIC_SAFETY.ordinal()]);
+        budget.setUtilitiesCost(expenses[ExpenseCategory.UTILITIES.ordinal()]);
+        budget.calculateMonthly();
+    }
+}
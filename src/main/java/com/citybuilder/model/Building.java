@@ -2,20 +2,35 @@ package com.citybuilder.model;
 
 /**
  * Represents a building in the city.
+ *
+ * A building is fully described by its type, so the map stores only the type
+ * and hands out one shared instance per type. Power and water coverage live
+ * on the {@link Tile}.
  */
 public class Building {
-    private BuildingType type;
-    private String name;
-    private int cost;
-    private boolean powered;
-    private boolean hasWaterAccess;
+    private static final Building[] SHARED = new Building[BuildingType.values().length];
+    
+    static {
+        for (BuildingType type : BuildingType.values()) {
+            SHARED[type.ordinal()] = new Building(type);
+        }
+    }
+    
+    private final BuildingType type;
+    private final String name;
+    private final int cost;
     
     public Building(BuildingType type) {
         this.type = type;
         this.name = type.getName();
         this.cost = type.getCost();
-        this.powered = false;
-        this.hasWaterAccess = false;
+    }
+    
+    /**
+     * Returns the shared instance for a building type.
+     */
+    public static Building of(BuildingType type) {
+        return SHARED[type.ordinal()];
     }
     
     public BuildingType getType() {
@@ -29,20 +44,4 @@ public class Building {
     public int getCost() {
         return cost;
     }
-    
-    public boolean isPowered() {
-        return powered;
-    }
-    
-    public void setPowered(boolean powered) {
-        this.powered = powered;
-    }
-    
-    public boolean hasWaterAccess() {
-        return hasWaterAccess;
-    }
-    
-    public void setHasWaterAccess(boolean hasWaterAccess) {
-        this.hasWaterAccess = hasWaterAccess;
-    }
 }
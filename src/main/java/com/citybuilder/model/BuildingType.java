@@ -1,45 +1,88 @@
 package com.citybuilder.model;
 
+import java.awt.Color;
+
 /**
- * Types of buildings that can be constructed.
+ * Types of buildings that can be constructed, with their monthly income and
+ * upkeep, the budget lines those are reported under, and how they are drawn.
  */
 public enum BuildingType {
-    HOUSE("House", 500, 10),
-    APARTMENT("Apartment", 1200, 25),
-    POLICE_STATION("Police Station", 2000, 0),
-    FIRE_STATION("Fire Station", 1800, 0),
-    SCHOOL("School", 2500, 0),
-    HOSPITAL("Hospital", 3000, 0),
-    FACTORY("Factory", 3500, 0),
-    OFFICE("Office Building", 2800, 0),
-    SHOP("Shop", 800, 0),
-    TOWN_HALL("Town Hall", 5000, 0),
-    POWER_PLANT("Power Plant", 4000, 0),
-    WATER_TOWER("Water Tower", 2500, 0),
-    ROAD("Road", 50, 0),
-    ROUNDABOUT("Roundabout", 200, 0),
-    PARK("Park", 300, 0),
-    RESTAURANT("Restaurant", 1500, 0),
-    FAST_FOOD("Fast Food", 900, 0),
-    PETROL_STATION("Petrol Station", 2000, 0),
-    TRAFFIC_LIGHT("Traffic Light", 150, 0),
-    MALL("Shopping Mall", 4000, 0),
-    CINEMA("Cinema", 2200, 0),
-    GYM("Gym", 1800, 0),
-    LIBRARY("Library", 2000, 0),
-    AIRPORT("Airport", 10000, 0),
-    RUNWAY("Runway", 5000, 0),
-    HANGAR("Hangar", 3000, 0),
-    CONTROL_TOWER("Control Tower", 2500, 0);
+    HOUSE("House", 500, 10, 50, 0, IncomeCategory.RESIDENTIAL, ExpenseCategory.OTHER,
+        "H", new Color(200, 150, 100)),
+    APARTMENT("Apartment", 1200, 25, 100, 0, IncomeCategory.RESIDENTIAL, ExpenseCategory.OTHER,
+        "APT", new Color(200, 150, 100)),
+    POLICE_STATION("Police Station", 2000, 0, 0, 100, IncomeCategory.OTHER, ExpenseCategory.PUBLIC_SAFETY,
+        "POL", new Color(50, 50, 200)),
+    FIRE_STATION("Fire Station", 1800, 0, 0, 100, IncomeCategory.OTHER, ExpenseCategory.PUBLIC_SAFETY,
+        "FIRE", new Color(200, 50, 50)),
+    SCHOOL("School", 2500, 0, 0, 80, IncomeCategory.OTHER, ExpenseCategory.EDUCATION,
+        "SCH", new Color(200, 200, 50)),
+    HOSPITAL("Hospital", 3000, 0, 0, 80, IncomeCategory.OTHER, ExpenseCategory.HEALTHCARE,
+        "HOSP", new Color(200, 100, 100)),
+    FACTORY("Factory", 3500, 0, 120, 0, IncomeCategory.INDUSTRIAL, ExpenseCategory.OTHER,
+        "FAC", new Color(100, 100, 100)),
+    OFFICE("Office Building", 2800, 0, 100, 0, IncomeCategory.INDUSTRIAL, ExpenseCategory.OTHER,
+        "OFF", new Color(150, 150, 200)),
+    SHOP("Shop", 800, 0, 150, 0, IncomeCategory.COMMERCIAL, ExpenseCategory.OTHER,
+        "SHOP", new Color(100, 200, 200)),
+    TOWN_HALL("Town Hall", 5000, 0, 0, 150, IncomeCategory.OTHER, ExpenseCategory.OTHER,
+        "HALL", new Color(180, 140, 100)),
+    POWER_PLANT("Power Plant", 4000, 0, 0, 200, IncomeCategory.OTHER, ExpenseCategory.UTILITIES,
+        "PWR", new Color(255, 200, 0)),
+    WATER_TOWER("Water Tower", 2500, 0, 0, 100, IncomeCategory.OTHER, ExpenseCategory.UTILITIES,
+        "H2O", new Color(100, 150, 255)),
+    ROAD("Road", 50, 0, 0, 5, IncomeCategory.OTHER, ExpenseCategory.TRANSPORTATION,
+        "═", new Color(80, 80, 80)),
+    ROUNDABOUT("Roundabout", 200, 0, 0, 0, IncomeCategory.OTHER, ExpenseCategory.TRANSPORTATION,
+        "◯", new Color(100, 100, 100)),
+    PARK("Park", 300, 0, 0, 0, IncomeCategory.OTHER, ExpenseCategory.OTHER,
+        "PARK", new Color(50, 150, 50)),
+    RESTAURANT("Restaurant", 1500, 0, 200, 0, IncomeCategory.COMMERCIAL, ExpenseCategory.OTHER,
+        "REST", new Color(220, 120, 60)),
+    FAST_FOOD("Fast Food", 900, 0, 200, 0, IncomeCategory.COMMERCIAL, ExpenseCategory.OTHER,
+        "FF", new Color(255, 165, 0)),
+    PETROL_STATION("Petrol Station", 2000, 0, 180, 0, IncomeCategory.OTHER, ExpenseCategory.OTHER,
+        "GAS", new Color(180, 180, 0)),
+    TRAFFIC_LIGHT("Traffic Light", 150, 0, 0, 10, IncomeCategory.OTHER, ExpenseCategory.TRANSPORTATION,
+        "⚡", new Color(50, 50, 50)),
+    MALL("Shopping Mall", 4000, 0, 150, 0, IncomeCategory.COMMERCIAL, ExpenseCategory.OTHER,
+        "MALL", new Color(100, 200, 200)),
+    CINEMA("Cinema", 2200, 0, 0, 0, IncomeCategory.OTHER, ExpenseCategory.OTHER,
+        "CIN", new Color(160, 82, 160)),
+    GYM("Gym", 1800, 0, 0, 0, IncomeCategory.OTHER, ExpenseCategory.OTHER,
+        "GYM", new Color(150, 200, 100)),
+    LIBRARY("Library", 2000, 0, 0, 80, IncomeCategory.OTHER, ExpenseCategory.EDUCATION,
+        "LIB", new Color(200, 200, 50)),
+    AIRPORT("Airport", 10000, 0, 500, 150, IncomeCategory.OTHER, ExpenseCategory.OTHER,
+        "AIR", new Color(120, 120, 180)),
+    RUNWAY("Runway", 5000, 0, 0, 150, IncomeCategory.OTHER, ExpenseCategory.OTHER,
+        "RWY", new Color(90, 90, 90)),
+    HANGAR("Hangar", 3000, 0, 0, 150, IncomeCategory.OTHER, ExpenseCategory.OTHER,
+        "HGR", new Color(100, 100, 150)),
+    CONTROL_TOWER("Control Tower", 2500, 0, 0, 150, IncomeCategory.OTHER, ExpenseCategory.OTHER,
+        "TWR", new Color(140, 140, 200));
     
     private final String name;
     private final int cost;
     private final int residents; // Number of residents this building can house
+    private final int monthlyIncome;
+    private final int monthlyCost;
+    private final IncomeCategory incomeCategory;
+    private final ExpenseCategory expenseCategory;
+    private final String shortName;
+    private final Color color;
     
-    BuildingType(String name, int cost, int residents) {
+    BuildingType(String name, int cost, int residents, int monthlyIncome, int monthlyCost,
+                 IncomeCategory incomeCategory, ExpenseCategory expenseCategory, String shortName, Color color) {
         this.name = name;
         this.cost = cost;
         this.residents = residents;
+        this.monthlyIncome = monthlyIncome;
+        this.monthlyCost = monthlyCost;
+        this.incomeCategory = incomeCategory;
+        this.expenseCategory = expenseCategory;
+        this.shortName = shortName;
+        this.color = color;
     }
     
     public String getName() {
@@ -55,58 +98,29 @@ public enum BuildingType {
     }
     
     public int getMonthlyIncome() {
-        // Different building types generate different income
-        switch (this) {
-            case RESTAURANT:
-            case FAST_FOOD:
-                return 200;
-            case SHOP:
-            case MALL:
-                return 150;
-            case PETROL_STATION:
-                return 180;
-            case OFFICE:
-                return 100;
-            case FACTORY:
-                return 120;
-            case HOUSE:
-                return 50; // Tax
-            case APARTMENT:
-                return 100; // Tax
-            case AIRPORT:
-                return 500; // High income from tourism
-            default:
-                return 0;
-        }
+        return monthlyIncome;
     }
     
     public int getMonthlyCost() {
-        // Service buildings have maintenance costs
-        switch (this) {
-            case POLICE_STATION:
-            case FIRE_STATION:
-                return 100;
-            case SCHOOL:
-            case HOSPITAL:
-            case LIBRARY:
-                return 80;
-            case TOWN_HALL:
-                return 150;
-            case POWER_PLANT:
-                return 200;
-            case WATER_TOWER:
-                return 100;
-            case ROAD:
-                return 5;
-            case TRAFFIC_LIGHT:
-                return 10;
-            case AIRPORT:
-            case RUNWAY:
-            case HANGAR:
-            case CONTROL_TOWER:
-                return 150; // High maintenance for airport facilities
-            default:
-                return 0;
-        }
+        return monthlyCost;
+    }
+    
+    public IncomeCategory getIncomeCategory() {
+        return incomeCategory;
+    }
+    
+    public ExpenseCategory getExpenseCategory() {
+        return expenseCategory;
+    }
+    
+    /**
+     * Label drawn on the building.
+     */
+    public String getShortName() {
+        return shortName;
+    }
+    
+    public Color getColor() {
+        return color;
     }
 }
@@ -6,6 +6,20 @@ import java.awt.Point;
  * Camera system that handles view rotation and positioning.
  */
 public class Camera {
+    public static final double MIN_ZOOM = 1.0 / 32; // A 1024 tile wide map fits a window
+    public static final double MAX_ZOOM = 2.0;
+    
+    // Per rotation, the rotated position is an origin plus a step for each of x and y.
+    // Origins are (mapWidth - 1) and (mapHeight - 1) times these factors.
+    private static final int[] X_PER_X = {1, 0, -1, 0};
+    private static final int[] X_PER_Y = {0, 1, 0, -1};
+    private static final int[] Y_PER_X = {0, -1, 0, 1};
+    private static final int[] Y_PER_Y = {1, 0, -1, 0};
+    private static final int[] X_ORIGIN_WIDTHS = {0, 0, 1, 0};
+    private static final int[] X_ORIGIN_HEIGHTS = {0, 0, 0, 1};
+    private static final int[] Y_ORIGIN_WIDTHS = {0, 1, 0, 0};
+    private static final int[] Y_ORIGIN_HEIGHTS = {0, 0, 1, 0};
+    
     private int offsetX;
     private int offsetY;
     private int rotation; // 0, 1, 2, 3 for 0°, 90°, 180°, 270°
@@ -61,30 +75,68 @@ public class Camera {
     }
     
     public void setZoom(double zoom) {
-        this.zoom = Math.max(0.5, Math.min(2.0, zoom));
+        this.zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom));
+    }
+    
+    /**
+     * Zoom to the given level, keeping the map point under a screen position
+     * where it is.
+     */
+    public void zoomAt(double zoom, int screenX, int screenY) {
+        double before = this.zoom;
+        setZoom(zoom);
+        double ratio = this.zoom / before;
+        offsetX = screenX - (int) Math.round((screenX - offsetX) * ratio);
+        offsetY = screenY - (int) Math.round((screenY - offsetY) * ratio);
     }
     
     /**
      * Apply camera rotation to grid coordinates
      */
     public Point applyRotation(int x, int y, int mapWidth, int mapHeight) {
-        int nx = x, ny = y;
-        
-        switch (rotation) {
-            case 1: // 90° clockwise
-                nx = y;
-                ny = mapWidth - 1 - x;
-                break;
-            case 2: // 180°
-                nx = mapWidth - 1 - x;
-                ny = mapHeight - 1 - y;
-                break;
-            case 3: // 270° clockwise (90° counter-clockwise)
-                nx = mapHeight - 1 - y;
-                ny = x;
-                break;
-        }
-        
-        return new Point(nx, ny);
+        return new Point(rotateX(x, y, mapWidth, mapHeight), rotateY(x, y, mapWidth, mapHeight));
+    }
+    
+    /**
+     * Rotated x of grid position (x, y), without allocating.
+     */
+    public int rotateX(int x, int y, int mapWidth, int mapHeight) {
+        return rotateX(rotation, x, y, mapWidth, mapHeight);
+    }
+    
+    /**
+     * Rotated y of grid position (x, y), without allocating.
+     */
+    public int rotateY(int x, int y, int mapWidth, int mapHeight) {
+        return rotateY(rotation, x, y, mapWidth, mapHeight);
+    }
+    
+    /**
+     * Map x of rotated position (rx, ry); the inverse of the rotation.
+     */
+    public int unrotateX(int rx, int ry, int mapWidth, int mapHeight) {
+        // Rotated space is transposed for quarter turns
+        return rotation % 2 == 0
+            ? rotateX((4 - rotation) % 4, rx, ry, mapWidth, mapHeight)
+            : rotateX((4 - rotation) % 4, rx, ry, mapHeight, mapWidth);
+    }
+    
+    /**
+     * Map y of rotated position (rx, ry); the inverse of the rotation.
+     */
+    public int unrotateY(int rx, int ry, int mapWidth, int mapHeight) {
+        return rotation % 2 == 0
+            ? rotateY((4 - rotation) % 4, rx, ry, mapWidth, mapHeight)
+            : rotateY((4 - rotation) % 4, rx, ry, mapHeight, mapWidth);
+    }
+    
+    private static int rotateX(int rotation, int x, int y, int mapWidth, int mapHeight) {
+        return X_ORIGIN_WIDTHS[rotation] * (mapWidth - 1) + X_ORIGIN_HEIGHTS[rotation] * (mapHeight - 1) +
+               X_PER_X[rotation] * x + X_PER_Y[rotation] * y;
+    }
+    
+    private static int rotateY(int rotation, int x, int y, int mapWidth, int mapHeight) {
+        return Y_ORIGIN_WIDTHS[rotation] * (mapWidth - 1) + Y_ORIGIN_HEIGHTS[rotation] * (mapHeight - 1) +
+               Y_PER_X[rotation] * x + Y_PER_Y[rotation] * y;
     }
 }
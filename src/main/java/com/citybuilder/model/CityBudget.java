@@ -24,6 +24,21 @@ public class CityBudget {
         this.balance = startingBalance;
     }
     
+    CityBudget copy() {
+        CityBudget copy = new CityBudget(balance);
+        copy.monthlyIncome = monthlyIncome;
+        copy.monthlyExpenses = monthlyExpenses;
+        copy.residentialTax = residentialTax;
+        copy.commercialTax = commercialTax;
+        copy.industrialTax = industrialTax;
+        copy.transportationCost = transportationCost;
+        copy.healthcareCost = healthcareCost;
+        copy.educationCost = educationCost;
+        copy.publicsafetyCost = publicsafetyCost;
+        copy.utilitiesCost = utilitiesCost;
+        return copy;
+    }
+    
     public void calculateMonthly() {
         monthlyIncome = residentialTax + commercialTax + industrialTax;
         monthlyExpenses = transportationCost + healthcareCost + educationCost + 
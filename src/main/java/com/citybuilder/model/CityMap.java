@@ -1,66 +1,325 @@
 package com.citybuilder.model;
 
+import com.citybuilder.util.SplitMix64;
+import com.google.gson.annotations.JsonAdapter;
+
+import java.util.Arrays;
+
 /**
  * Represents the city map with terrain and tiles.
+ *
+ * Tile state is stored column-wise in parallel primitive arrays indexed by
+ * y * width + x, so a full-map scan walks a few dense arrays instead of one
+ * object per cell. {@link #getTile(int, int)} hands out lightweight
+ * {@link Tile} views over this storage for callers that prefer objects.
+ *
+ * Every setter that changes a tile's terrain, height, zone, building,
+ * natural feature or traffic direction records it in the map's
+ * {@link TileChangeJournal}; writes that leave the value as it was are not
+ * recorded. Utility coverage is derived state and is not journaled.
  */
+@JsonAdapter(CityMapAdapter.class)
 public class CityMap {
+    /**
+     * Most tiles a loaded map may have, so a corrupt save fails instead of
+     * allocating without limit.
+     */
+    public static final int MAX_TILES = 1 << 26;
+    /**
+     * Longest side a map may have, as residents store their home
+     * coordinates as shorts.
+     */
+    public static final int MAX_SIDE = Short.MAX_VALUE;
+
+    private static final BuildingType[] BUILDING_TYPES = BuildingType.values();
+    private static final TerrainType[] TERRAIN_TYPES = TerrainType.values();
+    private static final ZoneType[] ZONE_TYPES = ZoneType.values();
+    private static final NaturalFeature[] NATURAL_FEATURES = NaturalFeature.values();
+    private static final TrafficDirection[] TRAFFIC_DIRECTIONS = TrafficDirection.values();
+
     private int width;
     private int height;
-    private Tile[][] tiles;
-    
+    private byte[] terrain; // TerrainType ordinal
+    private byte[] zone; // ZoneType ordinal
+    private short[] building; // BuildingType ordinal + 1, 0 for none
+    private byte[] heights;
+    private byte[] feature; // NaturalFeature ordinal + 1, 0 for none
+    private byte[] trafficDirection; // TrafficDirection ordinal
+    private long[] electricityBits;
+    private long[] waterBits;
+    private final TileChangeJournal journal;
+
     public CityMap(int width, int height) {
+        this(width, height, true);
+    }
+
+    /**
+     * A map with generated terrain, the same for the same random sequence.
+     */
+    public CityMap(int width, int height, SplitMix64 random) {
+        this(width, height, false);
+        initializeTiles(random);
+    }
+
+    CityMap(int width, int height, boolean generateTerrain) {
+        if (width < 0 || height < 0 || width > MAX_SIDE || height > MAX_SIDE) {
+            throw new IllegalArgumentException("Map size out of range: " + width + "x" + height);
+        }
         this.width = width;
         this.height = height;
-        this.tiles = new Tile[width][height];
-        
-        initializeTiles();
+        this.journal = new TileChangeJournal(width, height);
+
+        int size = width * height;
+        this.terrain = new byte[size];
+        this.zone = new byte[size];
+        this.building = new short[size];
+        this.heights = new byte[size];
+        this.feature = new byte[size];
+        this.trafficDirection = new byte[size];
+        this.electricityBits = new long[(size + 63) >>> 6];
+        this.waterBits = new long[(size + 63) >>> 6];
+
+        Arrays.fill(terrain, (byte) TerrainType.GRASS.ordinal());
+        Arrays.fill(zone, (byte) ZoneType.NONE.ordinal());
+        Arrays.fill(trafficDirection, (byte) TrafficDirection.ALL_DIRECTIONS.ordinal());
+
+        if (generateTerrain) {
+            initializeTiles(new SplitMix64(SplitMix64.randomSeed()));
+        }
+    }
+
+    /**
+     * Copy of another map with its own storage.
+     */
+    CityMap(CityMap other) {
+        this.width = other.width;
+        this.height = other.height;
+        this.terrain = other.terrain.clone();
+        this.zone = other.zone.clone();
+        this.building = other.building.clone();
+        this.heights = other.heights.clone();
+        this.feature = other.feature.clone();
+        this.trafficDirection = other.trafficDirection.clone();
+        this.electricityBits = other.electricityBits.clone();
+        this.waterBits = other.waterBits.clone();
+        this.journal = new TileChangeJournal(width, height);
     }
-    
-    private void initializeTiles() {
+
+    private void initializeTiles(SplitMix64 random) {
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
-                tiles[x][y] = new Tile(x, y);
-                
                 // Add some variety to terrain height
                 double noise = Math.sin(x * 0.1) * Math.cos(y * 0.1) * 2;
-                tiles[x][y].setHeight((int) noise);
-                
+                setHeight(x, y, (int) noise);
+
                 // Add some rivers (vertical)
                 if (x == 15 || x == 35) {
-                    tiles[x][y].setTerrainType(TerrainType.WATER);
+                    setTerrainType(x, y, TerrainType.WATER);
                 }
-                
+
                 // Add some trees
-                if (Math.random() < 0.1 && tiles[x][y].getTerrainType() != TerrainType.WATER) {
-                    tiles[x][y].setNaturalFeature(NaturalFeature.TREE);
+                if (random.nextDouble() < 0.1 && getTerrainType(x, y) != TerrainType.WATER) {
+                    setNaturalFeature(x, y, NaturalFeature.TREE);
                 }
             }
         }
-        
+
         // Create a valley (lower terrain)
-        for (int x = 20; x < 30; x++) {
-            for (int y = 20; y < 30; y++) {
-                tiles[x][y].setHeight(-2);
+        for (int x = 20; x < Math.min(30, width); x++) {
+            for (int y = 20; y < Math.min(30, height); y++) {
+                setHeight(x, y, -2);
             }
         }
     }
-    
+
+    /**
+     * Where changes to this map's tiles are recorded.
+     */
+    public TileChangeJournal getJournal() {
+        return journal;
+    }
+
     public int getWidth() {
         return width;
     }
-    
+
     public int getHeight() {
         return height;
     }
-    
+
     public Tile getTile(int x, int y) {
         if (x >= 0 && x < width && y >= 0 && y < height) {
-            return tiles[x][y];
+            return new Tile(this, x, y);
         }
         return null;
     }
-    
+
     public boolean isValidPosition(int x, int y) {
         return x >= 0 && x < width && y >= 0 && y < height;
     }
+
+    public int getHeight(int x, int y) {
+        return heights[y * width + x];
+    }
+
+    public void setHeight(int x, int y, int height) {
+        int index = y * width + x;
+        if (heights[index] != (byte) height) {
+            heights[index] = (byte) height;
+            journal.record(index, TileChangeJournal.Change.HEIGHT);
+        }
+    }
+
+    public TerrainType getTerrainType(int x, int y) {
+        return TERRAIN_TYPES[terrain[y * width + x]];
+    }
+
+    public void setTerrainType(int x, int y, TerrainType terrainType) {
+        int index = y * width + x;
+        if (terrain[index] != terrainType.ordinal()) {
+            terrain[index] = (byte) terrainType.ordinal();
+            journal.record(index, TileChangeJournal.Change.TERRAIN);
+        }
+    }
+
+    public ZoneType getZoneType(int x, int y) {
+        return ZONE_TYPES[zone[y * width + x]];
+    }
+
+    public void setZoneType(int x, int y, ZoneType zoneType) {
+        setZone(y * width + x, (byte) zoneType.ordinal());
+    }
+
+    public boolean hasBuilding(int x, int y) {
+        return building[y * width + x] != 0;
+    }
+
+    /**
+     * Returns the type of building on the tile, or null if there is none.
+     */
+    public BuildingType getBuildingType(int x, int y) {
+        int code = building[y * width + x];
+        return code == 0 ? null : BUILDING_TYPES[code - 1];
+    }
+
+    public void setBuildingType(int x, int y, BuildingType type) {
+        setBuilding(y * width + x, (short) (type == null ? 0 : type.ordinal() + 1));
+    }
+
+    public NaturalFeature getNaturalFeature(int x, int y) {
+        int code = feature[y * width + x];
+        return code == 0 ? null : NATURAL_FEATURES[code - 1];
+    }
+
+    public void setNaturalFeature(int x, int y, NaturalFeature naturalFeature) {
+        setFeature(y * width + x, (byte) (naturalFeature == null ? 0 : naturalFeature.ordinal() + 1));
+    }
+
+    public TrafficDirection getTrafficDirection(int x, int y) {
+        return TRAFFIC_DIRECTIONS[trafficDirection[y * width + x]];
+    }
+
+    public void setTrafficDirection(int x, int y, TrafficDirection direction) {
+        setTrafficDirection(y * width + x, (byte) direction.ordinal());
+    }
+
+    public boolean hasElectricity(int x, int y) {
+        return getBit(electricityBits, y * width + x);
+    }
+
+    public void setHasElectricity(int x, int y, boolean hasElectricity) {
+        setBit(electricityBits, y * width + x, hasElectricity);
+    }
+
+    public boolean hasWater(int x, int y) {
+        return getBit(waterBits, y * width + x);
+    }
+
+    public void setHasWater(int x, int y, boolean hasWater) {
+        setBit(waterBits, y * width + x, hasWater);
+    }
+
+    public boolean isRoad(int x, int y) {
+        int code = building[y * width + x];
+        return code == BuildingType.ROAD.ordinal() + 1 || code == BuildingType.ROUNDABOUT.ordinal() + 1;
+    }
+
+    public boolean isEmpty(int x, int y) {
+        int index = y * width + x;
+        return building[index] == 0 && feature[index] == 0 &&
+               terrain[index] != TerrainType.WATER.ordinal();
+    }
+
+    public void demolish(int x, int y) {
+        int index = y * width + x;
+        setBuilding(index, (short) 0);
+        setFeature(index, (byte) 0);
+        setZone(index, (byte) ZoneType.NONE.ordinal());
+        setTrafficDirection(index, (byte) TrafficDirection.ALL_DIRECTIONS.ordinal());
+    }
+
+    private void setZone(int index, byte code) {
+        if (zone[index] != code) {
+            zone[index] = code;
+            journal.record(index, TileChangeJournal.Change.ZONE);
+        }
+    }
+
+    private void setBuilding(int index, short code) {
+        if (building[index] != code) {
+            building[index] = code;
+            journal.record(index, TileChangeJournal.Change.BUILDING);
+        }
+    }
+
+    private void setFeature(int index, byte code) {
+        if (feature[index] != code) {
+            feature[index] = code;
+            journal.record(index, TileChangeJournal.Change.FEATURE);
+        }
+    }
+
+    private void setTrafficDirection(int index, byte code) {
+        if (trafficDirection[index] != code) {
+            trafficDirection[index] = code;
+            journal.record(index, TileChangeJournal.Change.TRAFFIC_DIRECTION);
+        }
+    }
+
+    // Raw column storage for the binary save format; writes bypass the journal, so only fill fresh maps
+    byte[] terrainColumn() {
+        return terrain;
+    }
+
+    byte[] zoneColumn() {
+        return zone;
+    }
+
+    short[] buildingColumn() {
+        return building;
+    }
+
+    byte[] heightColumn() {
+        return heights;
+    }
+
+    byte[] featureColumn() {
+        return feature;
+    }
+
+    byte[] trafficDirectionColumn() {
+        return trafficDirection;
+    }
+
+    private static boolean getBit(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void setBit(long[] bits, int index, boolean value) {
+        if (value) {
+            bits[index >>> 6] |= 1L << index;
+        } else {
+            bits[index >>> 6] &= ~(1L << index);
+        }
+    }
 }
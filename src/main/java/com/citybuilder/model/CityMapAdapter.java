@@ -0,0 +1,197 @@
+package com.citybuilder.model;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Gson adapter that keeps the JSON save layout of one object per tile
+ * ({@code tiles[x][y]}) on top of the packed {@link CityMap} storage, so
+ * existing saves still load and JSON exports stay readable.
+ */
+class CityMapAdapter extends TypeAdapter<CityMap> {
+
+    @Override
+    public void write(JsonWriter out, CityMap map) throws IOException {
+        if (map == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name("width").value(map.getWidth());
+        out.name("height").value(map.getHeight());
+        out.name("tiles").beginArray();
+        for (int x = 0; x < map.getWidth(); x++) {
+            out.beginArray();
+            for (int y = 0; y < map.getHeight(); y++) {
+                writeTile(out, map, x, y);
+            }
+            out.endArray();
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    private void writeTile(JsonWriter out, CityMap map, int x, int y) throws IOException {
+        out.beginObject();
+        out.name("x").value(x);
+        out.name("y").value(y);
+        out.name("height").value(map.getHeight(x, y));
+        out.name("terrainType").value(map.getTerrainType(x, y).name());
+        out.name("zoneType").value(map.getZoneType(x, y).name());
+
+        BuildingType type = map.getBuildingType(x, y);
+        if (type != null) {
+            out.name("building").beginObject();
+            out.name("type").value(type.name());
+            out.name("name").value(type.getName());
+            out.name("cost").value(type.getCost());
+            out.endObject();
+        }
+
+        NaturalFeature feature = map.getNaturalFeature(x, y);
+        if (feature != null) {
+            out.name("naturalFeature").value(feature.name());
+        }
+
+        out.name("hasElectricity").value(map.hasElectricity(x, y));
+        out.name("hasWater").value(map.hasWater(x, y));
+        out.name("trafficDirection").value(map.getTrafficDirection(x, y).name());
+        out.endObject();
+    }
+
+    @Override
+    public CityMap read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        int width = -1;
+        int height = -1;
+        CityMap map = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "width":
+                    width = in.nextInt();
+                    break;
+                case "height":
+                    height = in.nextInt();
+                    break;
+                case "tiles":
+                    if (width < 0 || height < 0) {
+                        throw new JsonParseException("City map dimensions must precede its tiles");
+                    }
+                    if (width == 0 || height == 0 || width > CityMap.MAX_SIDE || height > CityMap.MAX_SIDE
+                            || (long) width * height > CityMap.MAX_TILES) {
+                        throw new JsonParseException("Invalid city map size: " + width + "x" + height);
+                    }
+                    map = new CityMap(width, height, false);
+                    readTiles(in, map);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        if (map == null) {
+            throw new JsonParseException("City map has no tiles");
+        }
+        return map;
+    }
+
+    private void readTiles(JsonReader in, CityMap map) throws IOException {
+        in.beginArray();
+        for (int x = 0; in.hasNext(); x++) {
+            in.beginArray();
+            for (int y = 0; in.hasNext(); y++) {
+                if (x >= map.getWidth() || y >= map.getHeight()) {
+                    throw new JsonParseException("Tile (" + x + ", " + y + ") outside the "
+                        + map.getWidth() + "x" + map.getHeight() + " city map");
+                }
+                readTile(in, map, x, y);
+            }
+            in.endArray();
+        }
+        in.endArray();
+    }
+
+    private void readTile(JsonReader in, CityMap map, int x, int y) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+
+            switch (name) {
+                case "height":
+                    int height = in.nextInt();
+                    if (height < Tile.MIN_HEIGHT || height > Tile.MAX_HEIGHT) {
+                        throw new JsonParseException("Tile (" + x + ", " + y + ") height out of range: " + height);
+                    }
+                    map.setHeight(x, y, height);
+                    break;
+                case "terrainType":
+                    map.setTerrainType(x, y, parseEnum(TerrainType.class, in.nextString()));
+                    break;
+                case "zoneType":
+                    map.setZoneType(x, y, parseEnum(ZoneType.class, in.nextString()));
+                    break;
+                case "building":
+                    map.setBuildingType(x, y, readBuildingType(in));
+                    break;
+                case "naturalFeature":
+                    map.setNaturalFeature(x, y, parseEnum(NaturalFeature.class, in.nextString()));
+                    break;
+                case "hasElectricity":
+                    map.setHasElectricity(x, y, in.nextBoolean());
+                    break;
+                case "hasWater":
+                    map.setHasWater(x, y, in.nextBoolean());
+                    break;
+                case "trafficDirection":
+                    map.setTrafficDirection(x, y, parseEnum(TrafficDirection.class, in.nextString()));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+    }
+
+    private BuildingType readBuildingType(JsonReader in) throws IOException {
+        BuildingType type = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("type") && in.peek() != JsonToken.NULL) {
+                type = parseEnum(BuildingType.class, in.nextString());
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return type;
+    }
+
+    // Unknown names are corrupt saves, not programming errors
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String name) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException("Unknown " + type.getSimpleName() + ": " + name, e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.citybuilder.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Residents counted by cohort instead of kept one by one: everyone with the
+ * same home tile, birth year and happiness is one entry with a count.
+ *
+ * Residents who move in together share all three, so a city has far fewer
+ * cohorts than residents, and aging, deaths, move-outs, moods and the
+ * happiness average all cost time per cohort. Everyone sleeps and wakes at
+ * the same time, so sleeping is one flag for the whole city. Individual
+ * residents only exist when {@link #residentsAt(int, int)} unpacks a tile.
+ */
+public class CohortPopulation implements Population {
+    private short[] homeX = new short[64];
+    private short[] homeY = new short[64];
+    private short[] birthYear = new short[64];
+    private byte[] happiness = new byte[64];
+    private int[] counts = new int[64];
+    private int cohortCount;
+    private final Map<Long, Integer> index = new HashMap<>();
+    private int size;
+    private long totalHappiness;
+    private long contentHash;
+    private int currentYear;
+    private boolean sleeping;
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public int getCohortCount() {
+        return cohortCount;
+    }
+    
+    @Override
+    public void add(int x, int y, int birthYear, int happiness, int count) {
+        if (count <= 0) {
+            return;
+        }
+        // Clamped as ResidentStore does, so a bad save cannot wrap the byte
+        happiness = Math.max(0, Math.min(100, happiness));
+        long key = key(x, y, birthYear, happiness);
+        Integer cohort = index.get(key);
+        if (cohort == null) {
+            if (cohortCount == counts.length) {
+                grow(cohortCount * 2);
+            }
+            cohort = cohortCount++;
+            this.homeX[cohort] = (short) x;
+            this.homeY[cohort] = (short) y;
+            this.birthYear[cohort] = (short) birthYear;
+            this.happiness[cohort] = (byte) happiness;
+            this.counts[cohort] = 0;
+            index.put(key, cohort);
+        }
+        counts[cohort] += count;
+        size += count;
+        totalHappiness += (long) happiness * count;
+        contentHash += cohortHash(cohort) * count;
+    }
+    
+    @Override
+    public void clear() {
+        cohortCount = 0;
+        index.clear();
+        size = 0;
+        totalHappiness = 0;
+        contentHash = 0;
+    }
+    
+    @Override
+    public CohortPopulation copy() {
+        CohortPopulation copy = new CohortPopulation();
+        copy.homeX = homeX.clone();
+        copy.homeY = homeY.clone();
+        copy.birthYear = birthYear.clone();
+        copy.happiness = happiness.clone();
+        copy.counts = counts.clone();
+        copy.cohortCount = cohortCount;
+        copy.index.putAll(index);
+        copy.size = size;
+        copy.totalHappiness = totalHappiness;
+        copy.contentHash = contentHash;
+        copy.currentYear = currentYear;
+        copy.sleeping = sleeping;
+        return copy;
+    }
+    
+    @Override
+    public int getCurrentYear() {
+        return currentYear;
+    }
+    
+    @Override
+    public void setCurrentYear(int currentYear) {
+        this.currentYear = currentYear;
+    }
+    
+    @Override
+    public void setAllSleeping(boolean sleeping) {
+        this.sleeping = sleeping;
+    }
+    
+    @Override
+    public double getAverageHappiness() {
+        return size == 0 ? ResidentStore.DEFAULT_HAPPINESS : (double) totalHappiness / size;
+    }
+    
+    @Override
+    public long getContentHash() {
+        return contentHash;
+    }
+    
+    @Override
+    public int[] getMoodCounts() {
+        int[] moods = new int[ResidentMood.values().length];
+        for (int cohort = 0; cohort < cohortCount; cohort++) {
+            moods[ResidentMood.forHappiness(happiness[cohort]).ordinal()] += counts[cohort];
+        }
+        return moods;
+    }
+    
+    @Override
+    public int removeAged(int age) {
+        int removed = 0;
+        for (int cohort = cohortCount - 1; cohort >= 0; cohort--) {
+            if (currentYear - birthYear[cohort] >= age) {
+                removed += removeCohort(cohort);
+            }
+        }
+        return removed;
+    }
+    
+    @Override
+    public int removeHomeless(TilePredicate hasHome) {
+        int removed = 0;
+        for (int cohort = cohortCount - 1; cohort >= 0; cohort--) {
+            if (!hasHome.test(homeX[cohort], homeY[cohort])) {
+                removed += removeCohort(cohort);
+            }
+        }
+        return removed;
+    }
+    
+    @Override
+    public ResidentStore residentsAt(int x, int y) {
+        ResidentStore residents = new ResidentStore();
+        residents.setCurrentYear(currentYear);
+        for (int cohort = 0; cohort < cohortCount; cohort++) {
+            if (homeX[cohort] == x && homeY[cohort] == y) {
+                residents.add(x, y, birthYear[cohort], happiness[cohort], counts[cohort]);
+            }
+        }
+        residents.setAllSleeping(sleeping);
+        return residents;
+    }
+    
+    @Override
+    public <E extends Exception> void forEachGroup(GroupVisitor<E> visitor) throws E {
+        for (int cohort = 0; cohort < cohortCount; cohort++) {
+            visitor.visit(homeX[cohort], homeY[cohort], birthYear[cohort], happiness[cohort], sleeping, counts[cohort]);
+        }
+    }
+    
+    // Remove a cohort by moving the last one into its place
+    private int removeCohort(int cohort) {
+        int count = counts[cohort];
+        size -= count;
+        totalHappiness -= (long) happiness[cohort] * count;
+        contentHash -= cohortHash(cohort) * count;
+        index.remove(key(homeX[cohort], homeY[cohort], birthYear[cohort], happiness[cohort]));
+        
+        int last = --cohortCount;
+        if (cohort != last) {
+            homeX[cohort] = homeX[last];
+            homeY[cohort] = homeY[last];
+            birthYear[cohort] = birthYear[last];
+            happiness[cohort] = happiness[last];
+            counts[cohort] = counts[last];
+            index.put(key(homeX[cohort], homeY[cohort], birthYear[cohort], happiness[cohort]), cohort);
+        }
+        return count;
+    }
+    
+    private long cohortHash(int cohort) {
+        return ResidentStore.residentHash(homeX[cohort], homeY[cohort], birthYear[cohort], happiness[cohort]);
+    }
+    
+    private void grow(int capacity) {
+        homeX = Arrays.copyOf(homeX, capacity);
+        homeY = Arrays.copyOf(homeY, capacity);
+        birthYear = Arrays.copyOf(birthYear, capacity);
+        happiness = Arrays.copyOf(happiness, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+    }
+    
+    private static long key(int x, int y, int birthYear, int happiness) {
+        return (x & 0xFFFFL) << 48 | (y & 0xFFFFL) << 32 | (birthYear & 0xFFFFL) << 16 | (happiness & 0xFFL);
+    }
+}
@@ -0,0 +1,13 @@
+package com.citybuilder.model;
+
+/**
+ * Budget lines that building upkeep is reported under.
+ */
+public enum ExpenseCategory {
+    TRANSPORTATION,
+    HEALTHCARE,
+    EDUCATION,
+    PUBLIC_SAFETY,
+    UTILITIES,
+    OTHER
+}
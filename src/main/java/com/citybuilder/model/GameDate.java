@@ -16,6 +16,17 @@ public class GameDate {
         this.hour = 6; // Start at 6 AM
     }
     
+    GameDate(int year, int month, int day, int hour) {
+        this.year = year;
+        this.month = month;
+        this.day = day;
+        this.hour = hour;
+    }
+    
+    GameDate copy() {
+        return new GameDate(year, month, day, hour);
+    }
+    
     public void advanceHour() {
         hour++;
         if (hour >= 24) {
@@ -1,13 +1,19 @@
 package com.citybuilder.model;
 
+import com.citybuilder.system.ElectricitySystem;
+import com.citybuilder.system.RoadGraph;
+import com.citybuilder.system.WaterSystem;
 import com.citybuilder.util.IsometricUtils;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.citybuilder.util.SplitMix64;
+import com.google.gson.annotations.JsonAdapter;
 
-import java.awt.*;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeSet;
 
 /**
  * Main game state that holds all game data.
@@ -15,6 +21,14 @@ import java.util.List;
 public class GameState {
     private static final int MAP_WIDTH = 50;
     private static final int MAP_HEIGHT = 50;
+    private static final String SAVE_DIRECTORY = "saves";
+    // Count residents by cohort, for very large cities
+    private static final boolean COHORT_POPULATION = Boolean.getBoolean("citybuilder.cohortPopulation");
+    private static final int LIFE_EXPECTANCY = 85; // Residents die in the month they turn this old
+    // Cross-check the budget ledger against the map every month, for debugging
+    private static final boolean VERIFY_BUDGET_LEDGER = Boolean.getBoolean("citybuilder.verifyBudgetLedger");
+    // Seed for new games, to generate and play out the same city every run
+    private static final Long SEED = Long.getLong("citybuilder.seed");
     
     private CityMap cityMap;
     private int money;
@@ -23,10 +37,20 @@ public class GameState {
     private int monthlyExpenses;
     private int gameMonth;
     private double cityHappiness;
-    private List<Resident> residents;
+    @JsonAdapter(PopulationAdapter.class)
+    private Population residents;
     private List<Vehicle> vehicles;
     private List<TrafficLight> trafficLights;
+    private SplitMix64 random; // Every random choice the simulation makes
     private transient Camera camera;
+    private transient ElectricitySystem electricitySystem;
+    private transient WaterSystem waterSystem;
+    private transient RoadGraph roadGraph;
+    private transient TrafficLightGrid trafficLightGrid;
+    private transient BudgetLedger budgetLedger;
+    private transient TileChangeJournal.Subscription buildingChanges;
+    private transient TileChangeJournal.Subscription directionChanges;
+    private transient StateHash stateHash;
     
     // New systems
     private Currency currency;
@@ -36,21 +60,40 @@ public class GameState {
     
     public GameState() {
         this.camera = new Camera();
-        this.residents = new ArrayList<>();
+        this.residents = createPopulation();
         this.vehicles = new ArrayList<>();
         this.trafficLights = new ArrayList<>();
+        this.random = new SplitMix64(SplitMix64.randomSeed());
         this.currency = Currency.USD;
         this.gameDate = new GameDate(2000);
         this.cityBudget = new CityBudget(50000);
         this.currentTimeOfDay = TimeOfDay.MORNING;
+        residents.setCurrentYear(gameDate.getYear());
     }
     
     public void initializeNewGame() {
-        this.cityMap = new CityMap(MAP_WIDTH, MAP_HEIGHT);
+        initializeNewGame(MAP_WIDTH, MAP_HEIGHT);
+    }
+    
+    /**
+     * Start a new game seeded from the {@code citybuilder.seed} system
+     * property if it is set, and differently every time otherwise.
+     */
+    public void initializeNewGame(int mapWidth, int mapHeight) {
+        initializeNewGame(mapWidth, mapHeight, SEED != null ? SEED : SplitMix64.randomSeed());
+    }
+    
+    /**
+     * Start a new game whose terrain and simulation depend only on the seed
+     * and on what the player does.
+     */
+    public void initializeNewGame(int mapWidth, int mapHeight, long seed) {
+        this.random = new SplitMix64(seed);
+        this.cityMap = new CityMap(mapWidth, mapHeight, random.split());
         this.money = 50000;
         this.population = 0;
         this.camera = new Camera();
-        this.residents = new ArrayList<>();
+        this.residents = createPopulation();
         this.vehicles = new ArrayList<>();
         this.trafficLights = new ArrayList<>();
         this.gameMonth = 0;
@@ -61,6 +104,125 @@ public class GameState {
         this.gameDate = new GameDate(2000);
         this.cityBudget = new CityBudget(50000);
         this.currentTimeOfDay = TimeOfDay.MORNING;
+        residents.setCurrentYear(gameDate.getYear());
+        initSystems();
+    }
+    
+    /**
+     * Rebuild the state that is not saved, after loading.
+     */
+    void restoreTransientState() {
+        this.camera = new Camera();
+        if (random == null) {
+            random = new SplitMix64(SplitMix64.randomSeed()); // Saved before the generator was
+        }
+        residents.setCurrentYear(gameDate.getYear());
+        residents.setAllSleeping(currentTimeOfDay.isNight());
+        initSystems();
+    }
+    
+    /**
+     * An empty population, counted by cohort when the
+     * {@code citybuilder.cohortPopulation} system property is set and kept
+     * one resident at a time otherwise.
+     */
+    static Population createPopulation() {
+        return COHORT_POPULATION ? new CohortPopulation() : new ResidentStore();
+    }
+    
+    private void initSystems() {
+        if (buildingChanges != null) {
+            buildingChanges.cancel();
+            directionChanges.cancel();
+        }
+        if (stateHash != null) {
+            stateHash.cancel();
+        }
+        this.buildingChanges = cityMap.getJournal().subscribe(TileChangeJournal.Change.BUILDING);
+        this.directionChanges = cityMap.getJournal().subscribe(TileChangeJournal.Change.TRAFFIC_DIRECTION);
+        
+        this.electricitySystem = new ElectricitySystem(cityMap);
+        this.waterSystem = new WaterSystem(cityMap);
+        electricitySystem.recompute();
+        waterSystem.recompute();
+        this.roadGraph = new RoadGraph(cityMap);
+        this.budgetLedger = new BudgetLedger(cityMap);
+        
+        this.trafficLightGrid = new TrafficLightGrid(cityMap.getWidth(), cityMap.getHeight());
+        trafficLightGrid.rebuild(trafficLights);
+        this.stateHash = new StateHash(cityMap);
+    }
+    
+    /**
+     * Recompute utility coverage, the road graph and the budget ledger for
+     * the whole map, e.g. after editing so many tiles at once that catching
+     * up tile by tile would be slower.
+     */
+    public void recomputeUtilities() {
+        buildingChanges.discard();
+        directionChanges.discard();
+        electricitySystem.recompute();
+        waterSystem.recompute();
+        roadGraph.rebuild();
+        budgetLedger.rebuild();
+    }
+    
+    /**
+     * Bring utility coverage, the road graph, the budget ledger and the
+     * traffic lights up to date with the tiles whose building or traffic
+     * direction changed since the last call, as recorded in the map's
+     * journal. Call it while holding the game state lock.
+     */
+    public void applyTileChanges() {
+        buildingChanges.drain(this::buildingChanged);
+        directionChanges.drain(roadGraph::tileChanged);
+    }
+    
+    private void buildingChanged(int x, int y) {
+        electricitySystem.tileChanged(x, y);
+        waterSystem.tileChanged(x, y);
+        roadGraph.tileChanged(x, y);
+        budgetLedger.tileChanged(x, y);
+        
+        // Drop the light if its tile was demolished
+        int lightIndex = trafficLightGrid.getLightAt(x, y);
+        if (lightIndex >= 0 && cityMap.getBuildingType(x, y) != BuildingType.TRAFFIC_LIGHT) {
+            trafficLights.remove(lightIndex);
+            trafficLightGrid.rebuild(trafficLights);
+        }
+    }
+    
+    /**
+     * Deep copy of everything that is saved, so a save can be written on
+     * another thread while the simulation carries on. Call it while holding
+     * the game state lock. The copy has no simulation systems and is only
+     * meant to be saved.
+     */
+    public GameState copyForSave() {
+        GameState copy = new GameState();
+        copy.cityMap = new CityMap(cityMap);
+        copy.money = money;
+        copy.population = population;
+        copy.monthlyIncome = monthlyIncome;
+        copy.monthlyExpenses = monthlyExpenses;
+        copy.gameMonth = gameMonth;
+        copy.cityHappiness = cityHappiness;
+        copy.currency = currency;
+        copy.gameDate = gameDate.copy();
+        copy.cityBudget = cityBudget.copy();
+        copy.currentTimeOfDay = currentTimeOfDay;
+        copy.random = random.copy();
+        
+        copy.residents = residents.copy();
+        copy.vehicles = new ArrayList<>(vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            copy.vehicles.add(vehicle.copy());
+        }
+        copy.trafficLights = new ArrayList<>(trafficLights.size());
+        for (TrafficLight light : trafficLights) {
+            copy.trafficLights.add(light.copy());
+        }
+        return copy;
     }
     
     public CityMap getCityMap() {
@@ -95,11 +257,38 @@ public class GameState {
         this.population = population;
     }
     
+    /**
+     * The game's random number generator. Systems draw from it, or from a
+     * {@link SplitMix64#split() split} of it, rather than from
+     * {@code Math.random()}, so a save always plays out the same way.
+     */
+    public SplitMix64 getRandom() {
+        return random;
+    }
+    
+    /**
+     * Fingerprint of the map, money, date, residents, vehicles, traffic
+     * lights and random number generator; equal states give equal hashes.
+     * Cheap enough to take every tick: only tiles edited since the last
+     * call are hashed again.
+     */
+    public long computeStateHash() {
+        return stateHash.compute(this);
+    }
+    
     public Camera getCamera() {
         return camera;
     }
     
-    public List<Resident> getResidents() {
+    public RoadGraph getRoadGraph() {
+        return roadGraph;
+    }
+    
+    public BudgetLedger getBudgetLedger() {
+        return budgetLedger;
+    }
+    
+    public Population getResidents() {
         return residents;
     }
     
@@ -111,9 +300,12 @@ public class GameState {
         return trafficLights;
     }
     
-    public void addResident(Resident resident) {
-        residents.add(resident);
-        population++;
+    /**
+     * Move residents with the same home, birth year and happiness into the city.
+     */
+    public void addResidents(int x, int y, int birthYear, int happiness, int count) {
+        residents.add(x, y, birthYear, happiness, count);
+        population += count;
     }
     
     public void addVehicle(Vehicle vehicle) {
@@ -122,6 +314,7 @@ public class GameState {
     
     public void addTrafficLight(TrafficLight light) {
         trafficLights.add(light);
+        trafficLightGrid.put(light.getX(), light.getY(), trafficLights.size() - 1);
     }
     
     public Currency getCurrency() {
@@ -156,10 +349,8 @@ public class GameState {
     }
     
     private void updateForTimeOfDay() {
-        // Update all residents for time of day
-        for (Resident resident : residents) {
-            resident.updateForTimeOfDay(currentTimeOfDay);
-        }
+        // Residents sleep at night
+        residents.setAllSleeping(currentTimeOfDay.isNight());
         
         // Fewer vehicles spawn at night
         if (currentTimeOfDay.isNight()) {
@@ -171,6 +362,44 @@ public class GameState {
         }
     }
     
+    // Restored from binary saves
+    void setCityMap(CityMap cityMap) {
+        this.cityMap = cityMap;
+    }
+    
+    void setRandom(SplitMix64 random) {
+        this.random = random;
+    }
+    
+    void setMonthlyTotals(int monthlyIncome, int monthlyExpenses) {
+        this.monthlyIncome = monthlyIncome;
+        this.monthlyExpenses = monthlyExpenses;
+    }
+    
+    void setGameMonth(int gameMonth) {
+        this.gameMonth = gameMonth;
+    }
+    
+    void setCityHappiness(double cityHappiness) {
+        this.cityHappiness = cityHappiness;
+    }
+    
+    /**
+     * Replace the calendar, e.g. to start a scenario in another year. The
+     * given date is kept and advanced by the simulation, not copied.
+     */
+    public void setGameDate(GameDate gameDate) {
+        this.gameDate = gameDate;
+    }
+    
+    void setCityBudget(CityBudget cityBudget) {
+        this.cityBudget = cityBudget;
+    }
+    
+    void setCurrentTimeOfDay(TimeOfDay currentTimeOfDay) {
+        this.currentTimeOfDay = currentTimeOfDay;
+    }
+    
     public int getMonthlyIncome() {
         return monthlyIncome;
     }
@@ -190,66 +419,14 @@ public class GameState {
     public void updateMonthly() {
         gameMonth++;
         
-        // Calculate income and expenses by category
-        int resTax = 0, comTax = 0, indTax = 0;
-        int transCost = 0, healthCost = 0, eduCost = 0, safetyCost = 0, utilCost = 0;
-        
-        for (int x = 0; x < cityMap.getWidth(); x++) {
-            for (int y = 0; y < cityMap.getHeight(); y++) {
-                Tile tile = cityMap.getTile(x, y);
-                Building building = tile.getBuilding();
-                if (building != null) {
-                    int income = building.getType().getMonthlyIncome();
-                    int cost = building.getType().getMonthlyCost();
-                    
-                    monthlyIncome += income;
-                    monthlyExpenses += cost;
-                    
-                    // Categorize by building type
-                    if (building.getType() == BuildingType.HOUSE || 
-                        building.getType() == BuildingType.APARTMENT) {
-                        resTax += income;
-                    } else if (building.getType() == BuildingType.SHOP ||
-                              building.getType() == BuildingType.MALL ||
-                              building.getType() == BuildingType.RESTAURANT ||
-                              building.getType() == BuildingType.FAST_FOOD) {
-                        comTax += income;
-                    } else if (building.getType() == BuildingType.FACTORY ||
-                              building.getType() == BuildingType.OFFICE) {
-                        indTax += income;
-                    }
-                    
-                    // Categorize expenses
-                    if (building.getType() == BuildingType.ROAD ||
-                        building.getType() == BuildingType.ROUNDABOUT ||
-                        building.getType() == BuildingType.TRAFFIC_LIGHT) {
-                        transCost += cost;
-                    } else if (building.getType() == BuildingType.HOSPITAL) {
-                        healthCost += cost;
-                    } else if (building.getType() == BuildingType.SCHOOL ||
-                              building.getType() == BuildingType.LIBRARY) {
-                        eduCost += cost;
-                    } else if (building.getType() == BuildingType.POLICE_STATION ||
-                              building.getType() == BuildingType.FIRE_STATION) {
-                        safetyCost += cost;
-                    } else if (building.getType() == BuildingType.POWER_PLANT ||
-                              building.getType() == BuildingType.WATER_TOWER) {
-                        utilCost += cost;
-                    }
-                }
-            }
+        // This month's income and expenses, kept up to date as buildings change
+        if (VERIFY_BUDGET_LEDGER) {
+            budgetLedger.verify();
         }
-        
-        // Update city budget
-        cityBudget.setResidentialTax(resTax);
-        cityBudget.setCommercialTax(comTax);
-        cityBudget.setIndustrialTax(indTax);
-        cityBudget.setTransportationCost(transCost);
-        cityBudget.setHealthcareCost(healthCost);
-        cityBudget.setEducationCost(eduCost);
-        cityBudget.setPublicsafetyCost(safetyCost);
-        cityBudget.setUtilitiesCost(utilCost);
-        cityBudget.calculateMonthly();
+        BudgetTotals totals = budgetLedger.getTotals();
+        monthlyIncome = totals.getTotalIncome();
+        monthlyExpenses = totals.getTotalExpenses();
+        totals.applyTo(cityBudget);
         
         int netIncome = monthlyIncome - monthlyExpenses;
         addMoney(netIncome);
@@ -258,28 +435,25 @@ public class GameState {
         // Update city happiness
         updateCityHappiness();
         
-        // Update residents - age them
-        int currentYear = gameDate.getYear();
-        for (Resident resident : residents) {
-            resident.updateAge(currentYear);
-            resident.updateMood();
-        }
+        // Age everyone at once, then let the very old die and the homeless move out
+        residents.setCurrentYear(gameDate.getYear());
+        population -= residents.removeAged(LIFE_EXPECTANCY);
+        population -= residents.removeHomeless(this::hasHome);
         
         // Advance date by one month
         gameDate.advanceMonth();
     }
     
     private void updateCityHappiness() {
-        if (residents.isEmpty()) {
-            cityHappiness = 75.0;
-            return;
-        }
-        
-        double totalHappiness = 0;
-        for (Resident resident : residents) {
-            totalHappiness += resident.getHappiness();
+        cityHappiness = residents.getAverageHappiness();
+    }
+    
+    private boolean hasHome(int x, int y) {
+        if (!cityMap.isValidPosition(x, y)) {
+            return false;
         }
-        cityHappiness = totalHappiness / residents.size();
+        BuildingType type = cityMap.getBuildingType(x, y);
+        return type != null && type.getResidents() > 0;
     }
     
     public void updateTraffic() {
@@ -292,16 +466,13 @@ public class GameState {
         for (Vehicle vehicle : vehicles) {
             // Check if vehicle is at a traffic light
             boolean atTrafficLight = false;
-            for (TrafficLight light : trafficLights) {
-                if (Math.abs(vehicle.getX() - light.getX()) <= 1 && 
-                    Math.abs(vehicle.getY() - light.getY()) <= 1) {
-                    if (light.shouldStop()) {
-                        vehicle.stop();
-                        atTrafficLight = true;
-                    } else {
-                        vehicle.resume();
-                    }
-                    break;
+            int lightIndex = trafficLightGrid.findNear(vehicle.getX(), vehicle.getY());
+            if (lightIndex >= 0) {
+                if (trafficLights.get(lightIndex).shouldStop()) {
+                    vehicle.stop();
+                    atTrafficLight = true;
+                } else {
+                    vehicle.resume();
                 }
             }
             
@@ -313,21 +484,12 @@ public class GameState {
         }
     }
     
+    /**
+     * Save in the compact binary format to {@code saves/<filename>.city}.
+     */
     public boolean saveToFile(String filename) {
         try {
-            File saveDir = new File("saves");
-            if (!saveDir.exists()) {
-                saveDir.mkdirs();
-            }
-            
-            File saveFile = new File(saveDir, filename + ".json");
-            Gson gson = new GsonBuilder().setPrettyPrinting().create();
-            String json = gson.toJson(this);
-            
-            try (FileWriter writer = new FileWriter(saveFile)) {
-                writer.write(json);
-            }
-            
+            BinarySaveFormat.writeAtomically(this, saveFile(filename, BinarySaveFormat.EXTENSION), true);
             return true;
         } catch (IOException e) {
             e.printStackTrace();
@@ -335,39 +497,72 @@ public class GameState {
         }
     }
     
+    /**
+     * Load a binary save, or import a JSON save of that name if there is no
+     * binary one.
+     */
     public static GameState loadFromFile(String filename) {
+        Path binaryFile = Paths.get(SAVE_DIRECTORY, filename + BinarySaveFormat.EXTENSION);
+        if (!Files.exists(binaryFile)) {
+            return importFromJson(filename);
+        }
+        
         try {
-            File saveFile = new File("saves", filename + ".json");
-            if (!saveFile.exists()) {
-                return null;
-            }
-            
-            Gson gson = new Gson();
-            try (FileReader reader = new FileReader(saveFile)) {
-                GameState state = gson.fromJson(reader, GameState.class);
-                state.camera = new Camera();
-                return state;
-            }
+            return BinarySaveFormat.read(binaryFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Export as readable JSON to {@code saves/<filename>.json}.
+     */
+    public boolean exportToJson(String filename) {
+        try {
+            JsonSaveFormat.write(this, saveFile(filename, JsonSaveFormat.EXTENSION));
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    public static GameState importFromJson(String filename) {
+        Path jsonFile = Paths.get(SAVE_DIRECTORY, filename + JsonSaveFormat.EXTENSION);
+        if (!Files.exists(jsonFile)) {
+            return null;
+        }
+        
+        try {
+            return JsonSaveFormat.read(jsonFile);
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         }
     }
     
+    private static Path saveFile(String filename, String extension) throws IOException {
+        Path saveDir = Paths.get(SAVE_DIRECTORY);
+        Files.createDirectories(saveDir);
+        return saveDir.resolve(filename + extension);
+    }
+    
     public static List<String> listSavedGames() {
-        List<String> saves = new ArrayList<>();
-        File saveDir = new File("saves");
+        TreeSet<String> saves = new TreeSet<>();
+        File saveDir = new File(SAVE_DIRECTORY);
         
         if (saveDir.exists() && saveDir.isDirectory()) {
-            File[] files = saveDir.listFiles((dir, name) -> name.endsWith(".json"));
+            File[] files = saveDir.listFiles((dir, name) ->
+                name.endsWith(BinarySaveFormat.EXTENSION) || name.endsWith(JsonSaveFormat.EXTENSION));
             if (files != null) {
                 for (File file : files) {
                     String name = file.getName();
-                    saves.add(name.substring(0, name.length() - 5));
+                    saves.add(name.substring(0, name.lastIndexOf('.')));
                 }
             }
         }
         
-        return saves;
+        return new ArrayList<>(saves);
     }
 }
@@ -0,0 +1,11 @@
+package com.citybuilder.model;
+
+/**
+ * Budget lines that building income is reported under.
+ */
+public enum IncomeCategory {
+    RESIDENTIAL,
+    COMMERCIAL,
+    INDUSTRIAL,
+    OTHER
+}
@@ -0,0 +1,48 @@
+package com.citybuilder.model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Human-readable JSON save format, kept for importing saves from older
+ * versions and exporting cities for inspection or other tools.
+ */
+public final class JsonSaveFormat {
+    public static final String EXTENSION = ".json";
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private JsonSaveFormat() {
+    }
+    
+    public static void write(GameState state, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE))) {
+            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+            gson.toJson(state, writer);
+        }
+    }
+    
+    public static GameState read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Reader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE))) {
+            GameState state = new Gson().fromJson(reader, GameState.class);
+            if (state == null) {
+                throw new IOException("Empty save file: " + file);
+            }
+            state.restoreTransientState();
+            return state;
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid JSON save: " + file, e);
+        }
+    }
+}
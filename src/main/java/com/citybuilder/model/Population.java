@@ -0,0 +1,93 @@
+package com.citybuilder.model;
+
+/**
+ * The residents of a city, as the monthly simulation sees them.
+ *
+ * {@link ResidentStore} keeps every resident individually.
+ * {@link CohortPopulation} only counts residents who share a home, birth
+ * year and happiness, so its monthly work grows with the number of such
+ * cohorts rather than with the population. Individual residents can be
+ * inspected through {@link #residentsAt(int, int)} in both.
+ */
+public interface Population {
+
+    /**
+     * Test on a map tile, such as whether residents still have a home there.
+     */
+    interface TilePredicate {
+        boolean test(int x, int y);
+    }
+    
+    /**
+     * Receives residents grouped by everything that is stored about them.
+     */
+    interface GroupVisitor<E extends Exception> {
+        void visit(int x, int y, int birthYear, int happiness, boolean sleeping, int count) throws E;
+    }
+    
+    int size();
+    
+    boolean isEmpty();
+    
+    /**
+     * Move in a number of residents with the same home, birth year and
+     * happiness, clamped to 0-100.
+     */
+    void add(int x, int y, int birthYear, int happiness, int count);
+    
+    void clear();
+    
+    /**
+     * Independent copy, for saving on another thread.
+     */
+    Population copy();
+    
+    int getCurrentYear();
+    
+    /**
+     * Set the year ages are counted to, which ages everyone at once.
+     */
+    void setCurrentYear(int currentYear);
+    
+    /**
+     * Put every resident to bed or wake them all up.
+     */
+    void setAllSleeping(boolean sleeping);
+    
+    double getAverageHappiness();
+    
+    /**
+     * Hash of every resident's home, birth year and happiness that does not
+     * depend on the order they arrived in, kept as a running sum so it costs
+     * nothing to read. Equal populations hash the same in either
+     * implementation.
+     */
+    long getContentHash();
+    
+    /**
+     * Number of residents in each mood, indexed by {@link ResidentMood#ordinal()}.
+     */
+    int[] getMoodCounts();
+    
+    /**
+     * Remove everyone who has reached the given age and return how many died.
+     */
+    int removeAged(int age);
+    
+    /**
+     * Remove everyone whose home tile fails the test and return how many
+     * moved out.
+     */
+    int removeHomeless(TilePredicate hasHome);
+    
+    /**
+     * The residents living on a tile, one by one, for inspecting them. The
+     * result is a detached copy; changing it does not change the city.
+     */
+    ResidentStore residentsAt(int x, int y);
+    
+    /**
+     * Visit all residents, grouped where the implementation groups them.
+     */
+    <E extends Exception> void forEachGroup(GroupVisitor<E> visitor) throws E;
+}
@@ -0,0 +1,102 @@
+package com.citybuilder.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Gson adapter that keeps the JSON save layout of one object per resident
+ * on top of a {@link Population}, so existing saves still load whichever
+ * way residents are kept. Name, mood and age are written for readers of
+ * the export but are derived again on import.
+ */
+class PopulationAdapter extends TypeAdapter<Population> {
+
+    @Override
+    public void write(JsonWriter out, Population residents) throws IOException {
+        if (residents == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginArray();
+        int currentYear = residents.getCurrentYear();
+        residents.<IOException>forEachGroup((x, y, birthYear, happiness, sleeping, count) -> {
+            for (int i = 0; i < count; i++) {
+                writeResident(out, x, y, birthYear, currentYear - birthYear, happiness, sleeping);
+            }
+        });
+        out.endArray();
+    }
+
+    private void writeResident(JsonWriter out, int x, int y, int birthYear, int age, int happiness,
+                               boolean sleeping) throws IOException {
+        out.beginObject();
+        out.name("name").value(Resident.NAME);
+        out.name("mood").value(ResidentMood.forHappiness(happiness).name());
+        out.name("happiness").value(happiness);
+        out.name("x").value(x);
+        out.name("y").value(y);
+        out.name("age").value(age);
+        out.name("birthYear").value(birthYear);
+        out.name("sleeping").value(sleeping);
+        out.endObject();
+    }
+
+    @Override
+    public Population read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        Population residents = GameState.createPopulation();
+        in.beginArray();
+        while (in.hasNext()) {
+            readResident(in, residents);
+        }
+        in.endArray();
+        return residents;
+    }
+
+    private void readResident(JsonReader in, Population residents) throws IOException {
+        int x = 0;
+        int y = 0;
+        int birthYear = 0;
+        int happiness = ResidentStore.DEFAULT_HAPPINESS;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+
+            switch (name) {
+                case "x":
+                    x = in.nextInt();
+                    break;
+                case "y":
+                    y = in.nextInt();
+                    break;
+                case "birthYear":
+                    birthYear = in.nextInt();
+                    break;
+                case "happiness":
+                    happiness = in.nextInt();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        // Sleeping is the same for everyone and is set again with the time of day
+        residents.add(x, y, birthYear, happiness, 1);
+    }
+}
@@ -1,103 +1,74 @@
 package com.citybuilder.model;
 
 /**
- * Represents a resident in the city with mood and needs.
+ * View of one resident in the {@link ResidentStore}, with mood and needs.
+ * The view reads and writes the store, and is only valid while the
+ * resident lives there.
  */
 public class Resident {
-    private String name;
-    private ResidentMood mood;
-    private int happiness; // 0-100
-    private int x, y; // Location
-    private int age; // Age in years
-    private int birthYear;
-    private boolean sleeping;
-    
-    public Resident(int x, int y, int birthYear) {
-        this.x = x;
-        this.y = y;
-        this.happiness = 75;
-        this.mood = ResidentMood.CONTENT;
-        this.name = "Citizen";
-        this.age = 0;
-        this.birthYear = birthYear;
-        this.sleeping = false;
-    }
+    static final String NAME = "Citizen";
     
-    public void updateAge(int currentYear) {
-        this.age = currentYear - birthYear;
-    }
+    private final ResidentStore store;
+    private final int slot;
     
-    public void updateMood() {
-        if (happiness >= 80) {
-            mood = ResidentMood.HAPPY;
-        } else if (happiness >= 60) {
-            mood = ResidentMood.CONTENT;
-        } else if (happiness >= 40) {
-            mood = ResidentMood.NEUTRAL;
-        } else if (happiness >= 20) {
-            mood = ResidentMood.UNHAPPY;
-        } else {
-            mood = ResidentMood.ANGRY;
-        }
+    Resident(ResidentStore store, int slot) {
+        this.store = store;
+        this.slot = slot;
     }
     
-    public void updateForTimeOfDay(TimeOfDay timeOfDay) {
-        // Residents sleep at night
-        sleeping = timeOfDay.isNight();
-        
-        // Adjust happiness based on time of day
-        if (timeOfDay == TimeOfDay.NIGHT && !sleeping) {
-            adjustHappiness(-1); // Unhappy if not sleeping at night
-        }
+    public int getSlot() {
+        return slot;
     }
     
     public void adjustHappiness(int amount) {
-        happiness = Math.max(0, Math.min(100, happiness + amount));
-        updateMood();
+        store.adjustHappiness(slot, amount);
     }
     
     public boolean isElderly() {
-        return age >= 65;
+        return getAge() >= 65;
     }
     
     public boolean isAdult() {
-        return age >= 18 && age < 65;
+        return getAge() >= 18 && getAge() < 65;
     }
     
     public boolean isChild() {
-        return age < 18;
+        return getAge() < 18;
+    }
+    
+    public String getName() {
+        return NAME;
     }
     
     public ResidentMood getMood() {
-        return mood;
+        return store.getMood(slot);
     }
     
     public int getHappiness() {
-        return happiness;
+        return store.getHappiness(slot);
     }
     
     public int getAge() {
-        return age;
+        return store.getAge(slot);
     }
     
     public int getBirthYear() {
-        return birthYear;
+        return store.getBirthYear(slot);
     }
     
     public boolean isSleeping() {
-        return sleeping;
+        return store.isSleeping(slot);
     }
     
     public int getX() {
-        return x;
+        return store.getX(slot);
     }
     
     public int getY() {
-        return y;
+        return store.getY(slot);
     }
     
     public void setLocation(int x, int y) {
-        this.x = x;
-        this.y = y;
+        store.setLocation(slot, x, y);
     }
 }
@@ -25,4 +25,21 @@ public enum ResidentMood {
     public String getDescription() {
         return description;
     }
+    
+    /**
+     * Mood of a resident with the given happiness (0-100).
+     */
+    public static ResidentMood forHappiness(int happiness) {
+        if (happiness >= 80) {
+            return HAPPY;
+        } else if (happiness >= 60) {
+            return CONTENT;
+        } else if (happiness >= 40) {
+            return NEUTRAL;
+        } else if (happiness >= 20) {
+            return UNHAPPY;
+        } else {
+            return ANGRY;
+        }
+    }
 }
@@ -0,0 +1,344 @@
+package com.citybuilder.model;
+
+import com.citybuilder.util.SplitMix64;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * All residents of the city, stored as one primitive column per attribute
+ * rather than one object each: about eight bytes a resident, so a million
+ * residents take tens of megabytes.
+ *
+ * A resident is identified by its slot. Slots of residents who died or
+ * moved out are kept on a free list and reused by the next arrival, so the
+ * columns only grow with the peak population. Mood and age are not stored;
+ * they follow from happiness and from the birth year and current year.
+ * {@link #get(int)} and iteration give {@link Resident} views of live slots.
+ */
+public class ResidentStore implements Population, Iterable<Resident> {
+    public static final int DEFAULT_HAPPINESS = 75;
+    
+    private static final byte ALIVE = 1;
+    private static final byte SLEEPING = 2;
+    
+    private byte[] happiness = new byte[64];
+    private short[] birthYear = new short[64];
+    private short[] homeX = new short[64];
+    private short[] homeY = new short[64];
+    private byte[] flags = new byte[64];
+    private int slotCount; // Slots ever used, live or free
+    private int size;
+    private int[] free = new int[16];
+    private int freeCount;
+    private long totalHappiness;
+    private long contentHash;
+    private int currentYear;
+    
+    /**
+     * Add a resident living at the given tile and return its slot.
+     */
+    public int add(int x, int y, int birthYear) {
+        int slot;
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            if (slotCount == flags.length) {
+                grow(slotCount * 2);
+            }
+            slot = slotCount++;
+        }
+        
+        this.happiness[slot] = DEFAULT_HAPPINESS;
+        this.birthYear[slot] = (short) birthYear;
+        this.homeX[slot] = (short) x;
+        this.homeY[slot] = (short) y;
+        this.flags[slot] = ALIVE;
+        size++;
+        totalHappiness += DEFAULT_HAPPINESS;
+        contentHash += slotHash(slot);
+        return slot;
+    }
+    
+    @Override
+    public void add(int x, int y, int birthYear, int happiness, int count) {
+        for (int i = 0; i < count; i++) {
+            adjustHappiness(add(x, y, birthYear), happiness - DEFAULT_HAPPINESS);
+        }
+    }
+    
+    /**
+     * Remove a resident who died or moved out, freeing the slot for reuse.
+     */
+    public void remove(int slot) {
+        checkAlive(slot);
+        flags[slot] = 0;
+        totalHappiness -= happiness[slot];
+        contentHash -= slotHash(slot);
+        size--;
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = slot;
+    }
+    
+    @Override
+    public void clear() {
+        Arrays.fill(flags, 0, slotCount, (byte) 0);
+        slotCount = 0;
+        size = 0;
+        freeCount = 0;
+        totalHappiness = 0;
+        contentHash = 0;
+    }
+    
+    @Override
+    public ResidentStore copy() {
+        ResidentStore copy = new ResidentStore();
+        copy.happiness = happiness.clone();
+        copy.birthYear = birthYear.clone();
+        copy.homeX = homeX.clone();
+        copy.homeY = homeY.clone();
+        copy.flags = flags.clone();
+        copy.slotCount = slotCount;
+        copy.size = size;
+        copy.free = free.clone();
+        copy.freeCount = freeCount;
+        copy.totalHappiness = totalHappiness;
+        copy.contentHash = contentHash;
+        copy.currentYear = currentYear;
+        return copy;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * One past the highest slot in use; live slots are below this.
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+    
+    public boolean isAlive(int slot) {
+        return slot >= 0 && slot < slotCount && (flags[slot] & ALIVE) != 0;
+    }
+    
+    /**
+     * The first live slot at or after the given one, or -1 if there is none.
+     * Loops over residents as
+     * {@code for (int s = store.nextSlot(0); s >= 0; s = store.nextSlot(s + 1))}.
+     */
+    public int nextSlot(int slot) {
+        for (int i = slot; i < slotCount; i++) {
+            if ((flags[i] & ALIVE) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * View of the resident in a live slot.
+     */
+    public Resident get(int slot) {
+        checkAlive(slot);
+        return new Resident(this, slot);
+    }
+    
+    @Override
+    public Iterator<Resident> iterator() {
+        return new Iterator<Resident>() {
+            private int next = nextSlot(0);
+            
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+            
+            @Override
+            public Resident next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                Resident resident = new Resident(ResidentStore.this, next);
+                next = nextSlot(next + 1);
+                return resident;
+            }
+        };
+    }
+    
+    public int getX(int slot) {
+        return homeX[slot];
+    }
+    
+    public int getY(int slot) {
+        return homeY[slot];
+    }
+    
+    public void setLocation(int slot, int x, int y) {
+        contentHash -= slotHash(slot);
+        homeX[slot] = (short) x;
+        homeY[slot] = (short) y;
+        contentHash += slotHash(slot);
+    }
+    
+    public int getBirthYear(int slot) {
+        return birthYear[slot];
+    }
+    
+    public int getAge(int slot) {
+        return currentYear - birthYear[slot];
+    }
+    
+    public int getHappiness(int slot) {
+        return happiness[slot];
+    }
+    
+    /**
+     * Change a resident's happiness, clamped to 0-100.
+     */
+    public void adjustHappiness(int slot, int amount) {
+        int value = Math.max(0, Math.min(100, happiness[slot] + amount));
+        totalHappiness += value - happiness[slot];
+        contentHash -= slotHash(slot);
+        happiness[slot] = (byte) value;
+        contentHash += slotHash(slot);
+    }
+    
+    public ResidentMood getMood(int slot) {
+        return ResidentMood.forHappiness(happiness[slot]);
+    }
+    
+    public boolean isSleeping(int slot) {
+        return (flags[slot] & SLEEPING) != 0;
+    }
+    
+    public void setSleeping(int slot, boolean sleeping) {
+        flags[slot] = (byte) (sleeping ? flags[slot] | SLEEPING : flags[slot] & ~SLEEPING);
+    }
+    
+    /**
+     * Put every resident to bed or wake them all up.
+     */
+    @Override
+    public void setAllSleeping(boolean sleeping) {
+        for (int i = 0; i < slotCount; i++) {
+            if ((flags[i] & ALIVE) != 0) {
+                flags[i] = sleeping ? ALIVE | SLEEPING : ALIVE;
+            }
+        }
+    }
+    
+    /**
+     * Mean happiness of all residents, kept as a running sum.
+     */
+    @Override
+    public double getAverageHappiness() {
+        return size == 0 ? DEFAULT_HAPPINESS : (double) totalHappiness / size;
+    }
+    
+    @Override
+    public long getContentHash() {
+        return contentHash;
+    }
+    
+    @Override
+    public int getCurrentYear() {
+        return currentYear;
+    }
+    
+    /**
+     * Set the year ages are counted to, which ages everyone at once.
+     */
+    @Override
+    public void setCurrentYear(int currentYear) {
+        this.currentYear = currentYear;
+    }
+    
+    @Override
+    public int[] getMoodCounts() {
+        int[] counts = new int[ResidentMood.values().length];
+        for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+            counts[getMood(slot).ordinal()]++;
+        }
+        return counts;
+    }
+    
+    @Override
+    public int removeAged(int age) {
+        int removed = 0;
+        for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+            if (getAge(slot) >= age) {
+                remove(slot);
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
+    @Override
+    public int removeHomeless(TilePredicate hasHome) {
+        int removed = 0;
+        for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+            if (!hasHome.test(homeX[slot], homeY[slot])) {
+                remove(slot);
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
+    @Override
+    public ResidentStore residentsAt(int x, int y) {
+        ResidentStore residents = new ResidentStore();
+        residents.setCurrentYear(currentYear);
+        for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+            if (homeX[slot] == x && homeY[slot] == y) {
+                residents.add(x, y, birthYear[slot], happiness[slot], 1);
+                residents.setSleeping(residents.getSlotCount() - 1, isSleeping(slot));
+            }
+        }
+        return residents;
+    }
+    
+    @Override
+    public <E extends Exception> void forEachGroup(GroupVisitor<E> visitor) throws E {
+        for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+            visitor.visit(homeX[slot], homeY[slot], birthYear[slot], happiness[slot], isSleeping(slot), 1);
+        }
+    }
+    
+    /**
+     * One resident's share of {@link #getContentHash()}, from the values as stored.
+     */
+    static long residentHash(short x, short y, short birthYear, byte happiness) {
+        return SplitMix64.mix64((x & 0xFFFFL) << 48 | (y & 0xFFFFL) << 32 | (birthYear & 0xFFFFL) << 16 | (happiness & 0xFFL));
+    }
+    
+    private long slotHash(int slot) {
+        return residentHash(homeX[slot], homeY[slot], birthYear[slot], happiness[slot]);
+    }
+    
+    private void grow(int capacity) {
+        happiness = Arrays.copyOf(happiness, capacity);
+        birthYear = Arrays.copyOf(birthYear, capacity);
+        homeX = Arrays.copyOf(homeX, capacity);
+        homeY = Arrays.copyOf(homeY, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+    
+    private void checkAlive(int slot) {
+        if (!isAlive(slot)) {
+            throw new IllegalArgumentException("No resident in slot " + slot);
+        }
+    }
+}
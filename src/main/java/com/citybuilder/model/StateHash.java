@@ -0,0 +1,100 @@
+package com.citybuilder.model;
+
+import com.citybuilder.util.SplitMix64;
+
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * 64-bit fingerprint of the simulation state, so two runs can be compared
+ * tick by tick: replays of one save, sequential and parallel scans, or
+ * builds before and after a change.
+ *
+ * Each tile contributes a mixed hash of its index and contents, and the map
+ * part is the sum of those. Tiles the map's journal reports as changed are
+ * subtracted with their old hash and added back with the new one, so an
+ * unedited map costs nothing per tick. The scalars, vehicles, traffic lights
+ * and the random number generator are mixed in on top each time. Residents
+ * count through their population's running content hash, which covers where
+ * each lives, when they were born and how happy they are, and utility
+ * coverage and the road graph are left out, as they follow from the tiles.
+ */
+class StateHash {
+    private static final long STEP = 0x9E3779B97F4A7C15L;
+    
+    private final CityMap map;
+    private final TileChangeJournal.Subscription changes;
+    private final long[] tileHashes;
+    private long mapHash;
+    
+    StateHash(CityMap map) {
+        this.map = map;
+        this.changes = map.getJournal().subscribe(EnumSet.allOf(TileChangeJournal.Change.class));
+        this.tileHashes = new long[map.getWidth() * map.getHeight()];
+        for (int index = 0; index < tileHashes.length; index++) {
+            tileHashes[index] = tileHash(index);
+            mapHash += tileHashes[index];
+        }
+    }
+    
+    void cancel() {
+        changes.cancel();
+    }
+    
+    long compute(GameState state) {
+        changes.drain(this::tileChanged);
+        
+        long hash = mapHash;
+        hash = combine(hash, state.getMoney());
+        hash = combine(hash, state.getPopulation());
+        hash = combine(hash, state.getMonthlyIncome());
+        hash = combine(hash, state.getMonthlyExpenses());
+        hash = combine(hash, state.getGameMonth());
+        hash = combine(hash, Double.doubleToLongBits(state.getCityHappiness()));
+        hash = combine(hash, state.getCurrentTimeOfDay().ordinal());
+        GameDate date = state.getGameDate();
+        hash = combine(hash, ((long) date.getYear() << 24) | date.getMonth() << 16 | date.getDay() << 8 | date.getHour());
+        hash = combine(hash, state.getCityBudget().getBalance());
+        hash = combine(hash, state.getResidents().size());
+        hash = combine(hash, state.getResidents().getContentHash());
+        hash = combine(hash, state.getRandom().getState());
+        hash = combine(hash, state.getRandom().getGamma());
+        
+        List<Vehicle> vehicles = state.getVehicles();
+        hash = combine(hash, vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            hash = combine(hash, ((long) vehicle.getX() << 32) | (vehicle.getY() & 0xFFFFFFFFL));
+            hash = combine(hash, ((long) vehicle.getPathRemaining() << 32) | vehicle.getWaypointsRemaining());
+            hash = combine(hash, vehicle.getType().ordinal() << 1 | (vehicle.isStopped() ? 1 : 0));
+        }
+        List<TrafficLight> lights = state.getTrafficLights();
+        hash = combine(hash, lights.size());
+        for (TrafficLight light : lights) {
+            hash = combine(hash, ((long) light.getX() << 32) | light.getY());
+            hash = combine(hash, ((long) light.getState().ordinal() << 32) | light.getTimer());
+        }
+        return SplitMix64.mix64(hash);
+    }
+    
+    private void tileChanged(int x, int y) {
+        int index = y * map.getWidth() + x;
+        mapHash -= tileHashes[index];
+        tileHashes[index] = tileHash(index);
+        mapHash += tileHashes[index];
+    }
+    
+    private long tileHash(int index) {
+        long contents = map.terrainColumn()[index] & 0xFFL;
+        contents |= (map.zoneColumn()[index] & 0xFFL) << 8;
+        contents |= (map.buildingColumn()[index] & 0xFFFFL) << 16;
+        contents |= (map.heightColumn()[index] & 0xFFL) << 32;
+        contents |= (map.featureColumn()[index] & 0xFFL) << 40;
+        contents |= (map.trafficDirectionColumn()[index] & 0xFFL) << 48;
+        return SplitMix64.mix64(index * STEP + contents);
+    }
+    
+    // Order matters, so the same values in another order hash differently
+    private static long combine(long hash, long value) {
+        return SplitMix64.mix64(hash * STEP + value);
+    }
+}
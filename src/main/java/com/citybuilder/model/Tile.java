@@ -2,30 +2,23 @@ package com.citybuilder.model;
 
 /**
  * Represents a single tile in the city map.
+ *
+ * Tiles are lightweight views over the {@link CityMap} storage; reads and
+ * writes go straight through to the map, so two views of the same cell always
+ * agree and views can be created and discarded freely.
  */
 public class Tile {
-    private int x;
-    private int y;
-    private int height; // Terrain height
-    private TerrainType terrainType;
-    private ZoneType zoneType;
-    private Building building;
-    private NaturalFeature naturalFeature;
-    private boolean hasElectricity;
-    private boolean hasWater;
-    private TrafficDirection trafficDirection;
-    
-    public Tile(int x, int y) {
+    public static final int MIN_HEIGHT = -10;
+    public static final int MAX_HEIGHT = 10;
+    
+    private final CityMap map;
+    private final int x;
+    private final int y;
+    
+    Tile(CityMap map, int x, int y) {
+        this.map = map;
         this.x = x;
         this.y = y;
-        this.height = 0;
-        this.terrainType = TerrainType.GRASS;
-        this.zoneType = ZoneType.NONE;
-        this.building = null;
-        this.naturalFeature = null;
-        this.hasElectricity = false;
-        this.hasWater = false;
-        this.trafficDirection = TrafficDirection.ALL_DIRECTIONS;
     }
     
     public int getX() {
@@ -37,96 +30,107 @@ public class Tile {
     }
     
     public int getHeight() {
-        return height;
+        return map.getHeight(x, y);
     }
     
     public void setHeight(int height) {
-        this.height = height;
+        map.setHeight(x, y, height);
     }
     
     public void raiseHeight() {
-        if (height < 10) height++;
+        int height = getHeight();
+        if (height < MAX_HEIGHT) setHeight(height + 1);
     }
     
     public void lowerHeight() {
-        if (height > -10) height--;
+        int height = getHeight();
+        if (height > MIN_HEIGHT) setHeight(height - 1);
     }
     
     public TerrainType getTerrainType() {
-        return terrainType;
+        return map.getTerrainType(x, y);
     }
     
     public void setTerrainType(TerrainType terrainType) {
-        this.terrainType = terrainType;
+        map.setTerrainType(x, y, terrainType);
     }
     
     public ZoneType getZoneType() {
-        return zoneType;
+        return map.getZoneType(x, y);
     }
     
     public void setZoneType(ZoneType zoneType) {
-        this.zoneType = zoneType;
+        map.setZoneType(x, y, zoneType);
     }
     
     public Building getBuilding() {
-        return building;
+        BuildingType type = map.getBuildingType(x, y);
+        return type == null ? null : Building.of(type);
     }
     
     public void setBuilding(Building building) {
-        this.building = building;
+        map.setBuildingType(x, y, building == null ? null : building.getType());
     }
     
     public NaturalFeature getNaturalFeature() {
-        return naturalFeature;
+        return map.getNaturalFeature(x, y);
     }
     
     public void setNaturalFeature(NaturalFeature naturalFeature) {
-        this.naturalFeature = naturalFeature;
+        map.setNaturalFeature(x, y, naturalFeature);
     }
     
     public boolean hasElectricity() {
-        return hasElectricity;
+        return map.hasElectricity(x, y);
     }
     
     public void setHasElectricity(boolean hasElectricity) {
-        this.hasElectricity = hasElectricity;
+        map.setHasElectricity(x, y, hasElectricity);
     }
     
     public boolean hasWater() {
-        return hasWater;
+        return map.hasWater(x, y);
     }
     
     public void setHasWater(boolean hasWater) {
-        this.hasWater = hasWater;
+        map.setHasWater(x, y, hasWater);
     }
     
     public TrafficDirection getTrafficDirection() {
-        return trafficDirection;
+        return map.getTrafficDirection(x, y);
     }
     
     public void setTrafficDirection(TrafficDirection trafficDirection) {
-        this.trafficDirection = trafficDirection;
+        map.setTrafficDirection(x, y, trafficDirection);
     }
     
     public void cycleTrafficDirection() {
-        this.trafficDirection = trafficDirection.next();
+        setTrafficDirection(getTrafficDirection().next());
     }
     
     public boolean isRoad() {
-        return building != null && 
-               (building.getType() == BuildingType.ROAD || 
-                building.getType() == BuildingType.ROUNDABOUT);
+        return map.isRoad(x, y);
     }
     
     public boolean isEmpty() {
-        return building == null && naturalFeature == null && 
-               terrainType != TerrainType.WATER;
+        return map.isEmpty(x, y);
     }
     
     public void demolish() {
-        this.building = null;
-        this.naturalFeature = null;
-        this.zoneType = ZoneType.NONE;
-        this.trafficDirection = TrafficDirection.ALL_DIRECTIONS;
+        map.demolish(x, y);
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Tile)) {
+            return false;
+        }
+        Tile tile = (Tile) other;
+        return map == tile.map && x == tile.x && y == tile.y;
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * x + y;
     }
 }
@@ -0,0 +1,190 @@
+package com.citybuilder.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Record of which tiles of a {@link CityMap} changed, so the systems that
+ * derive state from the map can catch up on just those tiles.
+ *
+ * Every change to a tile's terrain, height, zone, building, natural feature
+ * or traffic direction is appended to a typed log. Each {@link Subscription}
+ * reads the log from where it last stopped, keeps the kinds of change it
+ * asked for and marks those tiles in its own dirty bitset, grouped by
+ * 16x16 chunk; draining then visits every dirty tile once, chunk by chunk,
+ * however often it changed. Log entries are dropped once every
+ * subscription has read them, so a map nobody watches records nothing.
+ */
+public class TileChangeJournal {
+    public static final int CHUNK_SIZE = 16;
+    private static final int WORDS_PER_CHUNK = CHUNK_SIZE * CHUNK_SIZE / 64;
+    
+    /**
+     * What about a tile changed.
+     */
+    public enum Change {
+        TERRAIN, HEIGHT, ZONE, BUILDING, FEATURE, TRAFFIC_DIRECTION
+    }
+    
+    /**
+     * Told about one changed tile.
+     */
+    public interface Handler {
+        void tileChanged(int x, int y);
+    }
+    
+    private final int width;
+    private final int chunksX;
+    private final int chunks;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private int[] log = new int[64]; // Tile index << 3 | change ordinal
+    private int logSize;
+    private long logStart; // Position of log[0] since the map was created
+    
+    TileChangeJournal(int width, int height) {
+        this.width = width;
+        this.chunksX = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.chunks = chunksX * ((height + CHUNK_SIZE - 1) / CHUNK_SIZE);
+    }
+    
+    /**
+     * Start collecting the given kinds of change, from now on.
+     */
+    public synchronized Subscription subscribe(Set<Change> changes) {
+        Subscription subscription = new Subscription(changes, logStart + logSize);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+    
+    public Subscription subscribe(Change first, Change... rest) {
+        return subscribe(EnumSet.of(first, rest));
+    }
+    
+    /**
+     * Changes logged but not yet read by every subscription.
+     */
+    synchronized int getPendingCount() {
+        return logSize;
+    }
+    
+    synchronized void record(int index, Change change) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        if (logSize == log.length) {
+            trim();
+            if (logSize == log.length) {
+                int[] grown = new int[log.length * 2];
+                System.arraycopy(log, 0, grown, 0, logSize);
+                log = grown;
+            }
+        }
+        log[logSize++] = index << 3 | change.ordinal();
+    }
+    
+    // Drop the entries every subscription has read
+    private void trim() {
+        long read = logStart + logSize;
+        for (Subscription subscription : subscriptions) {
+            read = Math.min(read, subscription.position);
+        }
+        int dropped = (int) (read - logStart);
+        if (dropped > 0) {
+            System.arraycopy(log, dropped, log, 0, logSize - dropped);
+            logSize -= dropped;
+            logStart = read;
+        }
+    }
+    
+    /**
+     * One consumer's view of the journal: the tiles changed in the ways it
+     * cares about since it last drained. Drain from one thread at a time,
+     * and cancel a subscription that will not be drained again.
+     */
+    public final class Subscription {
+        private final int mask; // Bit per change ordinal
+        private final long[] dirtyTiles = new long[chunks * WORDS_PER_CHUNK]; // Chunk by chunk, rows of each chunk in order
+        private final long[] dirtyChunks = new long[(chunks + 63) >>> 6];
+        private long position; // Next log entry to read
+        
+        private Subscription(Set<Change> changes, long position) {
+            int bits = 0;
+            for (Change change : changes) {
+                bits |= 1 << change.ordinal();
+            }
+            this.mask = bits;
+            this.position = position;
+        }
+        
+        /**
+         * Hand every tile changed since the last drain to the handler once,
+         * chunk by chunk, and forget them. Returns how many tiles there were.
+         */
+        public int drain(Handler handler) {
+            collect();
+            int count = 0;
+            for (int chunkWord = 0; chunkWord < dirtyChunks.length; chunkWord++) {
+                while (dirtyChunks[chunkWord] != 0) {
+                    int chunk = chunkWord << 6 | Long.numberOfTrailingZeros(dirtyChunks[chunkWord]);
+                    dirtyChunks[chunkWord] &= dirtyChunks[chunkWord] - 1;
+                    int chunkX = chunk % chunksX * CHUNK_SIZE;
+                    int chunkY = chunk / chunksX * CHUNK_SIZE;
+                    for (int word = chunk * WORDS_PER_CHUNK; word < (chunk + 1) * WORDS_PER_CHUNK; word++) {
+                        while (dirtyTiles[word] != 0) {
+                            int bit = (word - chunk * WORDS_PER_CHUNK) << 6 | Long.numberOfTrailingZeros(dirtyTiles[word]);
+                            dirtyTiles[word] &= dirtyTiles[word] - 1;
+                            handler.tileChanged(chunkX + bit % CHUNK_SIZE, chunkY + bit / CHUNK_SIZE);
+                            count++;
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+        
+        /**
+         * Forget the changes so far, e.g. after rebuilding from the whole map.
+         */
+        public void discard() {
+            collect();
+            Arrays.fill(dirtyTiles, 0);
+            Arrays.fill(dirtyChunks, 0);
+        }
+        
+        /**
+         * Stop collecting, so the journal no longer keeps entries for this subscription.
+         */
+        public void cancel() {
+            synchronized (TileChangeJournal.this) {
+                subscriptions.remove(this);
+                trim();
+            }
+        }
+        
+        // Mark the tiles of the log entries not read yet
+        private void collect() {
+            synchronized (TileChangeJournal.this) {
+                for (int i = (int) (position - logStart); i < logSize; i++) {
+                    int entry = log[i];
+                    if ((mask & 1 << (entry & 7)) != 0) {
+                        mark(entry >>> 3);
+                    }
+                }
+                position = logStart + logSize;
+                trim();
+            }
+        }
+        
+        private void mark(int index) {
+            int x = index % width;
+            int y = index / width;
+            int chunk = y / CHUNK_SIZE * chunksX + x / CHUNK_SIZE;
+            int bit = y % CHUNK_SIZE * CHUNK_SIZE + x % CHUNK_SIZE;
+            dirtyTiles[chunk * WORDS_PER_CHUNK + (bit >>> 6)] |= 1L << bit;
+            dirtyChunks[chunk >>> 6] |= 1L << chunk;
+        }
+    }
+}
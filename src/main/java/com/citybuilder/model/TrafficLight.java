@@ -18,6 +18,17 @@ public class TrafficLight {
         this.timer = GREEN_DURATION;
     }
     
+    TrafficLight(int x, int y, TrafficLightState state, int timer) {
+        this.x = x;
+        this.y = y;
+        this.state = state;
+        this.timer = timer;
+    }
+    
+    TrafficLight copy() {
+        return new TrafficLight(x, y, state, timer);
+    }
+    
     public void update() {
         timer--;
         if (timer <= 0) {
@@ -50,6 +61,10 @@ public class TrafficLight {
         return state;
     }
     
+    int getTimer() {
+        return timer;
+    }
+    
     public int getX() {
         return x;
     }
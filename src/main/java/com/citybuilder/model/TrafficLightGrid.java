@@ -0,0 +1,75 @@
+package com.citybuilder.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tile-indexed lookup from map cell to traffic light, so a vehicle can find
+ * the light next to it without scanning every light in the city.
+ */
+public class TrafficLightGrid {
+    private final int width;
+    private final int height;
+    private final int[] cells; // Index into the light list + 1, 0 for none
+    
+    public TrafficLightGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.cells = new int[width * height];
+    }
+    
+    /**
+     * Re-index every light, e.g. after loading or after a light was removed
+     * and the positions of the remaining lights in the list shifted.
+     */
+    public void rebuild(List<TrafficLight> lights) {
+        Arrays.fill(cells, 0);
+        for (int i = 0; i < lights.size(); i++) {
+            TrafficLight light = lights.get(i);
+            put(light.getX(), light.getY(), i);
+        }
+    }
+    
+    public void put(int x, int y, int lightIndex) {
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            int index = y * width + x;
+            // Keep the earliest light if two share a tile
+            if (cells[index] == 0 || cells[index] > lightIndex + 1) {
+                cells[index] = lightIndex + 1;
+            }
+        }
+    }
+    
+    /**
+     * Returns the list index of the light on the given tile, or -1 if none.
+     */
+    public int getLightAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return -1;
+        }
+        return cells[y * width + x] - 1;
+    }
+    
+    /**
+     * Returns the list index of the first light within one tile of (x, y),
+     * or -1 if there is none.
+     */
+    public int findNear(int x, int y) {
+        int minX = Math.max(0, x - 1);
+        int maxX = Math.min(width - 1, x + 1);
+        int minY = Math.max(0, y - 1);
+        int maxY = Math.min(height - 1, y + 1);
+        
+        int best = Integer.MAX_VALUE;
+        for (int ny = minY; ny <= maxY; ny++) {
+            int row = ny * width;
+            for (int nx = minX; nx <= maxX; nx++) {
+                int cell = cells[row + nx];
+                if (cell != 0 && cell < best) {
+                    best = cell;
+                }
+            }
+        }
+        return best == Integer.MAX_VALUE ? -1 : best - 1;
+    }
+}
@@ -2,15 +2,29 @@ package com.citybuilder.model;
 
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Represents a vehicle (NPC car) in the city.
+ *
+ * The path is held as parallel coordinate arrays with a cursor to the next
+ * point, so following a route neither shifts nor allocates. Vehicles move
+ * one tile per step along a single axis, never diagonally. A long trip can
+ * also carry waypoints: coarse stops still to be turned into a path, one
+ * leg at a time, once the current path runs out.
  */
 public class Vehicle {
     private int x, y;
     private Point destination;
-    private List<Point> path;
+    private int[] pathX;
+    private int[] pathY;
+    private int pathLength;
+    private int pathIndex; // Next point to reach
+    private int[] waypointX;
+    private int[] waypointY;
+    private int waypointLength;
+    private int waypointIndex;
     private VehicleType type;
     private int speed;
     private boolean stopped;
@@ -20,32 +34,47 @@ public class Vehicle {
         this.y = y;
         this.type = type;
         this.speed = type.getSpeed();
-        this.path = new ArrayList<>();
+        this.pathX = new int[0];
+        this.pathY = new int[0];
+        this.waypointX = new int[0];
+        this.waypointY = new int[0];
         this.stopped = false;
     }
     
+    Vehicle copy() {
+        Vehicle copy = new Vehicle(x, y, type);
+        copy.destination = destination;
+        if (pathX != null) {
+            copy.setPath(Arrays.copyOfRange(pathX, pathIndex, pathLength),
+                Arrays.copyOfRange(pathY, pathIndex, pathLength), pathLength - pathIndex);
+        }
+        if (waypointX != null) {
+            copy.setWaypoints(Arrays.copyOfRange(waypointX, waypointIndex, waypointLength),
+                Arrays.copyOfRange(waypointY, waypointIndex, waypointLength), waypointLength - waypointIndex);
+        }
+        copy.speed = speed;
+        copy.stopped = stopped;
+        return copy;
+    }
+    
     public void move() {
-        if (stopped || path.isEmpty()) {
+        if (stopped || pathIndex >= pathLength) {
             return;
         }
         
-        Point nextPoint = path.get(0);
+        int nextX = pathX[pathIndex];
+        int nextY = pathY[pathIndex];
         
-        // Calculate intended movement direction
-        int dx = 0, dy = 0;
-        if (x < nextPoint.x) dx = 1;
-        else if (x > nextPoint.x) dx = -1;
-        
-        if (y < nextPoint.y) dy = 1;
-        else if (y > nextPoint.y) dy = -1;
-        
-        // Move towards next point
-        x += dx;
-        y += dy;
+        // Step along one axis at a time so the vehicle stays on the road grid
+        if (x != nextX) {
+            x += x < nextX ? 1 : -1;
+        } else if (y != nextY) {
+            y += y < nextY ? 1 : -1;
+        }
         
         // Check if reached next point
-        if (x == nextPoint.x && y == nextPoint.y) {
-            path.remove(0);
+        if (x == nextX && y == nextY) {
+            pathIndex++;
         }
     }
     
@@ -63,7 +92,147 @@ public class Vehicle {
     }
     
     public void setPath(List<Point> path) {
-        this.path = new ArrayList<>(path);
+        ensurePathCapacity(path.size());
+        for (int i = 0; i < path.size(); i++) {
+            pathX[i] = path.get(i).x;
+            pathY[i] = path.get(i).y;
+        }
+        pathLength = path.size();
+        pathIndex = 0;
+    }
+    
+    /**
+     * Follow the first {@code length} points of the given coordinate arrays,
+     * copied into this vehicle's own path buffer.
+     */
+    public void setPath(int[] xs, int[] ys, int length) {
+        ensurePathCapacity(length);
+        System.arraycopy(xs, 0, pathX, 0, length);
+        System.arraycopy(ys, 0, pathY, 0, length);
+        pathLength = length;
+        pathIndex = 0;
+    }
+    
+    /**
+     * The points still ahead of the vehicle.
+     */
+    List<Point> getPath() {
+        List<Point> remaining = new ArrayList<>();
+        for (int i = pathIndex; i < pathLength; i++) {
+            remaining.add(new Point(pathX[i], pathY[i]));
+        }
+        return remaining;
+    }
+    
+    public boolean hasPath() {
+        return pathIndex < pathLength;
+    }
+    
+    int getPathRemaining() {
+        return pathLength - pathIndex;
+    }
+    
+    /**
+     * Coordinates of the i-th point still ahead, below {@link #getPathRemaining()},
+     * read without building a list.
+     */
+    int getPathX(int i) {
+        return pathX[pathIndex + i];
+    }
+    
+    int getPathY(int i) {
+        return pathY[pathIndex + i];
+    }
+    
+    /**
+     * Replace the remaining waypoints with the first {@code length} points of
+     * the given coordinate arrays, the last being the destination.
+     */
+    public void setWaypoints(int[] xs, int[] ys, int length) {
+        if (waypointX == null || waypointX.length < length) {
+            waypointX = new int[length];
+            waypointY = new int[length];
+        }
+        System.arraycopy(xs, 0, waypointX, 0, length);
+        System.arraycopy(ys, 0, waypointY, 0, length);
+        waypointLength = length;
+        waypointIndex = 0;
+    }
+    
+    void setWaypoints(List<Point> waypoints) {
+        int[] xs = new int[waypoints.size()];
+        int[] ys = new int[waypoints.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = waypoints.get(i).x;
+            ys[i] = waypoints.get(i).y;
+        }
+        setWaypoints(xs, ys, xs.length);
+    }
+    
+    /**
+     * The waypoints not yet reached.
+     */
+    List<Point> getWaypoints() {
+        List<Point> remaining = new ArrayList<>();
+        for (int i = waypointIndex; i < waypointLength; i++) {
+            remaining.add(new Point(waypointX[i], waypointY[i]));
+        }
+        return remaining;
+    }
+    
+    public boolean hasWaypoints() {
+        return waypointIndex < waypointLength;
+    }
+    
+    int getWaypointsRemaining() {
+        return waypointLength - waypointIndex;
+    }
+    
+    /**
+     * Coordinates of the i-th waypoint not yet reached, below
+     * {@link #getWaypointsRemaining()}.
+     */
+    int getWaypointX(int i) {
+        return waypointX[waypointIndex + i];
+    }
+    
+    int getWaypointY(int i) {
+        return waypointY[waypointIndex + i];
+    }
+    
+    public int getWaypointX() {
+        return waypointX[waypointIndex];
+    }
+    
+    public int getWaypointY() {
+        return waypointY[waypointIndex];
+    }
+    
+    /**
+     * Move on to the next waypoint once a path to the current one was set.
+     */
+    public void nextWaypoint() {
+        waypointIndex++;
+    }
+    
+    public void clearWaypoints() {
+        waypointIndex = waypointLength;
+    }
+    
+    public int getDestinationX() {
+        return waypointX[waypointLength - 1];
+    }
+    
+    public int getDestinationY() {
+        return waypointY[waypointLength - 1];
+    }
+    
+    private void ensurePathCapacity(int length) {
+        // Vehicles imported from JSON are created without running the constructor
+        if (pathX == null || pathX.length < length) {
+            pathX = new int[length];
+            pathY = new int[length];
+        }
     }
     
     public void stop() {
@@ -0,0 +1,118 @@
+package com.citybuilder.system;
+
+import java.util.Arrays;
+
+/**
+ * A* shortest routes over a {@link RoadGraph}, with a Manhattan distance
+ * heuristic and one step per edge.
+ *
+ * The open set is a {@link NodeHeap} over primitive arrays, and per-tile scores
+ * live in scratch arrays kept between queries. A search stamp marks which
+ * entries belong to the current query, so once the heap has grown to fit,
+ * a query neither clears nor allocates anything. Not thread-safe.
+ */
+public class AStarRouter {
+    private final RoadGraph graph;
+    private final int width;
+    private final int[] gScore;
+    private final int[] stamp; // 2 * search while open, 2 * search + 1 once closed
+    private final byte[] cameFrom; // Direction of the step into each tile
+    private final NodeHeap heap = new NodeHeap();
+    private int search;
+    
+    public AStarRouter(RoadGraph graph) {
+        this.graph = graph;
+        this.width = graph.getWidth();
+        int size = width * graph.getHeight();
+        this.gScore = new int[size];
+        this.stamp = new int[size];
+        this.cameFrom = new byte[size];
+    }
+    
+    /**
+     * Find a shortest route between two road tiles and write its steps into
+     * {@code route}, ending with the goal. Returns false, leaving the route
+     * empty, if either end is not a road or the goal cannot be reached.
+     */
+    public boolean findRoute(int startX, int startY, int goalX, int goalY, Route route) {
+        route.clear();
+        if (!inBounds(startX, startY) || !inBounds(goalX, goalY)) {
+            return false;
+        }
+        int start = graph.index(startX, startY);
+        int goal = graph.index(goalX, goalY);
+        if (!graph.isRoad(start) || !graph.isRoad(goal) || graph.getComponent(start) != graph.getComponent(goal)) {
+            return false;
+        }
+        if (start == goal) {
+            return true;
+        }
+        
+        int open = nextSearch();
+        int closed = open + 1;
+        heap.clear();
+        stamp[start] = open;
+        gScore[start] = 0;
+        heap.push(start, NodeHeap.key(0, heuristic(start, goalX, goalY)));
+        
+        while (!heap.isEmpty()) {
+            int node = heap.pop();
+            if (stamp[node] == closed) {
+                continue; // Stale entry for a node already expanded with a lower score
+            }
+            stamp[node] = closed;
+            if (node == goal) {
+                buildRoute(start, goal, route);
+                return true;
+            }
+            
+            int g = gScore[node] + 1;
+            int edges = graph.getEdges(node);
+            for (int direction = 0; direction < 4; direction++) {
+                if ((edges & (1 << direction)) == 0) {
+                    continue;
+                }
+                int next = graph.neighbour(node, direction);
+                int nextStamp = stamp[next];
+                if (nextStamp == closed || (nextStamp == open && gScore[next] <= g)) {
+                    continue;
+                }
+                stamp[next] = open;
+                gScore[next] = g;
+                cameFrom[next] = (byte) direction;
+                heap.push(next, NodeHeap.key(g, heuristic(next, goalX, goalY)));
+            }
+        }
+        return false;
+    }
+    
+    public RoadGraph getGraph() {
+        return graph;
+    }
+    
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < graph.getHeight();
+    }
+    
+    private int heuristic(int node, int goalX, int goalY) {
+        return Math.abs(node % width - goalX) + Math.abs(node / width - goalY);
+    }
+    
+    private int nextSearch() {
+        search++;
+        if (search > Integer.MAX_VALUE / 2 - 1) {
+            Arrays.fill(stamp, 0);
+            search = 1;
+        }
+        return search * 2;
+    }
+    
+    private void buildRoute(int start, int goal, Route route) {
+        for (int node = goal; node != start; ) {
+            route.add(node % width, node / width);
+            int direction = cameFrom[node];
+            node -= RoadGraph.dy(direction) * width + RoadGraph.dx(direction);
+        }
+        route.reverse();
+    }
+}
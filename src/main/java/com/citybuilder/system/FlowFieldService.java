@@ -0,0 +1,255 @@
+package com.citybuilder.system;
+
+import com.citybuilder.model.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Shared routes to the destinations most traffic heads for: malls,
+ * factories, offices and the airport.
+ *
+ * For each such destination a flow field is computed once by a search
+ * backwards from its access road over the {@link RoadGraph}. Every edge
+ * costs one step, so a breadth-first search gives the same distances as
+ * Dijkstra. The field keeps one byte per tile: the direction of the next
+ * step towards the destination. A vehicle bound there reads its next step
+ * with a single lookup instead of running its own search.
+ *
+ * Fields are kept least recently used first within a memory budget, and
+ * each remembers the graph version it was built from, so it is rebuilt in
+ * place the next time it is used after a road changed. Not thread-safe.
+ */
+public class FlowFieldService {
+    public static final long DEFAULT_BUDGET_BYTES = 32L * 1024 * 1024;
+    
+    private static final byte NO_ROUTE = -1;
+    private static final byte ARRIVED = 4;
+    private static final int MAX_STEPS_PER_ADVANCE = 16;
+    
+    private final RoadGraph graph;
+    private final int width;
+    private final int height;
+    private final long budgetBytes;
+    private final LinkedHashMap<Integer, FlowField> fields;
+    private final int[] queue;
+    private final int[] stepXs = new int[MAX_STEPS_PER_ADVANCE];
+    private final int[] stepYs = new int[MAX_STEPS_PER_ADVANCE];
+    private int[] destinations = new int[0];
+    
+    public FlowFieldService(RoadGraph graph) {
+        this(graph, DEFAULT_BUDGET_BYTES);
+    }
+    
+    public FlowFieldService(RoadGraph graph, long budgetBytes) {
+        this.graph = graph;
+        this.width = graph.getWidth();
+        this.height = graph.getHeight();
+        this.budgetBytes = budgetBytes;
+        this.fields = new LinkedHashMap<>(16, 0.75f, true);
+        this.queue = new int[width * height];
+    }
+    
+    public static boolean isHotDestination(BuildingType type) {
+        return type == BuildingType.MALL || type == BuildingType.FACTORY ||
+               type == BuildingType.OFFICE || type == BuildingType.AIRPORT;
+    }
+    
+    /**
+     * Find the access road of every hot destination on the map, for
+     * {@link #getDestinationCount()} and {@link #getDestination(int)}.
+     */
+    public void refreshDestinations() {
+        CityMap map = graph.getMap();
+        int count = 0;
+        int[] found = new int[16];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                BuildingType type = map.getBuildingType(x, y);
+                if (type == null || !isHotDestination(type)) {
+                    continue;
+                }
+                int access = accessRoad(x, y);
+                if (access >= 0) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = access;
+                }
+            }
+        }
+        
+        // Neighbouring buildings can share an access road
+        Arrays.sort(found, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || found[i] != found[unique - 1]) {
+                found[unique++] = found[i];
+            }
+        }
+        destinations = Arrays.copyOf(found, unique);
+    }
+    
+    public int getDestinationCount() {
+        return destinations.length;
+    }
+    
+    /**
+     * Tile index of the access road of a hot destination.
+     */
+    public int getDestination(int i) {
+        return destinations[i];
+    }
+    
+    /**
+     * Whether a road tile is the access road of a hot destination, so trips
+     * that end there can follow its flow field.
+     */
+    public boolean isDestination(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height || !graph.isRoad(y * width + x)) {
+            return false;
+        }
+        CityMap map = graph.getMap();
+        for (int direction = 0; direction < 4; direction++) {
+            int bx = x + RoadGraph.dx(direction);
+            int by = y + RoadGraph.dy(direction);
+            if (map.isValidPosition(bx, by)) {
+                BuildingType type = map.getBuildingType(bx, by);
+                if (type != null && isHotDestination(type) && accessRoad(bx, by) == y * width + x) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Direction of the next step from a tile towards a destination, as a
+     * {@link RoadGraph} direction constant, or -1 if the tile is the
+     * destination or cannot reach it.
+     */
+    public int nextStep(int destination, int x, int y) {
+        int step = getField(destination).directions[y * width + x];
+        return step == ARRIVED ? -1 : step;
+    }
+    
+    /**
+     * Whether the destination can be reached from a tile.
+     */
+    public boolean canReach(int destination, int x, int y) {
+        return getField(destination).directions[y * width + x] != NO_ROUTE;
+    }
+    
+    /**
+     * Give a vehicle heading for a hot destination its next steps from the
+     * flow field. Returns false, clearing its waypoints, if the destination
+     * can no longer be reached from where it is.
+     */
+    public boolean advance(Vehicle vehicle) {
+        int destination = vehicle.getDestinationY() * width + vehicle.getDestinationX();
+        byte[] directions = getField(destination).directions;
+        int tile = vehicle.getY() * width + vehicle.getX();
+        if (vehicle.getX() < 0 || vehicle.getY() < 0 || vehicle.getX() >= width || vehicle.getY() >= height ||
+            directions[tile] == NO_ROUTE) {
+            vehicle.clearWaypoints();
+            return false;
+        }
+        
+        int steps = 0;
+        while (steps < MAX_STEPS_PER_ADVANCE && directions[tile] != ARRIVED) {
+            tile = graph.neighbour(tile, directions[tile]);
+            stepXs[steps] = tile % width;
+            stepYs[steps] = tile / width;
+            steps++;
+        }
+        if (directions[tile] == ARRIVED) {
+            vehicle.clearWaypoints();
+        }
+        vehicle.setPath(stepXs, stepYs, steps);
+        return true;
+    }
+    
+    public RoadGraph getGraph() {
+        return graph;
+    }
+    
+    long getUsedBytes() {
+        return (long) fields.size() * width * height;
+    }
+    
+    private FlowField getField(int destination) {
+        FlowField field = fields.get(destination);
+        if (field == null) {
+            field = new FlowField(new byte[width * height]);
+            build(field, destination);
+            fields.put(destination, field);
+            evict();
+        } else if (field.version != graph.getVersion()) {
+            build(field, destination);
+        }
+        return field;
+    }
+    
+    private void evict() {
+        Iterator<FlowField> iterator = fields.values().iterator();
+        while (getUsedBytes() > budgetBytes && fields.size() > 1) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+    
+    // Breadth-first search backwards from the destination along reversed edges
+    private void build(FlowField field, int destination) {
+        byte[] directions = field.directions;
+        Arrays.fill(directions, NO_ROUTE);
+        field.version = graph.getVersion();
+        if (!graph.isRoad(destination)) {
+            return;
+        }
+        
+        directions[destination] = ARRIVED;
+        queue[0] = destination;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int tile = queue[head++];
+            int tx = tile % width;
+            int ty = tile / width;
+            for (int direction = 0; direction < 4; direction++) {
+                // A tile one step against this direction that can drive into this one
+                int x = tx - RoadGraph.dx(direction);
+                int y = ty - RoadGraph.dy(direction);
+                if (x < 0 || y < 0 || x >= width || y >= height) {
+                    continue;
+                }
+                int previous = y * width + x;
+                if (directions[previous] == NO_ROUTE && graph.hasEdge(previous, direction)) {
+                    directions[previous] = (byte) direction;
+                    queue[tail++] = previous;
+                }
+            }
+        }
+    }
+    
+    // First road next to a building, checked north, east, south then west
+    private int accessRoad(int x, int y) {
+        for (int direction = 0; direction < 4; direction++) {
+            int rx = x + RoadGraph.dx(direction);
+            int ry = y + RoadGraph.dy(direction);
+            if (rx >= 0 && ry >= 0 && rx < width && ry < height && graph.isRoad(ry * width + rx)) {
+                return ry * width + rx;
+            }
+        }
+        return -1;
+    }
+    
+    private static class FlowField {
+        final byte[] directions;
+        int version;
+        
+        FlowField(byte[] directions) {
+            this.directions = directions;
+        }
+    }
+}
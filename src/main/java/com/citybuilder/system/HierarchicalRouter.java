@@ -0,0 +1,594 @@
+package com.citybuilder.system;
+
+import com.citybuilder.model.Vehicle;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical (HPA*) routing over a {@link RoadGraph}, for maps where a
+ * flat A* per trip is too slow.
+ *
+ * The map is split into square clusters. Where roads cross the border
+ * between two clusters, one crossing per direction of each stretch of
+ * adjacent crossings becomes a pair of entrances, and each cluster caches
+ * the driving distance between its entrances, found by a search confined
+ * to the cluster. A trip is planned on this small abstract graph as a list
+ * of entrances to pass through; {@link #advance} turns the next leg into a
+ * tile path only when the vehicle gets there.
+ *
+ * Road edits mark just the cluster they fall in as stale. Stale clusters
+ * are brought up to date before the next query, together with any
+ * neighbour whose entrances changed. Plans already handed out may then
+ * fail to refine, in which case the vehicle is routed again from where it
+ * is. Routes are close to shortest, not always shortest. Not thread-safe.
+ */
+public class HierarchicalRouter implements RoadGraph.Listener {
+    public static final int CLUSTER_SIZE = 16;
+    
+    private static final int UNREACHED = -1;
+    private static final int[] NO_TILES = new int[0];
+    
+    private final RoadGraph graph;
+    private final int width;
+    private final int height;
+    private final int clustersX;
+    private final int clustersY;
+    
+    // Abstract graph, per cluster
+    private final int[][] eastBorder; // Entrance pairs (inside, east neighbour) on the east edge
+    private final int[][] southBorder; // Entrance pairs (inside, south neighbour) on the south edge
+    private final int[][] entrances; // Entrance tile indices
+    private final int[][] distances; // k * k driving distances between entrances, UNREACHED if none
+    private final int[] slot; // Position of each tile in its cluster's entrances, or -1
+    private final boolean[] stale;
+    private int[] staleClusters = new int[64];
+    private int staleCount;
+    private final boolean[] touched;
+    private int[] touchedClusters = new int[64];
+    private int touchedCount;
+    
+    // Abstract search scratch, indexed by tile
+    private final int[] gScore;
+    private final int[] stamp; // 2 * search while open, 2 * search + 1 once closed
+    private final int[] parent;
+    private final NodeHeap heap = new NodeHeap();
+    private int search;
+    private int[] startDistance = new int[16];
+    private int[] goalDistance = new int[16];
+    
+    // Search confined to one cluster, indexed by position inside the cluster
+    private final int[] localDistance = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final byte[] localFrom = new byte[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final int[] localQueue = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    private final int[] localPath = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    
+    private final Route plan = new Route();
+    private final Route legs = new Route();
+    
+    public HierarchicalRouter(RoadGraph graph) {
+        this.graph = graph;
+        this.width = graph.getWidth();
+        this.height = graph.getHeight();
+        this.clustersX = (width + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.clustersY = (height + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        
+        int clusters = clustersX * clustersY;
+        this.eastBorder = new int[clusters][];
+        this.southBorder = new int[clusters][];
+        this.entrances = new int[clusters][];
+        this.distances = new int[clusters][];
+        this.stale = new boolean[clusters];
+        this.touched = new boolean[clusters];
+        Arrays.fill(eastBorder, NO_TILES);
+        Arrays.fill(southBorder, NO_TILES);
+        Arrays.fill(entrances, NO_TILES);
+        Arrays.fill(distances, NO_TILES);
+        
+        int size = width * height;
+        this.slot = new int[size];
+        this.gScore = new int[size];
+        this.stamp = new int[size];
+        this.parent = new int[size];
+        Arrays.fill(slot, -1);
+        
+        graphRebuilt();
+        graph.addListener(this);
+    }
+    
+    @Override
+    public void roadChanged(int x, int y) {
+        markStale(clusterOf(y * width + x));
+    }
+    
+    @Override
+    public void graphRebuilt() {
+        for (int cluster = 0; cluster < stale.length; cluster++) {
+            markStale(cluster);
+        }
+    }
+    
+    /**
+     * Plan a trip from the vehicle's tile to (goalX, goalY) and hand it the
+     * first leg. Returns false, leaving the vehicle untouched, if there is
+     * no way to get there.
+     */
+    public boolean planTrip(Vehicle vehicle, int goalX, int goalY) {
+        if (!findRoute(vehicle.getX(), vehicle.getY(), goalX, goalY, plan) || plan.getLength() == 0) {
+            return false;
+        }
+        vehicle.setWaypoints(plan.getXs(), plan.getYs(), plan.getLength());
+        return advance(vehicle);
+    }
+    
+    /**
+     * Give a vehicle whose path has run out the tiles to its next waypoints,
+     * up to and including the next leg through a cluster. If the roads
+     * changed since the trip was planned, it is planned again from where the
+     * vehicle is; returns false, clearing the waypoints, if the destination
+     * can no longer be reached.
+     */
+    public boolean advance(Vehicle vehicle) {
+        boolean replanned = false;
+        legs.clear();
+        int x = vehicle.getX();
+        int y = vehicle.getY();
+        while (vehicle.hasWaypoints()) {
+            int waypointX = vehicle.getWaypointX();
+            int waypointY = vehicle.getWaypointY();
+            int before = legs.getLength();
+            if (!appendLeg(x, y, waypointX, waypointY, legs)) {
+                if (replanned || !findRoute(vehicle.getX(), vehicle.getY(),
+                        vehicle.getDestinationX(), vehicle.getDestinationY(), plan) || plan.getLength() == 0) {
+                    vehicle.clearWaypoints();
+                    return false;
+                }
+                replanned = true;
+                vehicle.setWaypoints(plan.getXs(), plan.getYs(), plan.getLength());
+                legs.clear();
+                x = vehicle.getX();
+                y = vehicle.getY();
+                continue;
+            }
+            
+            vehicle.nextWaypoint();
+            x = waypointX;
+            y = waypointY;
+            if (legs.getLength() - before > 1) {
+                break; // Crossed a cluster; the rest waits until the vehicle gets here
+            }
+        }
+        vehicle.setPath(legs.getXs(), legs.getYs(), legs.getLength());
+        return true;
+    }
+    
+    /**
+     * Plan on the abstract graph and write the waypoints into {@code route}:
+     * the entrances to pass through, ending with the goal. Consecutive
+     * waypoints are either neighbours or in the same cluster. Returns false,
+     * leaving the route empty, if either end is not a road or the goal cannot
+     * be reached.
+     */
+    public boolean findRoute(int startX, int startY, int goalX, int goalY, Route route) {
+        route.clear();
+        if (!inBounds(startX, startY) || !inBounds(goalX, goalY)) {
+            return false;
+        }
+        int start = startY * width + startX;
+        int goal = goalY * width + goalX;
+        if (!graph.isRoad(start) || !graph.isRoad(goal) || graph.getComponent(start) != graph.getComponent(goal)) {
+            return false;
+        }
+        if (start == goal) {
+            return true;
+        }
+        update();
+        
+        int startCluster = clusterOf(start);
+        int goalCluster = clusterOf(goal);
+        searchCluster(startCluster, start, false);
+        if (startCluster == goalCluster && localDistance[localIndex(goal)] != UNREACHED) {
+            route.add(goalX, goalY);
+            return true;
+        }
+        
+        // Connect the start and goal to the entrances of their clusters
+        int[] startEntrances = entrances[startCluster];
+        startDistance = fit(startDistance, startEntrances.length);
+        for (int i = 0; i < startEntrances.length; i++) {
+            startDistance[i] = localDistance[localIndex(startEntrances[i])];
+        }
+        searchCluster(goalCluster, goal, true);
+        int[] goalEntrances = entrances[goalCluster];
+        goalDistance = fit(goalDistance, goalEntrances.length);
+        for (int i = 0; i < goalEntrances.length; i++) {
+            goalDistance[i] = localDistance[localIndex(goalEntrances[i])];
+        }
+        
+        int open = nextSearch();
+        int closed = open + 1;
+        heap.clear();
+        stamp[start] = open;
+        gScore[start] = 0;
+        heap.push(start, NodeHeap.key(0, heuristic(start, goalX, goalY)));
+        
+        while (!heap.isEmpty()) {
+            int node = heap.pop();
+            if (stamp[node] == closed) {
+                continue;
+            }
+            stamp[node] = closed;
+            if (node == goal) {
+                for (int tile = goal; tile != start; tile = parent[tile]) {
+                    route.add(tile % width, tile / width);
+                }
+                route.reverse();
+                return true;
+            }
+            
+            int g = gScore[node];
+            int cluster = clusterOf(node);
+            int[] clusterEntrances = entrances[cluster];
+            int i = slot[node];
+            if (node == start) {
+                for (int j = 0; j < startEntrances.length; j++) {
+                    if (startDistance[j] > 0) {
+                        relax(node, startEntrances[j], g + startDistance[j], open, closed, goalX, goalY);
+                    }
+                }
+            } else {
+                int k = clusterEntrances.length;
+                int[] clusterDistances = distances[cluster];
+                for (int j = 0; j < k; j++) {
+                    int distance = clusterDistances[i * k + j];
+                    if (j != i && distance != UNREACHED) {
+                        relax(node, clusterEntrances[j], g + distance, open, closed, goalX, goalY);
+                    }
+                }
+            }
+            if (i < 0) {
+                continue;
+            }
+            
+            // Across cluster borders
+            int edges = graph.getEdges(node);
+            for (int direction = 0; direction < 4; direction++) {
+                if ((edges & (1 << direction)) != 0) {
+                    int next = graph.neighbour(node, direction);
+                    if (slot[next] >= 0 && clusterOf(next) != cluster) {
+                        relax(node, next, g + 1, open, closed, goalX, goalY);
+                    }
+                }
+            }
+            if (cluster == goalCluster && goalDistance[i] != UNREACHED) {
+                relax(node, goal, g + goalDistance[i], open, closed, goalX, goalY);
+            }
+        }
+        return false;
+    }
+    
+    public RoadGraph getGraph() {
+        return graph;
+    }
+    
+    private void relax(int from, int node, int g, int open, int closed, int goalX, int goalY) {
+        int nodeStamp = stamp[node];
+        if (nodeStamp == closed || (nodeStamp == open && gScore[node] <= g)) {
+            return;
+        }
+        stamp[node] = open;
+        gScore[node] = g;
+        parent[node] = from;
+        heap.push(node, NodeHeap.key(g, heuristic(node, goalX, goalY)));
+    }
+    
+    /**
+     * Append the tiles from (x, y) to an adjacent tile or to one in the same
+     * cluster. Returns false if the roads no longer allow it.
+     */
+    private boolean appendLeg(int x, int y, int toX, int toY, Route route) {
+        int from = y * width + x;
+        int to = toY * width + toX;
+        if (from == to) {
+            return true;
+        }
+        
+        int cluster = clusterOf(from);
+        if (clusterOf(to) != cluster) {
+            for (int direction = 0; direction < 4; direction++) {
+                if (graph.hasEdge(from, direction) && graph.neighbour(from, direction) == to) {
+                    route.add(toX, toY);
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        searchCluster(cluster, from, false);
+        int local = localIndex(to);
+        int length = localDistance[local];
+        if (length == UNREACHED) {
+            return false;
+        }
+        
+        // Walk back from the target, then append in driving order
+        int tile = to;
+        for (int step = length - 1; step >= 0; step--) {
+            localPath[step] = tile;
+            int direction = localFrom[localIndex(tile)];
+            tile -= RoadGraph.dy(direction) * width + RoadGraph.dx(direction);
+        }
+        for (int step = 0; step < length; step++) {
+            route.add(localPath[step] % width, localPath[step] / width);
+        }
+        return true;
+    }
+    
+    /**
+     * Breadth-first search from a tile that never leaves its cluster, along
+     * the edges or, in reverse, against them. Fills {@link #localDistance}
+     * and, going forward, {@link #localFrom}.
+     */
+    private void searchCluster(int cluster, int source, boolean reverse) {
+        int x0 = (cluster % clustersX) * CLUSTER_SIZE;
+        int y0 = (cluster / clustersX) * CLUSTER_SIZE;
+        int x1 = Math.min(x0 + CLUSTER_SIZE, width);
+        int y1 = Math.min(y0 + CLUSTER_SIZE, height);
+        Arrays.fill(localDistance, UNREACHED);
+        
+        localDistance[localIndex(source)] = 0;
+        localQueue[0] = source;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int tile = localQueue[head++];
+            int distance = localDistance[localIndex(tile)] + 1;
+            for (int direction = 0; direction < 4; direction++) {
+                // Going in reverse, look for the tile that drives into this one
+                int step = reverse ? (direction + 2) & 3 : direction;
+                int nx = tile % width + RoadGraph.dx(step);
+                int ny = tile / width + RoadGraph.dy(step);
+                if (nx < x0 || nx >= x1 || ny < y0 || ny >= y1) {
+                    continue;
+                }
+                int next = ny * width + nx;
+                if (!graph.hasEdge(reverse ? next : tile, direction)) {
+                    continue;
+                }
+                
+                int local = localIndex(next);
+                if (localDistance[local] == UNREACHED) {
+                    localDistance[local] = distance;
+                    localFrom[local] = (byte) direction;
+                    localQueue[tail++] = next;
+                }
+            }
+        }
+    }
+    
+    private void markStale(int cluster) {
+        if (!stale[cluster]) {
+            stale[cluster] = true;
+            staleClusters = fit(staleClusters, staleCount + 1);
+            staleClusters[staleCount++] = cluster;
+        }
+    }
+    
+    /**
+     * Bring stale clusters up to date: their borders first, then the
+     * entrances and distances of every cluster those borders touch.
+     */
+    private void update() {
+        if (staleCount == 0) {
+            return;
+        }
+        
+        for (int i = 0; i < staleCount; i++) {
+            int cluster = staleClusters[i];
+            int cx = cluster % clustersX;
+            int cy = cluster / clustersX;
+            eastBorder[cluster] = scanBorder(cx, cy, true);
+            southBorder[cluster] = scanBorder(cx, cy, false);
+            touch(cluster);
+            if (cx > 0) {
+                eastBorder[cluster - 1] = scanBorder(cx - 1, cy, true);
+                touch(cluster - 1);
+            }
+            if (cy > 0) {
+                southBorder[cluster - clustersX] = scanBorder(cx, cy - 1, false);
+                touch(cluster - clustersX);
+            }
+            if (cx + 1 < clustersX) {
+                touch(cluster + 1);
+            }
+            if (cy + 1 < clustersY) {
+                touch(cluster + clustersX);
+            }
+        }
+        
+        for (int i = 0; i < touchedCount; i++) {
+            int cluster = touchedClusters[i];
+            if (collectEntrances(cluster) || stale[cluster]) {
+                computeDistances(cluster);
+            }
+            touched[cluster] = false;
+        }
+        for (int i = 0; i < staleCount; i++) {
+            stale[staleClusters[i]] = false;
+        }
+        staleCount = 0;
+        touchedCount = 0;
+    }
+    
+    private void touch(int cluster) {
+        if (!touched[cluster]) {
+            touched[cluster] = true;
+            touchedClusters = fit(touchedClusters, touchedCount + 1);
+            touchedClusters[touchedCount++] = cluster;
+        }
+    }
+    
+    /**
+     * Find the entrance pairs on the east or south edge of a cluster. Each
+     * stretch of adjacent crossings gets the crossing nearest its middle
+     * for each direction of travel. A stretch only continues while both
+     * sides can be driven along the border both ways, so every crossing in
+     * it can reach the chosen ones without leaving its cluster.
+     */
+    private int[] scanBorder(int cx, int cy, boolean east) {
+        if (east ? cx + 1 >= clustersX : cy + 1 >= clustersY) {
+            return NO_TILES;
+        }
+        
+        int forward = east ? RoadGraph.EAST : RoadGraph.SOUTH;
+        int backward = east ? RoadGraph.WEST : RoadGraph.NORTH;
+        int length = east ? Math.min(CLUSTER_SIZE, height - cy * CLUSTER_SIZE) : Math.min(CLUSTER_SIZE, width - cx * CLUSTER_SIZE);
+        int along = east ? RoadGraph.SOUTH : RoadGraph.EAST;
+        int[] pairs = NO_TILES;
+        int count = 0;
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean crossing = false;
+            boolean linked = false;
+            if (i < length) {
+                int inside = borderTile(cx, cy, east, i);
+                int outside = graph.neighbour(inside, forward);
+                crossing = graph.hasEdge(inside, forward) || graph.hasEdge(outside, backward);
+                linked = i > 0 && isTwoWay(graph.neighbour(inside, (along + 2) & 3), along) &&
+                    isTwoWay(graph.neighbour(outside, (along + 2) & 3), along);
+            }
+            
+            if (runStart >= 0 && !(crossing && linked)) {
+                int first = runStart;
+                int last = i - 1;
+                int middle = (first + last) / 2;
+                int out = pickCrossing(cx, cy, east, first, last, middle, forward, true);
+                int in = pickCrossing(cx, cy, east, first, last, middle, backward, false);
+                pairs = fit(pairs, count + 4);
+                if (out >= 0) {
+                    pairs[count++] = out;
+                    pairs[count++] = graph.neighbour(out, forward);
+                }
+                if (in >= 0 && in != out) {
+                    pairs[count++] = in;
+                    pairs[count++] = graph.neighbour(in, forward);
+                }
+                runStart = -1;
+            }
+            if (crossing && runStart < 0) {
+                runStart = i;
+            }
+        }
+        return Arrays.copyOf(pairs, count);
+    }
+    
+    // Inside tile of the crossing nearest the middle of a stretch that can be driven in one direction
+    private int pickCrossing(int cx, int cy, boolean east, int first, int last, int middle, int direction,
+                             boolean fromInside) {
+        for (int offset = 0; middle - offset >= first || middle + offset <= last; offset++) {
+            if (middle - offset >= first && canCross(cx, cy, east, middle - offset, direction, fromInside)) {
+                return borderTile(cx, cy, east, middle - offset);
+            }
+            if (middle + offset <= last && canCross(cx, cy, east, middle + offset, direction, fromInside)) {
+                return borderTile(cx, cy, east, middle + offset);
+            }
+        }
+        return -1;
+    }
+    
+    private boolean canCross(int cx, int cy, boolean east, int i, int direction, boolean fromInside) {
+        int inside = borderTile(cx, cy, east, i);
+        int tile = fromInside ? inside : graph.neighbour(inside, east ? RoadGraph.EAST : RoadGraph.SOUTH);
+        return graph.hasEdge(tile, direction);
+    }
+    
+    // Whether the tile and the next one in the given direction connect both ways
+    private boolean isTwoWay(int tile, int direction) {
+        return graph.hasEdge(tile, direction) && graph.hasEdge(graph.neighbour(tile, direction), (direction + 2) & 3);
+    }
+    
+    private int borderTile(int cx, int cy, boolean east, int i) {
+        if (east) {
+            return (cy * CLUSTER_SIZE + i) * width + cx * CLUSTER_SIZE + CLUSTER_SIZE - 1;
+        }
+        return (cy * CLUSTER_SIZE + CLUSTER_SIZE - 1) * width + cx * CLUSTER_SIZE + i;
+    }
+    
+    /**
+     * Gather a cluster's entrances from the four borders around it.
+     * Returns whether they changed.
+     */
+    private boolean collectEntrances(int cluster) {
+        int cx = cluster % clustersX;
+        int cy = cluster / clustersX;
+        int[] previous = entrances[cluster];
+        for (int tile : previous) {
+            slot[tile] = -1;
+        }
+        
+        int[] list = new int[previous.length + 8];
+        int count = 0;
+        int[][] sources = {
+            eastBorder[cluster], southBorder[cluster],
+            cx > 0 ? eastBorder[cluster - 1] : NO_TILES,
+            cy > 0 ? southBorder[cluster - clustersX] : NO_TILES
+        };
+        for (int s = 0; s < sources.length; s++) {
+            int side = s < 2 ? 0 : 1; // Our tile is first in our own pairs, second in a neighbour's
+            int[] pairs = sources[s];
+            for (int p = side; p < pairs.length; p += 2) {
+                int tile = pairs[p];
+                if (slot[tile] < 0) {
+                    list = fit(list, count + 1);
+                    slot[tile] = count;
+                    list[count++] = tile;
+                }
+            }
+        }
+        
+        int[] current = Arrays.copyOf(list, count);
+        entrances[cluster] = current;
+        return !Arrays.equals(previous, current);
+    }
+    
+    private void computeDistances(int cluster) {
+        int[] clusterEntrances = entrances[cluster];
+        int k = clusterEntrances.length;
+        int[] clusterDistances = new int[k * k];
+        for (int i = 0; i < k; i++) {
+            searchCluster(cluster, clusterEntrances[i], false);
+            for (int j = 0; j < k; j++) {
+                clusterDistances[i * k + j] = localDistance[localIndex(clusterEntrances[j])];
+            }
+        }
+        distances[cluster] = clusterDistances;
+    }
+    
+    private int clusterOf(int tile) {
+        return (tile / width / CLUSTER_SIZE) * clustersX + (tile % width) / CLUSTER_SIZE;
+    }
+    
+    private int localIndex(int tile) {
+        return ((tile / width) % CLUSTER_SIZE) * CLUSTER_SIZE + (tile % width) % CLUSTER_SIZE;
+    }
+    
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+    
+    private int heuristic(int tile, int goalX, int goalY) {
+        return Math.abs(tile % width - goalX) + Math.abs(tile / width - goalY);
+    }
+    
+    private int nextSearch() {
+        search++;
+        if (search > Integer.MAX_VALUE / 2 - 1) {
+            Arrays.fill(stamp, 0);
+            search = 1;
+        }
+        return search * 2;
+    }
+    
+    private static int[] fit(int[] array, int length) {
+        return array.length >= length ? array : Arrays.copyOf(array, Math.max(length, array.length * 2));
+    }
+}
@@ -0,0 +1,84 @@
+package com.citybuilder.system;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of node indices keyed by a long, over primitive arrays.
+ * The arrays only grow, so a heap reused across searches stops allocating
+ * once it has grown to fit. Nodes may be pushed more than once; callers
+ * skip stale entries when they are popped.
+ */
+class NodeHeap {
+    private int[] nodes = new int[256];
+    private long[] keys = new long[256];
+    private int size;
+    
+    void clear() {
+        size = 0;
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    void push(int node, long key) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            nodes[i] = nodes[parent];
+            keys[i] = keys[parent];
+            i = parent;
+        }
+        nodes[i] = node;
+        keys[i] = key;
+    }
+    
+    /**
+     * Remove and return the node with the lowest key.
+     */
+    int pop() {
+        int top = nodes[0];
+        int last = --size;
+        if (last == 0) {
+            return top;
+        }
+        
+        int node = nodes[last];
+        long key = keys[last];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= last) {
+                break;
+            }
+            if (child + 1 < last && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            nodes[i] = nodes[child];
+            keys[i] = keys[child];
+            i = child;
+        }
+        nodes[i] = node;
+        keys[i] = key;
+        return top;
+    }
+    
+    /**
+     * Key ordering by f = g + h, and among equal f the deepest node first,
+     * which keeps grid searches from spreading across ties.
+     */
+    static long key(int g, int h) {
+        return ((long) (g + h) << 32) - g;
+    }
+}
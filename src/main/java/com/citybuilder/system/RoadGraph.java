@@ -0,0 +1,243 @@
+package com.citybuilder.system;
+
+import com.citybuilder.model.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Directed graph of the road network, compiled from the map.
+ *
+ * Each tile keeps one byte: a flag for whether it is a road and a bit per
+ * neighbour it can be driven to. A vehicle may enter a neighbouring road
+ * tile when that tile's {@link TrafficDirection} allows moving in that
+ * direction, the same rule as {@link Vehicle#canMoveToTile}. Building,
+ * demolishing or turning a road only recompiles that tile and its
+ * neighbours, and listeners only hear about edits that changed an edge.
+ */
+public class RoadGraph {
+    /**
+     * Told when the graph changes, to drop derived data.
+     */
+    public interface Listener {
+        /**
+         * Edges touching the tile at (x, y) changed.
+         */
+        void roadChanged(int x, int y);
+        
+        void graphRebuilt();
+    }
+    
+    public static final int NORTH = 0;
+    public static final int EAST = 1;
+    public static final int SOUTH = 2;
+    public static final int WEST = 3;
+    
+    private static final int ROAD = 1 << 4;
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {-1, 0, 1, 0};
+    private static final int[] ENTRY_MASKS = buildEntryMasks();
+    
+    private final CityMap map;
+    private final int width;
+    private final int height;
+    private final byte[] edges; // Indexed by y * width + x
+    private final List<Listener> listeners = new ArrayList<>();
+    private int version;
+    private int[] components; // Weakly connected road network of each tile, 0 for none
+    private int[] componentQueue;
+    private int componentsVersion = -1;
+    
+    public RoadGraph(CityMap map) {
+        this.map = map;
+        this.width = map.getWidth();
+        this.height = map.getHeight();
+        this.edges = new byte[width * height];
+        rebuild();
+    }
+    
+    /**
+     * Recompile the whole map.
+     */
+    public void rebuild() {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                compile(x, y);
+            }
+        }
+        version++;
+        for (Listener listener : listeners) {
+            listener.graphRebuilt();
+        }
+    }
+    
+    /**
+     * Recompile the edges touching a tile whose building or traffic direction changed.
+     */
+    public void tileChanged(int x, int y) {
+        if (!map.isValidPosition(x, y)) {
+            return;
+        }
+        
+        boolean changed = compile(x, y);
+        for (int direction = 0; direction < 4; direction++) {
+            int nx = x + DX[direction];
+            int ny = y + DY[direction];
+            if (map.isValidPosition(nx, ny)) {
+                changed |= compile(nx, ny);
+            }
+        }
+        
+        if (changed) {
+            version++;
+            for (Listener listener : listeners) {
+                listener.roadChanged(x, y);
+            }
+        }
+    }
+    
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+    
+    public boolean isRoad(int index) {
+        return (edges[index] & ROAD) != 0;
+    }
+    
+    /**
+     * Bit mask of the directions that can be driven from a tile, by direction constant.
+     */
+    public int getEdges(int index) {
+        return edges[index] & 0xF;
+    }
+    
+    public boolean hasEdge(int index, int direction) {
+        return (edges[index] & (1 << direction)) != 0;
+    }
+    
+    /**
+     * Index of the tile one step away; only meaningful along an existing edge.
+     */
+    public int neighbour(int index, int direction) {
+        return index + DY[direction] * width + DX[direction];
+    }
+    
+    /**
+     * Label of the road network a tile belongs to, ignoring one-way rules,
+     * or 0 if it is not a road. Tiles with different labels can never reach
+     * each other, which lets routers give up on a trip without searching.
+     * Labels are recomputed on the first call after a change.
+     */
+    public int getComponent(int index) {
+        if (componentsVersion != version) {
+            labelComponents();
+        }
+        return components[index];
+    }
+    
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    public CityMap getMap() {
+        return map;
+    }
+    
+    /**
+     * Incremented whenever an edge changes, so derived data can tell when it is stale.
+     */
+    public int getVersion() {
+        return version;
+    }
+    
+    public static int dx(int direction) {
+        return DX[direction];
+    }
+    
+    public static int dy(int direction) {
+        return DY[direction];
+    }
+    
+    private void labelComponents() {
+        if (components == null) {
+            components = new int[edges.length];
+            componentQueue = new int[edges.length];
+        } else {
+            Arrays.fill(components, 0);
+        }
+        
+        int label = 0;
+        for (int seed = 0; seed < edges.length; seed++) {
+            if (components[seed] != 0 || !isRoad(seed)) {
+                continue;
+            }
+            label++;
+            components[seed] = label;
+            componentQueue[0] = seed;
+            int head = 0;
+            int tail = 1;
+            while (head < tail) {
+                int tile = componentQueue[head++];
+                for (int direction = 0; direction < 4; direction++) {
+                    int x = tile % width + DX[direction];
+                    int y = tile / width + DY[direction];
+                    if (x < 0 || y < 0 || x >= width || y >= height) {
+                        continue;
+                    }
+                    int next = y * width + x;
+                    if (components[next] == 0 &&
+                        (hasEdge(tile, direction) || hasEdge(next, (direction + 2) & 3))) {
+                        components[next] = label;
+                        componentQueue[tail++] = next;
+                    }
+                }
+            }
+        }
+        componentsVersion = version;
+    }
+    
+    // Returns whether the tile's byte changed
+    private boolean compile(int x, int y) {
+        int index = y * width + x;
+        byte previous = edges[index];
+        if (!map.isRoad(x, y)) {
+            edges[index] = 0;
+            return previous != 0;
+        }
+        
+        int mask = ROAD;
+        for (int direction = 0; direction < 4; direction++) {
+            int nx = x + DX[direction];
+            int ny = y + DY[direction];
+            if (map.isValidPosition(nx, ny) && map.isRoad(nx, ny) &&
+                (ENTRY_MASKS[map.getTrafficDirection(nx, ny).ordinal()] & (1 << direction)) != 0) {
+                mask |= 1 << direction;
+            }
+        }
+        edges[index] = (byte) mask;
+        return previous != (byte) mask;
+    }
+    
+    // Directions in which each traffic direction can be entered
+    private static int[] buildEntryMasks() {
+        TrafficDirection[] directions = TrafficDirection.values();
+        int[] masks = new int[directions.length];
+        for (TrafficDirection trafficDirection : directions) {
+            for (int direction = 0; direction < 4; direction++) {
+                if (trafficDirection.allowsDirection(DX[direction], DY[direction])) {
+                    masks[trafficDirection.ordinal()] |= 1 << direction;
+                }
+            }
+        }
+        return masks;
+    }
+}
@@ -0,0 +1,65 @@
+package com.citybuilder.system;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer for the tiles of a route, excluding its starting tile.
+ * The backing arrays only grow, so filling the same route again does not
+ * allocate once it is large enough.
+ */
+public class Route {
+    private int[] xs = new int[64];
+    private int[] ys = new int[64];
+    private int length;
+    
+    public void clear() {
+        length = 0;
+    }
+    
+    public void add(int x, int y) {
+        if (length == xs.length) {
+            xs = Arrays.copyOf(xs, length * 2);
+            ys = Arrays.copyOf(ys, length * 2);
+        }
+        xs[length] = x;
+        ys[length] = y;
+        length++;
+    }
+    
+    public void reverse() {
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            int x = xs[i];
+            xs[i] = xs[j];
+            xs[j] = x;
+            int y = ys[i];
+            ys[i] = ys[j];
+            ys[j] = y;
+        }
+    }
+    
+    public int getLength() {
+        return length;
+    }
+    
+    public int getX(int i) {
+        return xs[i];
+    }
+    
+    public int getY(int i) {
+        return ys[i];
+    }
+    
+    /**
+     * Backing array of x coordinates; only the first {@link #getLength()} entries are used.
+     */
+    public int[] getXs() {
+        return xs;
+    }
+    
+    /**
+     * Backing array of y coordinates; only the first {@link #getLength()} entries are used.
+     */
+    public int[] getYs() {
+        return ys;
+    }
+}
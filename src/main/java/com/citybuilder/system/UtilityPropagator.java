@@ -0,0 +1,191 @@
+package com.citybuilder.system;
+
+import com.citybuilder.model.*;
+
+import java.util.Arrays;
+
+/**
+ * Multi-source breadth-first propagation shared by the utility systems.
+ * All sources are seeded into a single frontier, so a full recompute visits
+ * each tile at most once no matter how many sources the map contains.
+ *
+ * The distance field is kept between calls so that a single tile edit can be
+ * repaired locally. Distances are capped at the maximum range, so an edit can
+ * only change tiles within that many steps of it; {@link #repair} recomputes
+ * just that window, seeded from the unchanged distances around its border.
+ */
+public class UtilityPropagator {
+    public static final int UNREACHED = Integer.MAX_VALUE;
+
+    /**
+     * Decides which tiles feed the network.
+     */
+    public interface SourceFilter {
+        boolean isSource(CityMap map, int x, int y);
+    }
+
+    /**
+     * Receives the coverage of every tile whose distance was recomputed.
+     */
+    public interface CoverageWriter {
+        void setCovered(CityMap map, int x, int y, boolean covered);
+    }
+
+    private final int maxRange;
+    private final SourceFilter sourceFilter;
+    private final CoverageWriter coverageWriter;
+    private int width;
+    private int height;
+    private int[] distance; // Indexed by y * width + x
+    private int[] frontier;
+    private int[] seeds;
+    private final int[] levelStart;
+
+    public UtilityPropagator(int maxRange, SourceFilter sourceFilter, CoverageWriter coverageWriter) {
+        this.maxRange = maxRange;
+        this.sourceFilter = sourceFilter;
+        this.coverageWriter = coverageWriter;
+        this.levelStart = new int[maxRange + 2];
+    }
+
+    /**
+     * Recompute the distance to the nearest source for every tile.
+     * Tiles farther than the maximum range are left at {@link #UNREACHED}.
+     */
+    public int[] propagate(CityMap map) {
+        if (distance == null || map.getWidth() != width || map.getHeight() != height) {
+            width = map.getWidth();
+            height = map.getHeight();
+            distance = new int[width * height];
+            frontier = new int[width * height];
+            seeds = new int[width * height];
+        }
+
+        recomputeRegion(map, 0, 0, width - 1, height - 1);
+        return distance;
+    }
+
+    /**
+     * Bring the distance field up to date after the tile at (x, y) changed,
+     * touching only the tiles whose distance could depend on it.
+     */
+    public void repair(CityMap map, int x, int y) {
+        if (distance == null || map.getWidth() != width || map.getHeight() != height) {
+            propagate(map);
+            return;
+        }
+
+        recomputeRegion(map,
+            Math.max(0, x - maxRange), Math.max(0, y - maxRange),
+            Math.min(width - 1, x + maxRange), Math.min(height - 1, y + maxRange));
+    }
+
+    private void recomputeRegion(CityMap map, int minX, int minY, int maxX, int maxY) {
+        for (int y = minY; y <= maxY; y++) {
+            Arrays.fill(distance, y * width + minX, y * width + maxX + 1, UNREACHED);
+        }
+
+        // Seed sources inside the region and tiles fed from just outside it
+        int seedCount = 0;
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                int dist = sourceFilter.isSource(map, x, y) ? 0 : UNREACHED;
+
+                if (dist != 0 && (x == minX || x == maxX || y == minY || y == maxY)) {
+                    if (x == minX && x > 0) dist = Math.min(dist, fedFrom(map, x - 1, y));
+                    if (x == maxX && x < width - 1) dist = Math.min(dist, fedFrom(map, x + 1, y));
+                    if (y == minY && y > 0) dist = Math.min(dist, fedFrom(map, x, y - 1));
+                    if (y == maxY && y < height - 1) dist = Math.min(dist, fedFrom(map, x, y + 1));
+                }
+
+                if (dist != UNREACHED) {
+                    int index = y * width + x;
+                    distance[index] = dist;
+                    seeds[seedCount++] = index;
+                }
+            }
+        }
+
+        // Order seeds by distance so the frontier is expanded level by level
+        Arrays.fill(levelStart, 0);
+        for (int i = 0; i < seedCount; i++) {
+            levelStart[distance[seeds[i]] + 1]++;
+        }
+        for (int level = 1; level < levelStart.length; level++) {
+            levelStart[level] += levelStart[level - 1];
+        }
+        for (int i = 0; i < seedCount; i++) {
+            frontier[levelStart[distance[seeds[i]]]++] = seeds[i];
+        }
+        System.arraycopy(frontier, 0, seeds, 0, seedCount);
+
+        // Merge the sorted seeds with the BFS queue, always taking the nearer one
+        int seedHead = 0;
+        int head = 0;
+        int tail = 0;
+        while (seedHead < seedCount || head < tail) {
+            int index;
+            if (head == tail || (seedHead < seedCount && distance[seeds[seedHead]] <= distance[frontier[head]])) {
+                index = seeds[seedHead++];
+            } else {
+                index = frontier[head++];
+            }
+
+            int currentDist = distance[index];
+            if (currentDist >= maxRange) {
+                continue;
+            }
+
+            // Only sources and built tiles carry the network further
+            int x = index % width;
+            int y = index / width;
+            if (currentDist > 0 && !map.hasBuilding(x, y)) {
+                continue;
+            }
+
+            int next = currentDist + 1;
+            if (y > minY) tail = relax(index - width, next, tail);
+            if (x < maxX) tail = relax(index + 1, next, tail);
+            if (y < maxY) tail = relax(index + width, next, tail);
+            if (x > minX) tail = relax(index - 1, next, tail);
+        }
+
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                coverageWriter.setCovered(map, x, y, distance[y * width + x] != UNREACHED);
+            }
+        }
+    }
+
+    /**
+     * Distance offered to a neighbour by a tile outside the region being
+     * recomputed, whose own distance is known to be unaffected.
+     */
+    private int fedFrom(CityMap map, int x, int y) {
+        int dist = distance[y * width + x];
+        if (dist >= maxRange) {
+            return UNREACHED;
+        }
+        if (dist > 0 && !map.hasBuilding(x, y)) {
+            return UNREACHED;
+        }
+        return dist + 1;
+    }
+
+    private int relax(int index, int dist, int tail) {
+        if (dist >= distance[index]) {
+            return tail;
+        }
+        distance[index] = dist;
+        frontier[tail] = index;
+        return tail + 1;
+    }
+
+    public int getDistance(int x, int y) {
+        return distance[y * width + x];
+    }
+
+    public int getMaxRange() {
+        return maxRange;
+    }
+}
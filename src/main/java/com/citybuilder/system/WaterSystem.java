@@ -2,81 +2,47 @@ package com.citybuilder.system;
 
 import com.citybuilder.model.*;
 
-import java.util.*;
-
 /**
  * System for managing water distribution.
  */
 public class WaterSystem {
+    private static final int WATER_RANGE = 15; // Range of 15 tiles
+    
+    private final CityMap map;
+    private final UtilityPropagator propagator;
+    
+    public WaterSystem(CityMap map) {
+        this.map = map;
+        this.propagator = new UtilityPropagator(WATER_RANGE,
+            WaterSystem::isWaterSource, CityMap::setHasWater);
+    }
+    
+    /**
+     * Recompute coverage for the whole map.
+     */
+    public void recompute() {
+        propagator.propagate(map);
+    }
+    
+    /**
+     * Repair coverage around a tile that was built on or demolished.
+     */
+    public void tileChanged(int x, int y) {
+        propagator.repair(map, x, y);
+    }
+    
+    public int getDistanceToSource(int x, int y) {
+        return propagator.getDistance(x, y);
+    }
     
     public static void updateWater(CityMap map) {
-        // Reset all water status
-        for (int x = 0; x < map.getWidth(); x++) {
-            for (int y = 0; y < map.getHeight(); y++) {
-                Tile tile = map.getTile(x, y);
-                tile.setHasWater(false);
-            }
-        }
-        
-        // Find all water sources (water towers and water tiles)
-        List<Tile> waterSources = new ArrayList<>();
-        for (int x = 0; x < map.getWidth(); x++) {
-            for (int y = 0; y < map.getHeight(); y++) {
-                Tile tile = map.getTile(x, y);
-                Building building = tile.getBuilding();
-                
-                if (building != null && building.getType() == BuildingType.WATER_TOWER) {
-                    waterSources.add(tile);
-                } else if (tile.getTerrainType() == TerrainType.WATER) {
-                    waterSources.add(tile);
-                }
-            }
-        }
-        
-        // Spread water from sources using BFS
-        for (Tile waterSource : waterSources) {
-            spreadWater(map, waterSource, 15); // Range of 15 tiles
-        }
+        new WaterSystem(map).recompute();
     }
     
-    private static void spreadWater(CityMap map, Tile source, int maxRange) {
-        Queue<Tile> queue = new LinkedList<>();
-        Set<Tile> visited = new HashSet<>();
-        Map<Tile, Integer> distances = new HashMap<>();
-        
-        queue.add(source);
-        visited.add(source);
-        distances.put(source, 0);
-        source.setHasWater(true);
-        
-        while (!queue.isEmpty()) {
-            Tile current = queue.poll();
-            int currentDist = distances.get(current);
-            
-            if (currentDist >= maxRange) {
-                continue;
-            }
-            
-            // Check all adjacent tiles
-            int[][] directions = {{0, 1}, {1, 0}, {0, -1}, {-1, 0}};
-            for (int[] dir : directions) {
-                int nx = current.getX() + dir[0];
-                int ny = current.getY() + dir[1];
-                
-                if (map.isValidPosition(nx, ny)) {
-                    Tile neighbor = map.getTile(nx, ny);
-                    if (neighbor != null && !visited.contains(neighbor)) {
-                        visited.add(neighbor);
-                        neighbor.setHasWater(true);
-                        distances.put(neighbor, currentDist + 1);
-                        
-                        // Continue spreading if there's a road or building
-                        if (neighbor.getBuilding() != null) {
-                            queue.add(neighbor);
-                        }
-                    }
-                }
-            }
+    private static boolean isWaterSource(CityMap map, int x, int y) {
+        if (map.getBuildingType(x, y) == BuildingType.WATER_TOWER) {
+            return true;
         }
+        return map.getTerrainType(x, y) == TerrainType.WATER;
     }
 }
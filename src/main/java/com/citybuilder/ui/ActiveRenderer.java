@@ -0,0 +1,117 @@
+package com.citybuilder.ui;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Draws a scene into a {@link Canvas} through a {@link BufferStrategy} from
+ * its own thread, paced to a target frame rate by a {@link FramePacer}.
+ *
+ * Frame time is then independent of the Swing event thread and of how
+ * busy the simulation is. The frame rate and the number of dropped frames
+ * are drawn in the corner and refreshed once a second. While the canvas is
+ * hidden, nothing is drawn and no frames count as dropped.
+ */
+class ActiveRenderer implements Runnable {
+    private static final int BUFFERS = 2;
+    private static final long REPORT_INTERVAL_NANOS = 1_000_000_000L;
+    private static final Font REPORT_FONT = new Font("Monospaced", Font.PLAIN, 12);
+    
+    /**
+     * What to draw each frame, covering the whole canvas.
+     */
+    interface Scene {
+        void render(Graphics2D g2d, int width, int height);
+    }
+    
+    private final Canvas canvas;
+    private final Scene scene;
+    private final FramePacer pacer;
+    private volatile boolean running;
+    private Thread thread;
+    private String report = "";
+    
+    ActiveRenderer(Canvas canvas, Scene scene, int targetFps) {
+        this.canvas = canvas;
+        this.scene = scene;
+        this.pacer = new FramePacer(targetFps);
+        canvas.setIgnoreRepaint(true);
+    }
+    
+    synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "render");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+    
+    @Override
+    public void run() {
+        pacer.start(System.nanoTime());
+        long reportStart = System.nanoTime();
+        long reportRendered = 0;
+        long reportDropped = 0;
+        
+        while (running) {
+            long wait;
+            if (renderFrame()) {
+                long now = System.nanoTime();
+                wait = pacer.frameRendered(now);
+                if (now - reportStart >= REPORT_INTERVAL_NANOS) {
+                    long fps = (pacer.getFramesRendered() - reportRendered) * REPORT_INTERVAL_NANOS / (now - reportStart);
+                    report = fps + " fps, " + (pacer.getFramesDropped() - reportDropped) + " dropped";
+                    reportStart = now;
+                    reportRendered = pacer.getFramesRendered();
+                    reportDropped = pacer.getFramesDropped();
+                }
+            } else {
+                wait = pacer.frameSkipped(System.nanoTime());
+            }
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+    
+    // Returns false if the canvas could not be drawn on
+    private boolean renderFrame() {
+        if (!canvas.isDisplayable() || !canvas.isShowing() || canvas.getWidth() <= 0 || canvas.getHeight() <= 0) {
+            return false;
+        }
+        BufferStrategy strategy = canvas.getBufferStrategy();
+        if (strategy == null) {
+            canvas.createBufferStrategy(BUFFERS);
+            strategy = canvas.getBufferStrategy();
+        }
+        
+        // Redraw until the buffers survive being drawn to and shown
+        do {
+            do {
+                Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    scene.render(g2d, canvas.getWidth(), canvas.getHeight());
+                    g2d.setFont(REPORT_FONT);
+                    g2d.setColor(Color.WHITE);
+                    g2d.drawString(report, 8, canvas.getHeight() - 8);
+                } finally {
+                    g2d.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+        return true;
+    }
+}
@@ -0,0 +1,443 @@
+package com.citybuilder.ui;
+
+import com.citybuilder.model.Camera;
+import com.citybuilder.model.CityMap;
+import com.citybuilder.model.GameState;
+import com.citybuilder.model.Tile;
+import com.citybuilder.model.TileChangeJournal;
+import com.citybuilder.util.IsometricUtils;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Pre-rendered images of the map in square chunks of tiles, at several
+ * levels of detail.
+ *
+ * Chunks are laid out in rotated grid space, so each image can be drawn
+ * with a plain offset for the current camera position. Only chunks that
+ * intersect the clip are visited, back to front, and a chunk is rendered
+ * again only after the map's {@link TileChangeJournal} reports that one of
+ * its tiles changed. Images not drawn in the
+ * current frame are evicted least recently used first once the cache
+ * grows past its memory budget; rotating the camera or replacing the map
+ * drops every chunk.
+ *
+ * Each level halves the image scale and doubles the tiles along a chunk's
+ * side, so about the same number of images of about the same size cover the
+ * screen at any zoom. Level 0 is drawn from full sprites, and the next few
+ * levels from sprites drawn at their scale without building labels or
+ * traffic arrows. Every level above is four chunks of the level below
+ * averaged down to half size; those smaller chunks are rendered into one
+ * reused image per level rather than cached. Below level 0 chunk origins
+ * are aligned so that every two pixels of a chunk fall on one pixel of the
+ * chunk above.
+ */
+class ChunkCache {
+    static final int CHUNK_SIZE = 16;
+    static final int LEVELS = 6; // Down to 1/32 scale, the furthest the camera zooms out
+    private static final int TILE_LEVELS = 4; // Down to 1/8 scale, where tile positions are still whole pixels
+    private static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+    private static final int ALIGN = 1 << (LEVELS - 1); // Unzoomed pixels
+    
+    private static final int HALF_WIDTH = IsometricUtils.getTileWidth() / 2;
+    private static final int HALF_HEIGHT = IsometricUtils.getTileHeight() / 2;
+    private static final int HEIGHT_STEP = IsometricUtils.getHeightStep();
+    
+    private final GameState gameState;
+    private final TileRenderer[] tileRenderers = new TileRenderer[TILE_LEVELS];
+    private final long budgetBytes;
+    private final LinkedHashMap<Integer, Chunk> chunks;
+    private final int[] chunksX = new int[LEVELS];
+    private final int[] chunksY = new int[LEVELS];
+    private final BufferedImage[] scratch = new BufferedImage[LEVELS];
+    private long usedBytes;
+    private CityMap map;
+    private TileChangeJournal.Subscription changes;
+    private int rotation;
+    private int frame;
+    
+    ChunkCache(GameState gameState) {
+        this(gameState, DEFAULT_BUDGET_BYTES);
+    }
+    
+    ChunkCache(GameState gameState, long budgetBytes) {
+        this.gameState = gameState;
+        for (int level = 0; level < TILE_LEVELS; level++) {
+            tileRenderers[level] = new TileRenderer(new SpriteAtlas(1.0 / (1 << level), level == 0));
+        }
+        this.budgetBytes = budgetBytes;
+        this.chunks = new LinkedHashMap<>(64, 0.75f, true);
+    }
+    
+    /**
+     * The level drawn at a zoom: the smallest images at least as large as
+     * the zoom needs.
+     */
+    static int levelFor(double zoom) {
+        int level = 0;
+        while (level < LEVELS - 1 && zoom <= 1.0 / (2 << level)) {
+            level++;
+        }
+        return level;
+    }
+    
+    /**
+     * Whether labels, arrows, vehicles and traffic lights are drawn at a zoom.
+     */
+    static boolean showsDetail(double zoom) {
+        return levelFor(zoom) == 0;
+    }
+    
+    /**
+     * Draw every chunk that intersects the clip rectangle, in screen coordinates.
+     */
+    void paint(Graphics2D g2d, Rectangle clip) {
+        Camera camera = gameState.getCamera();
+        CityMap currentMap = gameState.getCityMap();
+        if (currentMap != map || camera.getRotation() != rotation) {
+            reset(currentMap, camera.getRotation());
+        }
+        changes.drain(this::invalidateTile);
+        frame++;
+        
+        double zoom = camera.getZoom();
+        int level = levelFor(zoom);
+        int unit = 1 << level; // Unzoomed pixels per image pixel
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        
+        // Clip in unshifted, unzoomed world coordinates
+        int offsetX = camera.getOffsetX();
+        int offsetY = camera.getOffsetY();
+        int minX = (int) Math.floor((clip.x - offsetX) / zoom);
+        int maxX = (int) Math.ceil((clip.x + clip.width - offsetX) / zoom);
+        int minY = (int) Math.floor((clip.y - offsetY) / zoom);
+        int maxY = (int) Math.ceil((clip.y + clip.height - offsetY) / zoom);
+        
+        // Chunk (cx, cy) covers screen columns around d = cx - cy and rows around s = cx + cy
+        int size = CHUNK_SIZE << level;
+        int pad = level == 0 ? 0 : 2 * unit + ALIGN;
+        int spanX = size * HALF_WIDTH;
+        int spanY = size * HALF_HEIGHT;
+        int reachX = (size - 1) * HALF_WIDTH + TileRenderer.EXTENT_SIDE + pad;
+        int reachUp = Tile.MAX_HEIGHT * HEIGHT_STEP + TileRenderer.EXTENT_ABOVE + pad;
+        int reachDown = 2 * (size - 1) * HALF_HEIGHT - Tile.MIN_HEIGHT * HEIGHT_STEP + TileRenderer.EXTENT_BELOW + pad;
+        
+        int minD = Math.max(-(chunksY[level] - 1), Math.floorDiv(minX - reachX, spanX));
+        int maxD = Math.min(chunksX[level] - 1, Math.floorDiv(maxX + reachX, spanX) + 1);
+        int minS = Math.max(0, Math.floorDiv(minY - reachDown, spanY));
+        int maxS = Math.min(chunksX[level] + chunksY[level] - 2, Math.floorDiv(maxY + reachUp, spanY) + 1);
+        
+        // Increasing s is back to front; chunks on the same diagonal never overlap
+        for (int s = minS; s <= maxS; s++) {
+            int firstD = ((s + minD) & 1) == 0 ? minD : minD + 1;
+            for (int d = firstD; d <= maxD; d += 2) {
+                int cx = (s + d) >> 1;
+                int cy = (s - d) >> 1;
+                if (cx < 0 || cx >= chunksX[level] || cy < 0 || cy >= chunksY[level]) {
+                    continue;
+                }
+                
+                Chunk chunk = getChunk(level, cx, cy);
+                int right = chunk.originX + chunk.width * unit;
+                int bottom = chunk.originY + chunk.height * unit;
+                if (chunk.originX < maxX && right > minX && chunk.originY < maxY && bottom > minY) {
+                    int x0 = offsetX + (int) Math.floor(chunk.originX * zoom);
+                    int y0 = offsetY + (int) Math.floor(chunk.originY * zoom);
+                    int x1 = offsetX + (int) Math.floor(right * zoom);
+                    int y1 = offsetY + (int) Math.floor(bottom * zoom);
+                    if (x1 - x0 == chunk.width && y1 - y0 == chunk.height) {
+                        g2d.drawImage(chunk.image, x0, y0, null);
+                    } else {
+                        g2d.drawImage(chunk.image, x0, y0, x1 - x0, y1 - y0, null);
+                    }
+                }
+                chunk.lastFrame = frame;
+            }
+        }
+        
+        evict();
+    }
+    
+    // Drop the chunks containing map tile (x, y), at every level
+    private void invalidateTile(int x, int y) {
+        Camera camera = gameState.getCamera();
+        int rx = camera.rotateX(x, y, map.getWidth(), map.getHeight());
+        int ry = camera.rotateY(x, y, map.getWidth(), map.getHeight());
+        for (int level = 0; level < LEVELS; level++) {
+            Chunk chunk = chunks.remove(key(level, rx / (CHUNK_SIZE << level), ry / (CHUNK_SIZE << level)));
+            if (chunk != null) {
+                usedBytes -= chunk.bytes;
+            }
+        }
+    }
+    
+    void clear() {
+        chunks.clear();
+        usedBytes = 0;
+    }
+    
+    long getUsedBytes() {
+        return usedBytes;
+    }
+    
+    private void reset(CityMap newMap, int newRotation) {
+        clear();
+        if (newMap != map) {
+            if (changes != null) {
+                changes.cancel();
+            }
+            changes = newMap.getJournal().subscribe(EnumSet.allOf(TileChangeJournal.Change.class));
+        }
+        map = newMap;
+        rotation = newRotation;
+        
+        // Rotated grid is transposed for quarter turns
+        int rotatedWidth = rotation % 2 == 0 ? map.getWidth() : map.getHeight();
+        int rotatedHeight = rotation % 2 == 0 ? map.getHeight() : map.getWidth();
+        for (int level = 0; level < LEVELS; level++) {
+            int size = CHUNK_SIZE << level;
+            chunksX[level] = (rotatedWidth + size - 1) / size;
+            chunksY[level] = (rotatedHeight + size - 1) / size;
+        }
+    }
+    
+    private int key(int level, int cx, int cy) {
+        return (cy * chunksX[level] + cx) * LEVELS + level;
+    }
+    
+    private Chunk getChunk(int level, int cx, int cy) {
+        Integer key = key(level, cx, cy);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = renderChunk(level, cx, cy, false);
+            chunks.put(key, chunk);
+            usedBytes += chunk.bytes;
+        }
+        return chunk;
+    }
+    
+    private void evict() {
+        Iterator<Chunk> iterator = chunks.values().iterator();
+        while (usedBytes > budgetBytes && iterator.hasNext()) {
+            Chunk chunk = iterator.next();
+            if (chunk.lastFrame == frame) {
+                break; // Everything after this was used more recently
+            }
+            usedBytes -= chunk.bytes;
+            iterator.remove();
+        }
+    }
+    
+    // Render into a new image, or into the level's reused image if it is only a step towards a larger chunk
+    private Chunk renderChunk(int level, int cx, int cy, boolean intoScratch) {
+        int rotatedWidth = rotation % 2 == 0 ? map.getWidth() : map.getHeight();
+        int rotatedHeight = rotation % 2 == 0 ? map.getHeight() : map.getWidth();
+        int size = CHUNK_SIZE << level;
+        int rx0 = cx * size;
+        int ry0 = cy * size;
+        int rx1 = Math.min(rx0 + size, rotatedWidth) - 1;
+        int ry1 = Math.min(ry0 + size, rotatedHeight) - 1;
+        
+        // Size the image to the terrain heights actually present
+        int minHeight = Integer.MAX_VALUE;
+        int maxHeight = Integer.MIN_VALUE;
+        for (int ry = ry0; ry <= ry1; ry++) {
+            for (int rx = rx0; rx <= rx1; rx++) {
+                int height = map.getHeight(mapX(rx, ry), mapY(rx, ry));
+                minHeight = Math.min(minHeight, height);
+                maxHeight = Math.max(maxHeight, height);
+            }
+        }
+        
+        // Bounds in unzoomed pixels; below level 0 aligned, with pixels to spare for rounding
+        int unit = 1 << level;
+        int align = level == 0 ? 1 : ALIGN;
+        int pad = level == 0 ? 0 : 2 * unit;
+        int left = (rx0 - ry1) * HALF_WIDTH - TileRenderer.EXTENT_SIDE - pad;
+        int top = (rx0 + ry0) * HALF_HEIGHT - maxHeight * HEIGHT_STEP - TileRenderer.EXTENT_ABOVE - pad;
+        int right = (rx1 - ry0) * HALF_WIDTH + TileRenderer.EXTENT_SIDE + pad;
+        int bottom = (rx1 + ry1) * HALF_HEIGHT - minHeight * HEIGHT_STEP + TileRenderer.EXTENT_BELOW + pad;
+        int originX = Math.floorDiv(left, align) * align;
+        int originY = Math.floorDiv(top, align) * align;
+        int width = (right - originX + unit - 1) / unit;
+        int height = (bottom - originY + unit - 1) / unit;
+        
+        BufferedImage image = intoScratch ? scratch(level, width, height)
+                                          : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Chunk chunk = new Chunk(image, originX, originY, width, height);
+        if (level >= TILE_LEVELS) {
+            renderQuarters(chunk, level, cx, cy, intoScratch);
+            return chunk;
+        }
+        
+        Graphics2D g2d = image.createGraphics();
+        try {
+            if (intoScratch) {
+                g2d.setComposite(AlphaComposite.Clear);
+                g2d.fillRect(0, 0, width, height);
+                g2d.setComposite(AlphaComposite.SrcOver);
+            }
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            renderTiles(g2d, tileRenderers[level], unit, originX, originY, rx0, ry0, rx1, ry1);
+        } finally {
+            g2d.dispose();
+        }
+        return chunk;
+    }
+    
+    private void renderTiles(Graphics2D g2d, TileRenderer renderer, int unit, int originX, int originY,
+                             int rx0, int ry0, int rx1, int ry1) {
+        g2d.translate(-originX / unit, -originY / unit);
+        
+        // Row by row in rotated space draws back to front; tile anchors divide exactly
+        for (int ry = ry0; ry <= ry1; ry++) {
+            for (int rx = rx0; rx <= rx1; rx++) {
+                int x = mapX(rx, ry);
+                int y = mapY(rx, ry);
+                renderer.renderTile(g2d, map, x, y, IsometricUtils.gridToScreenX(rx, ry) / unit,
+                    IsometricUtils.gridToScreenY(rx, ry, map.getHeight(x, y)) / unit);
+            }
+        }
+    }
+    
+    // Average the four chunks of the level below into this one, back to front
+    private void renderQuarters(Chunk chunk, int level, int cx, int cy, boolean intoScratch) {
+        int below = level - 1;
+        int unit = 1 << level;
+        WritableRaster target = chunk.image.getRaster();
+        if (intoScratch) {
+            int[] empty = new int[chunk.width];
+            for (int y = 0; y < chunk.height; y++) {
+                target.setDataElements(0, y, chunk.width, 1, empty);
+            }
+        }
+        
+        for (int s = 0; s <= 2; s++) {
+            for (int qx = Math.max(0, s - 1); qx <= Math.min(1, s); qx++) {
+                int qcx = 2 * cx + qx;
+                int qcy = 2 * cy + s - qx;
+                if (qcx >= chunksX[below] || qcy >= chunksY[below]) {
+                    continue;
+                }
+                
+                // Already cached when zooming out step by step
+                Chunk quarter = chunks.get(key(below, qcx, qcy));
+                if (quarter == null) {
+                    quarter = renderChunk(below, qcx, qcy, true);
+                }
+                shrinkOnto(quarter, target, (quarter.originX - chunk.originX) / unit,
+                    (quarter.originY - chunk.originY) / unit, chunk.width, chunk.height);
+            }
+        }
+    }
+    
+    // Draw a chunk at half size over a raster: each 2x2 block averaged, then blended over what is there
+    private static void shrinkOnto(Chunk quarter, WritableRaster target, int targetX, int targetY,
+                                   int targetWidth, int targetHeight) {
+        WritableRaster source = quarter.image.getRaster();
+        int width = Math.min((quarter.width + 1) / 2, targetWidth - targetX);
+        int[] upper = new int[2 * width];
+        int[] lower = new int[2 * width];
+        int[] row = new int[width];
+        int sourceWidth = Math.min(2 * width, quarter.width);
+        
+        for (int y = 0; y < quarter.height && targetY + y / 2 < targetHeight; y += 2) {
+            source.getDataElements(0, y, sourceWidth, 1, upper);
+            if (y + 1 < quarter.height) {
+                source.getDataElements(0, y + 1, sourceWidth, 1, lower);
+            } else {
+                Arrays.fill(lower, 0);
+            }
+            if (sourceWidth < 2 * width) {
+                upper[sourceWidth] = 0;
+                lower[sourceWidth] = 0;
+            }
+            target.getDataElements(targetX, targetY + y / 2, width, 1, row);
+            
+            for (int x = 0; x < width; x++) {
+                int a = upper[2 * x];
+                int b = upper[2 * x + 1];
+                int c = lower[2 * x];
+                int d = lower[2 * x + 1];
+                
+                // Premultiplied channels average and blend the same way
+                int alpha = (sum(a, b, c, d, 24) + 2) >> 2;
+                if (alpha == 0) {
+                    continue;
+                }
+                int red = (sum(a, b, c, d, 16) + 2) >> 2;
+                int green = (sum(a, b, c, d, 8) + 2) >> 2;
+                int blue = (sum(a, b, c, d, 0) + 2) >> 2;
+                if (alpha < 255) {
+                    int under = row[x];
+                    int keep = 255 - alpha;
+                    alpha += ((under >>> 24) * keep + 127) / 255;
+                    red += (((under >> 16) & 0xFF) * keep + 127) / 255;
+                    green += (((under >> 8) & 0xFF) * keep + 127) / 255;
+                    blue += ((under & 0xFF) * keep + 127) / 255;
+                }
+                row[x] = alpha << 24 | red << 16 | green << 8 | blue;
+            }
+            target.setDataElements(targetX, targetY + y / 2, width, 1, row);
+        }
+    }
+    
+    private static int sum(int a, int b, int c, int d, int shift) {
+        return ((a >>> shift) & 0xFF) + ((b >>> shift) & 0xFF) + ((c >>> shift) & 0xFF) + ((d >>> shift) & 0xFF);
+    }
+    
+    private BufferedImage scratch(int level, int width, int height) {
+        BufferedImage image = scratch[level];
+        if (image == null || image.getWidth() < width || image.getHeight() < height) {
+            int scratchWidth = image == null ? width : Math.max(width, image.getWidth());
+            int scratchHeight = image == null ? height : Math.max(height, image.getHeight());
+            image = new BufferedImage(scratchWidth, scratchHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+            scratch[level] = image;
+        }
+        return image;
+    }
+    
+    // Inverse of Camera.applyRotation
+    private int mapX(int rx, int ry) {
+        switch (rotation) {
+            case 1: return map.getWidth() - 1 - ry;
+            case 2: return map.getWidth() - 1 - rx;
+            case 3: return ry;
+            default: return rx;
+        }
+    }
+    
+    private int mapY(int rx, int ry) {
+        switch (rotation) {
+            case 1: return rx;
+            case 2: return map.getHeight() - 1 - ry;
+            case 3: return map.getHeight() - 1 - rx;
+            default: return ry;
+        }
+    }
+    
+    private static class Chunk {
+        final BufferedImage image;
+        final int originX; // Unzoomed pixels
+        final int originY;
+        final int width; // Image pixels in use
+        final int height;
+        final long bytes;
+        int lastFrame;
+        
+        Chunk(BufferedImage image, int originX, int originY, int width, int height) {
+            this.image = image;
+            this.originX = originX;
+            this.originY = originY;
+            this.width = width;
+            this.height = height;
+            this.bytes = 4L * image.getWidth() * image.getHeight();
+        }
+    }
+}
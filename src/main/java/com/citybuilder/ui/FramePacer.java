@@ -0,0 +1,61 @@
+package com.citybuilder.ui;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules frames at a fixed target rate and counts the ones missed.
+ *
+ * Frames are due on a fixed grid of times from the start, so a slow frame
+ * does not shift every later one. When a frame finishes after the next one
+ * was due, the frames it overran are counted as dropped and skipped rather
+ * than rendered back to back.
+ */
+class FramePacer {
+    private final long frameNanos;
+    private long nextFrame;
+    private long framesRendered;
+    private long framesDropped;
+    
+    FramePacer(int targetFps) {
+        this.frameNanos = TimeUnit.SECONDS.toNanos(1) / targetFps;
+    }
+    
+    /**
+     * Make the first frame due now.
+     */
+    void start(long now) {
+        nextFrame = now;
+    }
+    
+    /**
+     * Record a frame finished at the given time and return how long to wait
+     * before starting the next one.
+     */
+    long frameRendered(long now) {
+        framesRendered++;
+        nextFrame += frameNanos;
+        if (now > nextFrame) {
+            long missed = (now - nextFrame) / frameNanos + 1;
+            framesDropped += missed;
+            nextFrame += missed * frameNanos;
+        }
+        return nextFrame - now;
+    }
+    
+    /**
+     * Record that there was nothing to draw and return the wait until the
+     * next frame, without counting a frame either way.
+     */
+    long frameSkipped(long now) {
+        nextFrame = Math.max(nextFrame + frameNanos, now);
+        return nextFrame - now;
+    }
+    
+    long getFramesRendered() {
+        return framesRendered;
+    }
+    
+    long getFramesDropped() {
+        return framesDropped;
+    }
+}
@@ -1,6 +1,9 @@
 package com.citybuilder.ui;
 
 import com.citybuilder.core.GameEngine;
+import com.citybuilder.core.Simulation;
+import com.citybuilder.core.SimulationLoop;
+import com.citybuilder.core.SimulationSpeed;
 import com.citybuilder.model.*;
 
 import javax.swing.*;
@@ -8,16 +11,23 @@ import java.awt.*;
 
 /**
  * Main game frame that contains the game view and UI.
+ *
+ * Run with {@code -Dcitybuilder.activeRendering=true} to draw the game view
+ * from its own render thread at {@link #TARGET_FPS} instead of repainting it
+ * on the Swing event thread.
  */
 public class GameFrame extends JFrame {
-    private static final int RESIDENT_SPAWN_DIVISOR = 10; // How many building capacity units per resident
-    private static final int VEHICLE_CLEANUP_MARGIN = 10; // Distance beyond map to remove vehicles
+    public static final int TARGET_FPS = 60;
+    
+    private static final boolean ACTIVE_RENDERING = Boolean.getBoolean("citybuilder.activeRendering");
     
     private GameEngine gameEngine;
     private GameState gameState;
     private GamePanel gamePanel;
     private ToolboxPanel toolboxPanel;
+    private MinimapPanel minimapPanel;
     private InfoPanel infoPanel;
+    private SimulationLoop simulationLoop;
     
     public GameFrame(GameEngine gameEngine, GameState gameState) {
         this.gameEngine = gameEngine;
@@ -39,93 +49,28 @@ public class GameFrame extends JFrame {
         gamePanel = new GamePanel(gameState);
         add(gamePanel, BorderLayout.CENTER);
         
-        // Toolbox panel (right)
+        // Toolbox panel with the minimap below it (right)
         toolboxPanel = new ToolboxPanel(gameState, gamePanel);
-        add(toolboxPanel, BorderLayout.EAST);
+        minimapPanel = new MinimapPanel(gameState, gamePanel);
+        gamePanel.setMinimap(minimapPanel);
+        JPanel sidePanel = new JPanel(new BorderLayout());
+        sidePanel.add(toolboxPanel, BorderLayout.CENTER);
+        sidePanel.add(minimapPanel, BorderLayout.SOUTH);
+        add(sidePanel, BorderLayout.EAST);
         
         // Info panel (top)
         infoPanel = new InfoPanel(gameState);
         add(infoPanel, BorderLayout.NORTH);
         
-        // Start update timer (fast for game updates)
-        Timer fastTimer = new Timer(50, e -> {
-            gameState.updateTraffic();
-            cleanupVehicles(); // Clean up off-map vehicles frequently
-            gamePanel.repaint();
-        });
-        fastTimer.start();
-        
-        // Time advancement timer (1 second = 1 game hour)
-        Timer timeTimer = new Timer(1000, e -> {
-            gameState.advanceTime();
-            gamePanel.repaint(); // Repaint for day/night effect
-        });
-        timeTimer.start();
-        
-        // Monthly update timer (3 seconds = 1 game month)
-        Timer monthlyTimer = new Timer(3000, e -> {
-            gameState.updateMonthly();
-            spawnVehicles();
-            updatePopulation();
-            infoPanel.update();
-        });
-        monthlyTimer.start();
-        
-        // UI update timer
-        Timer uiTimer = new Timer(100, e -> {
-            infoPanel.update();
-        });
-        uiTimer.start();
-    }
-    
-    private void spawnVehicles() {
-        // Spawn random vehicles on roads
-        CityMap map = gameState.getCityMap();
-        for (int i = 0; i < 3; i++) {
-            int x = (int) (Math.random() * map.getWidth());
-            int y = (int) (Math.random() * map.getHeight());
-            Tile tile = map.getTile(x, y);
-            if (tile != null && tile.getBuilding() != null && 
-                (tile.getBuilding().getType() == BuildingType.ROAD || 
-                 tile.getBuilding().getType() == BuildingType.ROUNDABOUT)) {
-                VehicleType type = VehicleType.values()[(int) (Math.random() * VehicleType.values().length)];
-                gameState.addVehicle(new Vehicle(x, y, type));
-            }
-        }
-    }
-    
-    private void cleanupVehicles() {
-        // Remove vehicles that are far off map
-        CityMap map = gameState.getCityMap();
-        gameState.getVehicles().removeIf(v -> 
-            v.getX() < -VEHICLE_CLEANUP_MARGIN || v.getX() > map.getWidth() + VEHICLE_CLEANUP_MARGIN ||
-            v.getY() < -VEHICLE_CLEANUP_MARGIN || v.getY() > map.getHeight() + VEHICLE_CLEANUP_MARGIN
-        );
-    }
-    
-    private void updatePopulation() {
-        // Count residents from residential buildings
-        int totalCapacity = 0;
-        CityMap map = gameState.getCityMap();
-        for (int x = 0; x < map.getWidth(); x++) {
-            for (int y = 0; y < map.getHeight(); y++) {
-                Tile tile = map.getTile(x, y);
-                Building building = tile.getBuilding();
-                if (building != null) {
-                    totalCapacity += building.getType().getResidents();
-                    
-                    // Add residents to happy buildings
-                    if (tile.hasElectricity() && tile.hasWater()) {
-                        for (int i = 0; i < building.getType().getResidents() / RESIDENT_SPAWN_DIVISOR; i++) {
-                            if (gameState.getPopulation() < totalCapacity) {
-                                Resident resident = new Resident(x, y, gameState.getGameDate().getYear());
-                                resident.adjustHappiness(10); // Happy with utilities
-                                gameState.addResident(resident);
-                            }
-                        }
-                    }
-                }
-            }
+        // Run the simulation on its own thread and repaint from its snapshots
+        simulationLoop = new SimulationLoop(new Simulation(gameState), snapshot ->
+            SwingUtilities.invokeLater(() -> {
+                gamePanel.setSnapshot(snapshot);
+                infoPanel.update(snapshot);
+            }));
+        simulationLoop.start();
+        if (ACTIVE_RENDERING) {
+            gamePanel.startActiveRendering(simulationLoop::getLatestSnapshot, TARGET_FPS);
         }
     }
     
@@ -141,6 +86,9 @@ public class GameFrame extends JFrame {
         JMenuItem loadItem = new JMenuItem("Load Game");
         loadItem.addActionListener(e -> showLoadDialog());
         
+        JMenuItem exportItem = new JMenuItem("Export as JSON");
+        exportItem.addActionListener(e -> showExportDialog());
+        
         JMenuItem mainMenuItem = new JMenuItem("Main Menu");
         mainMenuItem.addActionListener(e -> {
             int result = JOptionPane.showConfirmDialog(this,
@@ -157,6 +105,7 @@ public class GameFrame extends JFrame {
         
         fileMenu.add(saveItem);
         fileMenu.add(loadItem);
+        fileMenu.add(exportItem);
         fileMenu.addSeparator();
         fileMenu.add(mainMenuItem);
         fileMenu.add(exitItem);
@@ -179,12 +128,31 @@ public class GameFrame extends JFrame {
         viewMenu.add(rotateLeftItem);
         viewMenu.add(rotateRightItem);
         
+        // Speed menu
+        JMenu speedMenu = new JMenu("Speed");
+        ButtonGroup speedGroup = new ButtonGroup();
+        for (SimulationSpeed speed : SimulationSpeed.values()) {
+            JRadioButtonMenuItem speedItem = new JRadioButtonMenuItem(speed.getLabel());
+            speedItem.setSelected(speed == simulationLoop.getSpeed());
+            speedItem.addActionListener(e -> simulationLoop.setSpeed(speed));
+            speedGroup.add(speedItem);
+            speedMenu.add(speedItem);
+        }
+        
         menuBar.add(fileMenu);
         menuBar.add(viewMenu);
+        menuBar.add(speedMenu);
         
         setJMenuBar(menuBar);
     }
     
+    @Override
+    public void dispose() {
+        simulationLoop.stop();
+        gamePanel.stopActiveRendering();
+        super.dispose();
+    }
+    
     private void showSaveDialog() {
         String filename = JOptionPane.showInputDialog(this,
             "Enter save name:",
@@ -196,6 +164,17 @@ public class GameFrame extends JFrame {
         }
     }
     
+    private void showExportDialog() {
+        String filename = JOptionPane.showInputDialog(this,
+            "Enter export name:",
+            "Export as JSON",
+            JOptionPane.QUESTION_MESSAGE);
+        
+        if (filename != null && !filename.trim().isEmpty()) {
+            gameEngine.exportGame(filename.trim());
+        }
+    }
+    
     private void showLoadDialog() {
         java.util.List<String> saves = GameState.listSavedGames();
         
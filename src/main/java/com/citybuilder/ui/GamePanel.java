@@ -1,28 +1,56 @@
 package com.citybuilder.ui;
 
+import com.citybuilder.core.SimulationSnapshot;
 import com.citybuilder.model.*;
 import com.citybuilder.util.IsometricUtils;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.function.Supplier;
 
 /**
  * Main game rendering panel.
+ *
+ * The panel normally paints itself on the Swing event thread. With
+ * {@link #startActiveRendering} a canvas covering the panel is drawn from
+ * a render thread instead, and the panel only paints while the radial menu
+ * is open, since the menu cannot be drawn over the canvas.
  */
 public class GamePanel extends JPanel {
     private static final int RADIAL_MENU_SIZE = 2000; // Large enough for any screen
+    private static final double ZOOM_STEP = 1.25; // Per wheel notch or key press
+    private static final Color[] NIGHT_OVERLAYS = new Color[129]; // By alpha
+    
+    static {
+        for (int alpha = 0; alpha < NIGHT_OVERLAYS.length; alpha++) {
+            NIGHT_OVERLAYS[alpha] = new Color(0, 0, 30, alpha);
+        }
+    }
     
     private GameState gameState;
     private Point dragStart;
     private BuildingType selectedBuilding;
     private ToolMode toolMode;
     private RadialMenu radialMenu;
+    private volatile SimulationSnapshot snapshot;
+    private ChunkCache chunkCache;
+    private final ScreenTransform transform = new ScreenTransform(); // For clicks
+    private final ScreenTransform sceneTransform = new ScreenTransform(); // For drawing
+    private final Object sceneLock = new Object(); // Held while drawing the scene or changing the chunks
+    private final Rectangle canvasClip = new Rectangle();
+    private MouseAdapter mouseHandler;
+    private MouseMotionAdapter dragHandler;
+    private KeyAdapter keyHandler;
+    private Canvas canvas;
+    private ActiveRenderer activeRenderer;
+    private MinimapPanel minimap;
     
     public GamePanel(GameState gameState) {
         this.gameState = gameState;
         this.toolMode = ToolMode.NONE;
         this.radialMenu = new RadialMenu();
+        this.chunkCache = new ChunkCache(gameState);
         
         setLayout(null); // Allow absolute positioning for radial menu
         add(radialMenu);
@@ -39,15 +67,20 @@ public class GamePanel extends JPanel {
             } else if (data instanceof BuildingType) {
                 setSelectedBuilding((BuildingType) data);
             }
+            if (canvas != null) {
+                // Back to the canvas once the menu closes
+                remove(radialMenu);
+                canvas.setVisible(true);
+                canvas.requestFocusInWindow();
+            }
         });
         
-        addMouseListener(new MouseAdapter() {
+        mouseHandler = new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
                 if (SwingUtilities.isRightMouseButton(e)) {
                     // Show radial menu on right-click
-                    radialMenu.show(e.getPoint());
-                    repaint();
+                    showRadialMenu(e.getPoint());
                 } else if (SwingUtilities.isMiddleMouseButton(e) || 
                     (SwingUtilities.isLeftMouseButton(e) && e.isControlDown())) {
                     dragStart = e.getPoint();
@@ -62,9 +95,19 @@ public class GamePanel extends JPanel {
             public void mouseReleased(MouseEvent e) {
                 dragStart = null;
             }
-        });
+            
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                // Zoom in or out around the cursor
+                Camera camera = gameState.getCamera();
+                camera.zoomAt(camera.getZoom() * Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+                viewChanged();
+            }
+        };
+        addMouseListener(mouseHandler);
+        addMouseWheelListener(mouseHandler);
         
-        addMouseMotionListener(new MouseMotionAdapter() {
+        dragHandler = new MouseMotionAdapter() {
             @Override
             public void mouseDragged(MouseEvent e) {
                 if (dragStart != null) {
@@ -72,457 +115,327 @@ public class GamePanel extends JPanel {
                     int dy = e.getY() - dragStart.y;
                     gameState.getCamera().move(dx, dy);
                     dragStart = e.getPoint();
-                    repaint();
+                    viewChanged();
                 }
             }
-        });
+        };
+        addMouseMotionListener(dragHandler);
         
-        addKeyListener(new KeyAdapter() {
+        keyHandler = new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
                 switch (e.getKeyCode()) {
                     case KeyEvent.VK_Q:
                         gameState.getCamera().rotateCounterClockwise();
-                        repaint();
+                        viewChanged();
                         break;
                     case KeyEvent.VK_E:
                         gameState.getCamera().rotateClockwise();
-                        repaint();
+                        viewChanged();
                         break;
                     case KeyEvent.VK_W:
                         gameState.getCamera().move(0, 20);
-                        repaint();
+                        viewChanged();
                         break;
                     case KeyEvent.VK_S:
                         gameState.getCamera().move(0, -20);
-                        repaint();
+                        viewChanged();
                         break;
                     case KeyEvent.VK_A:
                         gameState.getCamera().move(20, 0);
-                        repaint();
+                        viewChanged();
                         break;
                     case KeyEvent.VK_D:
                         gameState.getCamera().move(-20, 0);
-                        repaint();
+                        viewChanged();
+                        break;
+                    case KeyEvent.VK_EQUALS:
+                    case KeyEvent.VK_PLUS:
+                    case KeyEvent.VK_ADD:
+                        zoomAtCenter(ZOOM_STEP);
+                        break;
+                    case KeyEvent.VK_MINUS:
+                    case KeyEvent.VK_SUBTRACT:
+                        zoomAtCenter(1 / ZOOM_STEP);
                         break;
                 }
             }
-        });
+        };
+        addKeyListener(keyHandler);
+    }
+    
+    /**
+     * Draw from a render thread into a canvas covering the panel, at the
+     * given frame rate, showing the latest snapshot from the given source.
+     */
+    public void startActiveRendering(Supplier<SimulationSnapshot> snapshots, int targetFps) {
+        if (canvas != null) {
+            return;
+        }
+        canvas = new Canvas();
+        canvas.setBackground(getBackground());
+        canvas.setFocusable(true);
+        canvas.addMouseListener(mouseHandler);
+        canvas.addMouseWheelListener(mouseHandler);
+        canvas.addMouseMotionListener(dragHandler);
+        canvas.addKeyListener(keyHandler);
+        
+        // The menu is only in the panel while open
+        remove(radialMenu);
+        add(canvas);
+        revalidate();
+        
+        activeRenderer = new ActiveRenderer(canvas, (g2d, width, height) -> {
+            SimulationSnapshot latest = snapshots.get();
+            if (latest != null) {
+                snapshot = latest;
+            }
+            g2d.setColor(getBackground());
+            g2d.fillRect(0, 0, width, height);
+            canvasClip.setBounds(0, 0, width, height);
+            renderScene(g2d, canvasClip, width, height);
+        }, targetFps);
+        activeRenderer.start();
+    }
+    
+    public void stopActiveRendering() {
+        if (activeRenderer != null) {
+            activeRenderer.stop();
+        }
+    }
+    
+    @Override
+    public void doLayout() {
+        if (canvas != null) {
+            canvas.setBounds(0, 0, getWidth(), getHeight());
+        }
+    }
+    
+    private void showRadialMenu(Point location) {
+        if (canvas != null && canvas.isVisible()) {
+            // Paint on the panel while the menu is open
+            add(radialMenu, 0);
+            canvas.setVisible(false);
+        }
+        radialMenu.show(location);
+        repaint();
+    }
+    
+    private void zoomAtCenter(double factor) {
+        Camera camera = gameState.getCamera();
+        camera.zoomAt(camera.getZoom() * factor, getWidth() / 2, getHeight() / 2);
+        viewChanged();
+    }
+    
+    private boolean isRenderingActively() {
+        return canvas != null && canvas.isVisible();
     }
     
     private void handleClick(int mouseX, int mouseY) {
-        Point gridPos = screenToGrid(mouseX, mouseY);
+        transform.update(gameState.getCamera(), gameState.getCityMap());
+        int gridX = transform.gridX(mouseX, mouseY);
+        int gridY = transform.gridY(mouseX, mouseY);
         
-        if (gameState.getCityMap().isValidPosition(gridPos.x, gridPos.y)) {
-            Tile tile = gameState.getCityMap().getTile(gridPos.x, gridPos.y);
+        if (gameState.getCityMap().isValidPosition(gridX, gridY)) {
+            boolean notEnoughMoney = false;
             
-            switch (toolMode) {
-                case BUILD:
-                    if (selectedBuilding != null && tile.isEmpty()) {
-                        if (gameState.spendMoney(selectedBuilding.getCost())) {
-                            tile.setBuilding(new Building(selectedBuilding));
-                            
-                            // If it's a traffic light, also add to traffic light list
-                            if (selectedBuilding == BuildingType.TRAFFIC_LIGHT) {
-                                gameState.addTrafficLight(new TrafficLight(gridPos.x, gridPos.y));
+            // Edits must not interleave with a simulation tick
+            synchronized (gameState) {
+                Tile tile = gameState.getCityMap().getTile(gridX, gridY);
+                
+                switch (toolMode) {
+                    case BUILD:
+                        if (selectedBuilding != null && tile.isEmpty()) {
+                            if (gameState.spendMoney(selectedBuilding.getCost())) {
+                                tile.setBuilding(new Building(selectedBuilding));
+                                
+                                // If it's a traffic light, also add to traffic light list
+                                if (selectedBuilding == BuildingType.TRAFFIC_LIGHT) {
+                                    gameState.addTrafficLight(new TrafficLight(gridX, gridY));
+                                }
+                            } else {
+                                notEnoughMoney = true;
                             }
-                        } else {
-                            JOptionPane.showMessageDialog(this, "Not enough money!");
                         }
-                    }
-                    break;
-                    
-                case DEMOLISH:
-                    tile.demolish();
-                    break;
-                    
-                case ZONE_RESIDENTIAL:
-                    if (tile.isEmpty()) {
-                        tile.setZoneType(ZoneType.RESIDENTIAL);
-                    }
-                    break;
-                    
-                case ZONE_COMMERCIAL:
-                    if (tile.isEmpty()) {
-                        tile.setZoneType(ZoneType.COMMERCIAL);
-                    }
-                    break;
-                    
-                case ZONE_INDUSTRIAL:
-                    if (tile.isEmpty()) {
-                        tile.setZoneType(ZoneType.INDUSTRIAL);
-                    }
-                    break;
-                    
-                case RAISE_TERRAIN:
-                    tile.raiseHeight();
-                    break;
-                    
-                case LOWER_TERRAIN:
-                    tile.lowerHeight();
-                    break;
-                    
-                case SET_TRAFFIC_DIRECTION:
-                    if (tile.isRoad()) {
-                        tile.cycleTrafficDirection();
-                    }
-                    break;
+                        break;
+                        
+                    case DEMOLISH:
+                        tile.demolish();
+                        break;
+                        
+                    case ZONE_RESIDENTIAL:
+                        if (tile.isEmpty()) {
+                            tile.setZoneType(ZoneType.RESIDENTIAL);
+                        }
+                        break;
+                        
+                    case ZONE_COMMERCIAL:
+                        if (tile.isEmpty()) {
+                            tile.setZoneType(ZoneType.COMMERCIAL);
+                        }
+                        break;
+                        
+                    case ZONE_INDUSTRIAL:
+                        if (tile.isEmpty()) {
+                            tile.setZoneType(ZoneType.INDUSTRIAL);
+                        }
+                        break;
+                        
+                    case RAISE_TERRAIN:
+                        tile.raiseHeight();
+                        break;
+                        
+                    case LOWER_TERRAIN:
+                        tile.lowerHeight();
+                        break;
+                        
+                    case SET_TRAFFIC_DIRECTION:
+                        if (tile.isRoad()) {
+                            tile.cycleTrafficDirection();
+                        }
+                        break;
+                }
+                
+                // Take effect now rather than on the next tick; the map views catch up when painted
+                gameState.applyTileChanges();
             }
             
-            repaint();
-        }
-    }
-    
-    private Point screenToGrid(int screenX, int screenY) {
-        Camera camera = gameState.getCamera();
-        
-        // Adjust for camera offset
-        int adjustedX = screenX - camera.getOffsetX();
-        int adjustedY = screenY - camera.getOffsetY();
-        
-        // Convert to grid coordinates
-        Point gridPos = IsometricUtils.screenToGrid(adjustedX, adjustedY);
-        
-        // Apply reverse rotation
-        CityMap map = gameState.getCityMap();
-        int rotation = (4 - camera.getRotation()) % 4;
-        
-        int x = gridPos.x;
-        int y = gridPos.y;
-        
-        switch (rotation) {
-            case 1:
-                gridPos.x = y;
-                gridPos.y = map.getWidth() - 1 - x;
-                break;
-            case 2:
-                gridPos.x = map.getWidth() - 1 - x;
-                gridPos.y = map.getHeight() - 1 - y;
-                break;
-            case 3:
-                gridPos.x = map.getHeight() - 1 - y;
-                gridPos.y = x;
-                break;
+            if (notEnoughMoney) {
+                JOptionPane.showMessageDialog(this, "Not enough money!");
+            }
+            
+            viewChanged();
         }
-        
-        return gridPos;
     }
     
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
+        if (isRenderingActively()) {
+            return;
+        }
         Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
-        Camera camera = gameState.getCamera();
-        CityMap map = gameState.getCityMap();
         
-        // Render tiles
-        for (int x = 0; x < map.getWidth(); x++) {
-            for (int y = 0; y < map.getHeight(); y++) {
-                Tile tile = map.getTile(x, y);
-                renderTile(g2d, tile, x, y);
-            }
+        Rectangle clip = g2d.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
         }
-        
-        // Render vehicles
-        for (Vehicle vehicle : gameState.getVehicles()) {
-            renderVehicle(g2d, vehicle);
+        renderScene(g2d, clip, getWidth(), getHeight());
+    }
+    
+    /**
+     * Draw the map, vehicles, traffic lights and night shading of the latest
+     * snapshot, on the event thread or the render thread.
+     */
+    private void renderScene(Graphics2D g2d, Rectangle clip, int width, int height) {
+        synchronized (sceneLock) {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            
+            // Render tiles from cached chunks, only those on screen
+            chunkCache.paint(g2d, clip);
+            
+            SimulationSnapshot snapshot = this.snapshot;
+            if (snapshot != null) {
+                renderSnapshot(g2d, clip, snapshot, width, height);
+            }
         }
-        
-        // Render traffic lights
-        for (TrafficLight light : gameState.getTrafficLights()) {
-            renderTrafficLight(g2d, light);
+    }
+    
+    private void renderSnapshot(Graphics2D g2d, Rectangle clip, SimulationSnapshot snapshot, int width, int height) {
+        // Vehicles and traffic lights are too small to see when zoomed out
+        if (ChunkCache.showsDetail(gameState.getCamera().getZoom())) {
+            // Render vehicles
+            sceneTransform.update(gameState.getCamera(), gameState.getCityMap());
+            for (int i = 0; i < snapshot.getVehicleCount(); i++) {
+                renderVehicle(g2d, clip, snapshot.getVehicleX(i), snapshot.getVehicleY(i), snapshot.getVehicleType(i));
+            }
+            
+            // Render traffic lights
+            for (int i = 0; i < snapshot.getTrafficLightCount(); i++) {
+                renderTrafficLight(g2d, clip, snapshot.getTrafficLightX(i), snapshot.getTrafficLightY(i),
+                    snapshot.getTrafficLightState(i));
+            }
         }
         
         // Apply day/night overlay
-        TimeOfDay timeOfDay = gameState.getCurrentTimeOfDay();
+        TimeOfDay timeOfDay = snapshot.getTimeOfDay();
         float brightness = timeOfDay.getBrightness();
         if (brightness < 1.0f) {
             int alpha = (int) ((1.0f - brightness) * 128);
-            g2d.setColor(new Color(0, 0, 30, alpha));
-            g2d.fillRect(0, 0, getWidth(), getHeight());
+            g2d.setColor(NIGHT_OVERLAYS[alpha]);
+            g2d.fillRect(0, 0, width, height);
         }
     }
     
-    private void renderTile(Graphics2D g2d, Tile tile, int gridX, int gridY) {
-        Camera camera = gameState.getCamera();
-        CityMap map = gameState.getCityMap();
-        
-        // Apply rotation
-        Point rotated = camera.applyRotation(gridX, gridY, map.getWidth(), map.getHeight());
-        
-        // Convert to screen coordinates
-        Point screen = IsometricUtils.gridToScreen(rotated.x, rotated.y, tile.getHeight());
-        
-        // Apply camera offset
-        int screenX = screen.x + camera.getOffsetX();
-        int screenY = screen.y + camera.getOffsetY();
-        
-        // Draw tile
-        int tileWidth = IsometricUtils.getTileWidth();
-        int tileHeight = IsometricUtils.getTileHeight();
-        
-        // Create isometric diamond shape
-        int[] xPoints = {
-            screenX, 
-            screenX + tileWidth / 2, 
-            screenX, 
-            screenX - tileWidth / 2
-        };
-        int[] yPoints = {
-            screenY - tileHeight / 2, 
-            screenY, 
-            screenY + tileHeight / 2, 
-            screenY
-        };
-        
-        // Determine tile color
-        Color tileColor = getTileColor(tile);
-        g2d.setColor(tileColor);
-        g2d.fillPolygon(xPoints, yPoints, 4);
-        
-        // Draw tile border
-        g2d.setColor(Color.BLACK);
-        g2d.drawPolygon(xPoints, yPoints, 4);
-        
-        // Draw zone overlay
-        if (tile.getZoneType() != ZoneType.NONE) {
-            Color zoneColor = getZoneColor(tile.getZoneType());
-            g2d.setColor(new Color(zoneColor.getRed(), zoneColor.getGreen(), zoneColor.getBlue(), 100));
-            g2d.fillPolygon(xPoints, yPoints, 4);
+    private void renderVehicle(Graphics2D g2d, Rectangle clip, int vehicleX, int vehicleY, VehicleType type) {
+        // Rotate, project and apply the camera offset
+        int screenX = sceneTransform.screenX(vehicleX, vehicleY);
+        int screenY = sceneTransform.screenY(vehicleX, vehicleY, 0);
+        if (!isNearClip(clip, screenX, screenY)) {
+            return;
         }
         
-        // Draw building or natural feature
-        if (tile.getBuilding() != null) {
-            drawBuilding(g2d, tile.getBuilding(), screenX, screenY);
-            
-            // Draw traffic direction arrow on roads
-            if (tile.isRoad()) {
-                drawTrafficArrow(g2d, tile.getTrafficDirection(), screenX, screenY);
-            }
-        } else if (tile.getNaturalFeature() != null) {
-            drawNaturalFeature(g2d, tile.getNaturalFeature(), screenX, screenY);
-        }
-    }
-    
-    private Color getTileColor(Tile tile) {
-        switch (tile.getTerrainType()) {
-            case WATER:
-                return new Color(50, 100, 200);
-            case DIRT:
-                return new Color(139, 90, 43);
-            case SAND:
-                return new Color(238, 214, 175);
-            case GRASS:
-            default:
-                int heightShade = Math.max(0, Math.min(255, 120 + tile.getHeight() * 10));
-                return new Color(0, heightShade, 0);
-        }
+        // Draw vehicle as a colored rectangle
+        int halfWidth = sceneTransform.scale(8);
+        int halfHeight = sceneTransform.scale(4);
+        g2d.setColor(type.getColor());
+        g2d.fillRect(screenX - halfWidth, screenY - halfHeight, 2 * halfWidth, 2 * halfHeight);
+        g2d.setColor(Color.BLACK);
+        g2d.drawRect(screenX - halfWidth, screenY - halfHeight, 2 * halfWidth, 2 * halfHeight);
     }
     
-    private Color getZoneColor(ZoneType zoneType) {
-        switch (zoneType) {
-            case RESIDENTIAL:
-                return Color.GREEN;
-            case COMMERCIAL:
-                return Color.BLUE;
-            case INDUSTRIAL:
-                return Color.YELLOW;
-            default:
-                return Color.WHITE;
+    private void renderTrafficLight(Graphics2D g2d, Rectangle clip, int lightX, int lightY, TrafficLightState state) {
+        // Rotate, project and apply the camera offset
+        int screenX = sceneTransform.screenX(lightX, lightY);
+        int screenY = sceneTransform.screenY(lightX, lightY, 0) - sceneTransform.scale(20);
+        if (!isNearClip(clip, screenX, screenY)) {
+            return;
         }
-    }
-    
-    private void drawBuilding(Graphics2D g2d, Building building, int x, int y) {
-        Color buildingColor = getBuildingColor(building.getType());
-        g2d.setColor(buildingColor);
         
-        int width = 30;
-        int height = 40;
+        // Draw traffic light pole
+        g2d.setColor(Color.DARK_GRAY);
+        g2d.fillRect(screenX - sceneTransform.scale(2), screenY, sceneTransform.scale(4), sceneTransform.scale(15));
         
-        // Draw simple building representation
-        g2d.fillRect(x - width / 2, y - height, width, height);
+        // Draw traffic light box
+        int box = sceneTransform.scale(12);
         g2d.setColor(Color.BLACK);
-        g2d.drawRect(x - width / 2, y - height, width, height);
+        g2d.fillRect(screenX - box / 2, screenY - box, box, box);
         
-        // Draw building name
-        g2d.setFont(new Font("Arial", Font.PLAIN, 8));
-        String shortName = getShortName(building.getType());
-        FontMetrics fm = g2d.getFontMetrics();
-        int textWidth = fm.stringWidth(shortName);
-        g2d.drawString(shortName, x - textWidth / 2, y - height / 2);
-    }
-    
-    private Color getBuildingColor(BuildingType type) {
-        switch (type) {
-            case HOUSE:
-            case APARTMENT:
-                return new Color(200, 150, 100);
-            case POLICE_STATION:
-                return new Color(50, 50, 200);
-            case FIRE_STATION:
-                return new Color(200, 50, 50);
-            case SCHOOL:
-            case LIBRARY:
-                return new Color(200, 200, 50);
-            case HOSPITAL:
-                return new Color(200, 100, 100);
-            case FACTORY:
-                return new Color(100, 100, 100);
-            case OFFICE:
-                return new Color(150, 150, 200);
-            case SHOP:
-            case MALL:
-                return new Color(100, 200, 200);
-            case RESTAURANT:
-                return new Color(220, 120, 60);
-            case FAST_FOOD:
-                return new Color(255, 165, 0);
-            case PETROL_STATION:
-                return new Color(180, 180, 0);
-            case CINEMA:
-                return new Color(160, 82, 160);
-            case GYM:
-                return new Color(150, 200, 100);
-            case TOWN_HALL:
-                return new Color(180, 140, 100);
-            case POWER_PLANT:
-                return new Color(255, 200, 0);
-            case WATER_TOWER:
-                return new Color(100, 150, 255);
-            case ROAD:
-                return new Color(80, 80, 80);
-            case ROUNDABOUT:
-                return new Color(100, 100, 100);
-            case TRAFFIC_LIGHT:
-                return new Color(50, 50, 50);
-            case PARK:
-                return new Color(50, 150, 50);
-            case AIRPORT:
-                return new Color(120, 120, 180);
-            case RUNWAY:
-                return new Color(90, 90, 90);
-            case HANGAR:
-                return new Color(100, 100, 150);
-            case CONTROL_TOWER:
-                return new Color(140, 140, 200);
-            default:
-                return Color.GRAY;
-        }
+        // Draw colored light
+        int light = sceneTransform.scale(8);
+        g2d.setColor(state.getColor());
+        g2d.fillOval(screenX - light / 2, screenY - box + sceneTransform.scale(2), light, light);
     }
     
-    private String getShortName(BuildingType type) {
-        switch (type) {
-            case HOUSE: return "H";
-            case APARTMENT: return "APT";
-            case POLICE_STATION: return "POL";
-            case FIRE_STATION: return "FIRE";
-            case SCHOOL: return "SCH";
-            case HOSPITAL: return "HOSP";
-            case FACTORY: return "FAC";
-            case OFFICE: return "OFF";
-            case SHOP: return "SHOP";
-            case TOWN_HALL: return "HALL";
-            case POWER_PLANT: return "PWR";
-            case WATER_TOWER: return "H2O";
-            case ROAD: return "═";
-            case ROUNDABOUT: return "◯";
-            case PARK: return "PARK";
-            case RESTAURANT: return "REST";
-            case FAST_FOOD: return "FF";
-            case PETROL_STATION: return "GAS";
-            case TRAFFIC_LIGHT: return "⚡";
-            case MALL: return "MALL";
-            case CINEMA: return "CIN";
-            case GYM: return "GYM";
-            case LIBRARY: return "LIB";
-            case AIRPORT: return "AIR";
-            case RUNWAY: return "RWY";
-            case HANGAR: return "HGR";
-            case CONTROL_TOWER: return "TWR";
-            default: return "?";
-        }
+    private boolean isNearClip(Rectangle clip, int screenX, int screenY) {
+        int margin = sceneTransform.scale(IsometricUtils.getTileWidth() / 2);
+        return screenX >= clip.x - margin && screenX < clip.x + clip.width + margin &&
+               screenY >= clip.y - margin && screenY < clip.y + clip.height + margin;
     }
     
-    private void drawNaturalFeature(Graphics2D g2d, NaturalFeature feature, int x, int y) {
-        switch (feature) {
-            case TREE:
-                g2d.setColor(new Color(34, 139, 34));
-                g2d.fillOval(x - 8, y - 20, 16, 16);
-                g2d.setColor(new Color(101, 67, 33));
-                g2d.fillRect(x - 3, y - 10, 6, 10);
-                break;
-            case ROCK:
-                g2d.setColor(Color.GRAY);
-                g2d.fillOval(x - 6, y - 6, 12, 12);
-                break;
-            case BUSH:
-                g2d.setColor(new Color(0, 128, 0));
-                g2d.fillOval(x - 6, y - 6, 12, 12);
-                break;
+    /**
+     * Show the latest published simulation state.
+     */
+    public void setSnapshot(SimulationSnapshot snapshot) {
+        this.snapshot = snapshot;
+        if (!isRenderingActively()) {
+            repaint();
         }
     }
     
-    private void renderVehicle(Graphics2D g2d, Vehicle vehicle) {
-        Camera camera = gameState.getCamera();
-        CityMap map = gameState.getCityMap();
-        
-        // Apply rotation
-        Point rotated = camera.applyRotation(vehicle.getX(), vehicle.getY(), map.getWidth(), map.getHeight());
-        
-        // Convert to screen coordinates
-        Point screen = IsometricUtils.gridToScreen(rotated.x, rotated.y, 0);
-        
-        // Apply camera offset
-        int screenX = screen.x + camera.getOffsetX();
-        int screenY = screen.y + camera.getOffsetY();
-        
-        // Draw vehicle as a colored rectangle
-        g2d.setColor(vehicle.getType().getColor());
-        g2d.fillRect(screenX - 8, screenY - 4, 16, 8);
-        g2d.setColor(Color.BLACK);
-        g2d.drawRect(screenX - 8, screenY - 4, 16, 8);
-    }
-    
-    private void drawTrafficArrow(Graphics2D g2d, TrafficDirection direction, int x, int y) {
-        // Draw traffic direction arrow on the road
-        g2d.setColor(new Color(255, 255, 0, 200)); // Semi-transparent yellow
-        g2d.setFont(new Font("Arial", Font.BOLD, 20));
-        
-        String arrow = direction.getArrow();
-        FontMetrics fm = g2d.getFontMetrics();
-        int textWidth = fm.stringWidth(arrow);
-        int textHeight = fm.getAscent();
-        
-        g2d.drawString(arrow, x - textWidth / 2, y + textHeight / 4);
+    /**
+     * Keep a minimap's tiles and view outline in step with this panel.
+     */
+    public void setMinimap(MinimapPanel minimap) {
+        this.minimap = minimap;
     }
     
-    private void renderTrafficLight(Graphics2D g2d, TrafficLight light) {
-        Camera camera = gameState.getCamera();
-        CityMap map = gameState.getCityMap();
-        
-        // Apply rotation
-        Point rotated = camera.applyRotation(light.getX(), light.getY(), map.getWidth(), map.getHeight());
-        
-        // Convert to screen coordinates
-        Point screen = IsometricUtils.gridToScreen(rotated.x, rotated.y, 0);
-        
-        // Apply camera offset
-        int screenX = screen.x + camera.getOffsetX();
-        int screenY = screen.y + camera.getOffsetY() - 20;
-        
-        // Draw traffic light pole
-        g2d.setColor(Color.DARK_GRAY);
-        g2d.fillRect(screenX - 2, screenY, 4, 15);
-        
-        // Draw traffic light box
-        g2d.setColor(Color.BLACK);
-        g2d.fillRect(screenX - 6, screenY - 12, 12, 12);
-        
-        // Draw colored light
-        g2d.setColor(light.getState().getColor());
-        g2d.fillOval(screenX - 4, screenY - 10, 8, 8);
+    // Repaint after the camera moved or the map changed
+    private void viewChanged() {
+        repaint();
+        if (minimap != null) {
+            minimap.repaint();
+        }
     }
     
     public void setToolMode(ToolMode mode) {
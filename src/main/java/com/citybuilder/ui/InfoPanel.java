@@ -1,5 +1,6 @@
 package com.citybuilder.ui;
 
+import com.citybuilder.core.SimulationSnapshot;
 import com.citybuilder.model.*;
 
 import javax.swing.*;
@@ -17,6 +18,7 @@ public class InfoPanel extends JPanel {
     private JLabel dateLabel;
     private JLabel timeLabel;
     private JComboBox<Currency> currencySelector;
+    private SimulationSnapshot snapshot;
     
     public InfoPanel(GameState gameState) {
         this.gameState = gameState;
@@ -73,16 +75,21 @@ public class InfoPanel extends JPanel {
         add(dateLabel);
         add(timeLabel);
         
+        update(SimulationSnapshot.capture(gameState, 0));
+    }
+    
+    public void update(SimulationSnapshot snapshot) {
+        this.snapshot = snapshot;
         update();
     }
     
     public void update() {
         Currency curr = gameState.getCurrency();
-        moneyLabel.setText("💰 " + curr.format(gameState.getMoney()));
-        populationLabel.setText("👥 " + gameState.getPopulation());
-        happinessLabel.setText("😊 " + String.format("%.1f%%", gameState.getCityHappiness()));
+        moneyLabel.setText("💰 " + curr.format(snapshot.getMoney()));
+        populationLabel.setText("👥 " + snapshot.getPopulation());
+        happinessLabel.setText("😊 " + String.format("%.1f%%", snapshot.getCityHappiness()));
         
-        int netIncome = gameState.getMonthlyIncome() - gameState.getMonthlyExpenses();
+        int netIncome = snapshot.getMonthlyIncome() - snapshot.getMonthlyExpenses();
         String incomeText = "📊 ";
         if (netIncome >= 0) {
             incomeText += "+" + curr.format(netIncome);
@@ -92,10 +99,10 @@ public class InfoPanel extends JPanel {
         incomeLabel.setText(incomeText + "/mo");
         incomeLabel.setForeground(netIncome >= 0 ? Color.GREEN : Color.RED);
         
-        dateLabel.setText("📅 " + gameState.getGameDate().getFormattedDate());
+        dateLabel.setText("📅 " + snapshot.getFormattedDate());
         
-        TimeOfDay tod = gameState.getCurrentTimeOfDay();
+        TimeOfDay tod = snapshot.getTimeOfDay();
         String timeIcon = tod.isNight() ? "🌙" : "☀️";
-        timeLabel.setText(timeIcon + " " + gameState.getGameDate().getFormattedTime());
+        timeLabel.setText(timeIcon + " " + snapshot.getFormattedTime());
     }
 }
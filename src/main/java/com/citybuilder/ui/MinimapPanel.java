@@ -0,0 +1,185 @@
+package com.citybuilder.ui;
+
+import com.citybuilder.model.*;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+
+/**
+ * Overview of the whole map at one pixel per tile, with the outline of the
+ * main view on top. Clicking or dragging moves the main view there.
+ *
+ * The image is filled once per map. After that only the pixels of tiles the
+ * map's {@link TileChangeJournal} reports as changed are recoloured, so
+ * keeping it up to date costs the same on any map size, and painting it is
+ * one scaled image.
+ */
+public class MinimapPanel extends JPanel {
+    private static final int SIZE = 200;
+    private static final int MARGIN = 10;
+    
+    private final GameState gameState;
+    private final GamePanel gamePanel;
+    private final ScreenTransform transform = new ScreenTransform();
+    private final int[] groundColors = new int[TerrainType.values().length * (Tile.MAX_HEIGHT - Tile.MIN_HEIGHT + 1)];
+    private final int[] zoneColors = new int[ZoneType.values().length];
+    private final int[] xPoints = new int[4];
+    private final int[] yPoints = new int[4];
+    private CityMap map;
+    private TileChangeJournal.Subscription changes;
+    private BufferedImage image;
+    
+    public MinimapPanel(GameState gameState, GamePanel gamePanel) {
+        this.gameState = gameState;
+        this.gamePanel = gamePanel;
+        
+        for (TerrainType terrain : TerrainType.values()) {
+            for (int height = Tile.MIN_HEIGHT; height <= Tile.MAX_HEIGHT; height++) {
+                groundColors[groundIndex(terrain, height)] = SpriteAtlas.getTileColor(terrain, height).getRGB();
+            }
+        }
+        for (ZoneType zone : ZoneType.values()) {
+            zoneColors[zone.ordinal()] = SpriteAtlas.getZoneColor(zone).getRGB();
+        }
+        
+        setBackground(new Color(40, 40, 40));
+        setPreferredSize(new Dimension(SIZE, SIZE));
+        
+        MouseAdapter jump = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                jumpTo(e.getX(), e.getY());
+            }
+            
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                jumpTo(e.getX(), e.getY());
+            }
+        };
+        addMouseListener(jump);
+        addMouseMotionListener(jump);
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g;
+        BufferedImage minimap = getImage();
+        
+        double scale = getScale();
+        int left = getImageLeft(scale);
+        int top = getImageTop(scale);
+        int width = (int) Math.round(map.getWidth() * scale);
+        int height = (int) Math.round(map.getHeight() * scale);
+        g2d.drawImage(minimap, left, top, width, height, null);
+        
+        // Where the main view's corners fall on the map
+        transform.update(gameState.getCamera(), map);
+        int[] cornersX = {0, gamePanel.getWidth(), gamePanel.getWidth(), 0};
+        int[] cornersY = {0, 0, gamePanel.getHeight(), gamePanel.getHeight()};
+        for (int i = 0; i < 4; i++) {
+            int gridX = transform.gridX(cornersX[i], cornersY[i]);
+            int gridY = transform.gridY(cornersX[i], cornersY[i]);
+            xPoints[i] = left + (int) Math.round((gridX + 0.5) * scale);
+            yPoints[i] = top + (int) Math.round((gridY + 0.5) * scale);
+        }
+        
+        Shape clip = g2d.getClip();
+        g2d.clipRect(left, top, width, height);
+        g2d.setColor(Color.WHITE);
+        g2d.drawPolygon(xPoints, yPoints, 4);
+        g2d.setClip(clip);
+    }
+    
+    /**
+     * Centre the main view on the tile under a point of this panel.
+     */
+    void jumpTo(int panelX, int panelY) {
+        getImage();
+        double scale = getScale();
+        int x = (int) Math.floor((panelX - getImageLeft(scale)) / scale);
+        int y = (int) Math.floor((panelY - getImageTop(scale)) / scale);
+        x = Math.max(0, Math.min(map.getWidth() - 1, x));
+        y = Math.max(0, Math.min(map.getHeight() - 1, y));
+        
+        Camera camera = gameState.getCamera();
+        transform.update(camera, map);
+        camera.move(gamePanel.getWidth() / 2 - transform.screenX(x, y),
+            gamePanel.getHeight() / 2 - transform.screenY(x, y, map.getHeight(x, y)));
+        gamePanel.repaint();
+        repaint();
+    }
+    
+    /**
+     * The minimap image, filled from scratch if the map was replaced and
+     * otherwise recoloured where tiles changed.
+     */
+    BufferedImage getImage() {
+        CityMap currentMap = gameState.getCityMap();
+        if (currentMap != map) {
+            if (changes != null) {
+                changes.cancel();
+            }
+            map = currentMap;
+            changes = map.getJournal().subscribe(TileChangeJournal.Change.TERRAIN, TileChangeJournal.Change.HEIGHT,
+                TileChangeJournal.Change.ZONE, TileChangeJournal.Change.BUILDING);
+            image = new BufferedImage(map.getWidth(), map.getHeight(), BufferedImage.TYPE_INT_RGB);
+            int[] row = new int[map.getWidth()];
+            for (int y = 0; y < map.getHeight(); y++) {
+                for (int x = 0; x < map.getWidth(); x++) {
+                    row[x] = tileColor(x, y);
+                }
+                image.setRGB(0, y, row.length, 1, row, 0, row.length);
+            }
+        }
+        changes.drain(this::recolour);
+        return image;
+    }
+    
+    private void recolour(int x, int y) {
+        image.setRGB(x, y, tileColor(x, y));
+    }
+    
+    // Map pixels per tile, fitting the whole map inside the margin
+    private double getScale() {
+        return Math.min((double) (getWidth() - 2 * MARGIN) / map.getWidth(),
+                        (double) (getHeight() - 2 * MARGIN) / map.getHeight());
+    }
+    
+    private int getImageLeft(double scale) {
+        return (getWidth() - (int) Math.round(map.getWidth() * scale)) / 2;
+    }
+    
+    private int getImageTop(double scale) {
+        return (getHeight() - (int) Math.round(map.getHeight() * scale)) / 2;
+    }
+    
+    // Building colour, else the zone tint over the ground, like the main view from above
+    private int tileColor(int x, int y) {
+        BuildingType building = map.getBuildingType(x, y);
+        if (building != null) {
+            return building.getColor().getRGB();
+        }
+        int level = Math.max(Tile.MIN_HEIGHT, Math.min(Tile.MAX_HEIGHT, map.getHeight(x, y)));
+        int ground = groundColors[groundIndex(map.getTerrainType(x, y), level)];
+        ZoneType zone = map.getZoneType(x, y);
+        return zone == ZoneType.NONE ? ground : blend(zoneColors[zone.ordinal()], ground, SpriteAtlas.ZONE_ALPHA);
+    }
+    
+    private static int groundIndex(TerrainType terrain, int height) {
+        return terrain.ordinal() * (Tile.MAX_HEIGHT - Tile.MIN_HEIGHT + 1) + height - Tile.MIN_HEIGHT;
+    }
+    
+    private static int blend(int over, int under, int alpha) {
+        int result = 0xFF000000;
+        for (int shift = 0; shift < 24; shift += 8) {
+            int top = (over >> shift) & 0xFF;
+            int bottom = (under >> shift) & 0xFF;
+            result |= ((top * alpha + bottom * (255 - alpha) + 127) / 255) << shift;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+package com.citybuilder.ui;
+
+import com.citybuilder.model.Camera;
+import com.citybuilder.model.CityMap;
+import com.citybuilder.util.IsometricUtils;
+
+/**
+ * Map tiles to screen pixels and back for one camera position, rotation,
+ * zoom and map size, without allocating.
+ *
+ * Rotation and the isometric projection are both linear, so {@link #update}
+ * folds them into the unzoomed position of tile (0, 0) and one step per map
+ * x and per map y. Projecting a tile is then two multiply-adds per axis,
+ * scaled by the zoom and shifted by the camera offset; picking undoes the
+ * zoom, the projection and the rotation.
+ */
+class ScreenTransform {
+    private static final int HEIGHT_STEP = IsometricUtils.getHeightStep();
+    
+    private Camera camera;
+    private int mapWidth;
+    private int mapHeight;
+    private int offsetX;
+    private int offsetY;
+    private double zoom;
+    private int originX; // Unzoomed, without the camera offset
+    private int originY;
+    private int stepXPerX; // Screen x change per map x
+    private int stepXPerY;
+    private int stepYPerX;
+    private int stepYPerY;
+    
+    /**
+     * Take the camera's current offset and rotation; call once per frame or
+     * click, before any transforms.
+     */
+    void update(Camera camera, CityMap map) {
+        this.camera = camera;
+        this.mapWidth = map.getWidth();
+        this.mapHeight = map.getHeight();
+        this.offsetX = camera.getOffsetX();
+        this.offsetY = camera.getOffsetY();
+        this.zoom = camera.getZoom();
+        
+        originX = project(0, 0, true);
+        originY = project(0, 0, false);
+        stepXPerX = project(1, 0, true) - originX;
+        stepYPerX = project(1, 0, false) - originY;
+        stepXPerY = project(0, 1, true) - originX;
+        stepYPerY = project(0, 1, false) - originY;
+    }
+    
+    // Unzoomed x or y of a tile the long way, through the rotated grid
+    private int project(int x, int y, boolean screenX) {
+        int rx = camera.rotateX(x, y, mapWidth, mapHeight);
+        int ry = camera.rotateY(x, y, mapWidth, mapHeight);
+        return screenX ? IsometricUtils.gridToScreenX(rx, ry) : IsometricUtils.gridToScreenY(rx, ry, 0);
+    }
+    
+    /**
+     * Screen x of map tile (x, y).
+     */
+    int screenX(int x, int y) {
+        return offsetX + scale(originX + x * stepXPerX + y * stepXPerY);
+    }
+    
+    /**
+     * Screen y of map tile (x, y) raised to the given terrain height.
+     */
+    int screenY(int x, int y, int height) {
+        return offsetY + scale(originY + x * stepYPerX + y * stepYPerY - height * HEIGHT_STEP);
+    }
+    
+    /**
+     * Screen length of an unzoomed length, such as the size of a vehicle.
+     */
+    int scale(int length) {
+        return zoom == 1.0 ? length : (int) Math.floor(length * zoom);
+    }
+    
+    /**
+     * Map x of the tile under a screen position, which may be off the map.
+     */
+    int gridX(int screenX, int screenY) {
+        int rx = IsometricUtils.screenToGridX(unscale(screenX - offsetX), unscale(screenY - offsetY));
+        int ry = IsometricUtils.screenToGridY(unscale(screenX - offsetX), unscale(screenY - offsetY));
+        return camera.unrotateX(rx, ry, mapWidth, mapHeight);
+    }
+    
+    /**
+     * Map y of the tile under a screen position, which may be off the map.
+     */
+    int gridY(int screenX, int screenY) {
+        int rx = IsometricUtils.screenToGridX(unscale(screenX - offsetX), unscale(screenY - offsetY));
+        int ry = IsometricUtils.screenToGridY(unscale(screenX - offsetX), unscale(screenY - offsetY));
+        return camera.unrotateY(rx, ry, mapWidth, mapHeight);
+    }
+    
+    private int unscale(int length) {
+        return zoom == 1.0 ? length : (int) Math.floor(length / zoom);
+    }
+}
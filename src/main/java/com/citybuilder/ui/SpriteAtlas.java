@@ -0,0 +1,309 @@
+package com.citybuilder.ui;
+
+import com.citybuilder.model.*;
+import com.citybuilder.util.IsometricUtils;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Every picture a tile is made of, drawn once at one scale.
+ *
+ * Ground diamonds for each terrain and height shade, zone overlays,
+ * buildings with their labels, natural features and traffic arrows are
+ * each rendered into a small image cropped to what was drawn, so drawing a
+ * tile is a few image copies with no shapes, fonts or colours involved.
+ * Sprites use the same premultiplied ARGB layout as the chunk images they
+ * are copied into. An atlas without detail, for zoomed out views, has no
+ * building labels and no traffic arrows.
+ */
+class SpriteAtlas {
+    private static final int TILE_WIDTH = IsometricUtils.getTileWidth();
+    private static final int TILE_HEIGHT = IsometricUtils.getTileHeight();
+    private static final int BUILDING_WIDTH = 30;
+    private static final int BUILDING_HEIGHT = 40;
+    private static final int HEIGHTS = Tile.MAX_HEIGHT - Tile.MIN_HEIGHT + 1;
+    private static final Font LABEL_FONT = new Font("Arial", Font.PLAIN, 8);
+    private static final Font ARROW_FONT = new Font("Arial", Font.BOLD, 20);
+    private static final Color ARROW_COLOR = new Color(255, 255, 0, 200); // Semi-transparent yellow
+    static final int ZONE_ALPHA = 100;
+    
+    private final double scale;
+    private final boolean detailed;
+    private final Sprite[][] ground = new Sprite[TerrainType.values().length][HEIGHTS];
+    private final Sprite[] zones = new Sprite[ZoneType.values().length];
+    private final Sprite[] buildings = new Sprite[BuildingType.values().length];
+    private final Sprite[] features = new Sprite[NaturalFeature.values().length];
+    private final Sprite[] arrows = new Sprite[TrafficDirection.values().length];
+    private final int[] xPoints = new int[4];
+    private final int[] yPoints = new int[4];
+    private long bytes;
+    
+    /**
+     * Render all sprites with full detail, scaled by the given factor from
+     * their size at zoom 1.
+     */
+    SpriteAtlas(double scale) {
+        this(scale, true);
+    }
+    
+    SpriteAtlas(double scale, boolean detailed) {
+        this.scale = scale;
+        this.detailed = detailed;
+        for (TerrainType terrain : TerrainType.values()) {
+            Sprite flat = null;
+            for (int height = Tile.MIN_HEIGHT; height <= Tile.MAX_HEIGHT; height++) {
+                // Only grass is shaded by height
+                if (terrain == TerrainType.GRASS || flat == null) {
+                    Color color = getTileColor(terrain, height);
+                    flat = render(g2d -> drawGround(g2d, color));
+                }
+                ground[terrain.ordinal()][height - Tile.MIN_HEIGHT] = flat;
+            }
+        }
+        for (ZoneType zone : ZoneType.values()) {
+            if (zone != ZoneType.NONE) {
+                Color color = getZoneColor(zone);
+                Color overlay = new Color(color.getRed(), color.getGreen(), color.getBlue(), ZONE_ALPHA);
+                zones[zone.ordinal()] = render(g2d -> drawZone(g2d, overlay));
+            }
+        }
+        for (BuildingType type : BuildingType.values()) {
+            buildings[type.ordinal()] = render(g2d -> drawBuilding(g2d, type, detailed));
+        }
+        for (NaturalFeature feature : NaturalFeature.values()) {
+            features[feature.ordinal()] = render(g2d -> drawNaturalFeature(g2d, feature));
+        }
+        if (detailed) {
+            for (TrafficDirection direction : TrafficDirection.values()) {
+                arrows[direction.ordinal()] = render(g2d -> drawTrafficArrow(g2d, direction));
+            }
+        }
+    }
+    
+    double getScale() {
+        return scale;
+    }
+    
+    /**
+     * Whether buildings are labelled and traffic arrows exist.
+     */
+    boolean isDetailed() {
+        return detailed;
+    }
+    
+    /**
+     * Memory held by the sprite images, in bytes.
+     */
+    long getBytes() {
+        return bytes;
+    }
+    
+    Sprite ground(TerrainType terrain, int height) {
+        int level = Math.max(Tile.MIN_HEIGHT, Math.min(Tile.MAX_HEIGHT, height));
+        return ground[terrain.ordinal()][level - Tile.MIN_HEIGHT];
+    }
+    
+    /**
+     * The zone overlay, or null for {@link ZoneType#NONE}.
+     */
+    Sprite zone(ZoneType zone) {
+        return zones[zone.ordinal()];
+    }
+    
+    Sprite building(BuildingType type) {
+        return buildings[type.ordinal()];
+    }
+    
+    Sprite feature(NaturalFeature feature) {
+        return features[feature.ordinal()];
+    }
+    
+    /**
+     * The traffic arrow, or null without detail.
+     */
+    Sprite arrow(TrafficDirection direction) {
+        return arrows[direction.ordinal()];
+    }
+    
+    private interface Painter {
+        void paint(Graphics2D g2d);
+    }
+    
+    // Draw around an anchor at (0, 0) on a canvas the size of a whole tile, then crop
+    private Sprite render(Painter painter) {
+        int anchorX = (int) Math.ceil(TileRenderer.EXTENT_SIDE * scale) + 1;
+        int anchorY = (int) Math.ceil(TileRenderer.EXTENT_ABOVE * scale) + 1;
+        int width = 2 * anchorX;
+        int height = anchorY + (int) Math.ceil(TileRenderer.EXTENT_BELOW * scale) + 1;
+        
+        BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2d = canvas.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.translate(anchorX, anchorY);
+            g2d.scale(scale, scale);
+            painter.paint(g2d);
+        } finally {
+            g2d.dispose();
+        }
+        
+        // Tight bounds of the drawn pixels
+        int minX = width;
+        int minY = height;
+        int maxX = -1;
+        int maxY = -1;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if ((canvas.getRGB(x, y) >>> 24) != 0) {
+                    minX = Math.min(minX, x);
+                    maxX = Math.max(maxX, x);
+                    minY = Math.min(minY, y);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+        }
+        if (maxX < 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        
+        BufferedImage image = new BufferedImage(maxX - minX + 1, maxY - minY + 1, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D copy = image.createGraphics();
+        try {
+            copy.setComposite(AlphaComposite.Src);
+            copy.drawImage(canvas, -minX, -minY, null);
+        } finally {
+            copy.dispose();
+        }
+        bytes += 4L * image.getWidth() * image.getHeight();
+        return new Sprite(image, anchorX - minX, anchorY - minY);
+    }
+    
+    private void drawGround(Graphics2D g2d, Color color) {
+        diamond();
+        g2d.setColor(color);
+        g2d.fillPolygon(xPoints, yPoints, 4);
+        
+        // Tile border
+        g2d.setColor(Color.BLACK);
+        g2d.drawPolygon(xPoints, yPoints, 4);
+    }
+    
+    private void drawZone(Graphics2D g2d, Color overlay) {
+        diamond();
+        g2d.setColor(overlay);
+        g2d.fillPolygon(xPoints, yPoints, 4);
+    }
+    
+    // Isometric diamond around the anchor
+    private void diamond() {
+        xPoints[0] = 0;
+        xPoints[1] = TILE_WIDTH / 2;
+        xPoints[2] = 0;
+        xPoints[3] = -TILE_WIDTH / 2;
+        yPoints[0] = -TILE_HEIGHT / 2;
+        yPoints[1] = 0;
+        yPoints[2] = TILE_HEIGHT / 2;
+        yPoints[3] = 0;
+    }
+    
+    static Color getTileColor(TerrainType terrainType, int height) {
+        switch (terrainType) {
+            case WATER:
+                return new Color(50, 100, 200);
+            case DIRT:
+                return new Color(139, 90, 43);
+            case SAND:
+                return new Color(238, 214, 175);
+            case GRASS:
+            default:
+                int heightShade = Math.max(0, Math.min(255, 120 + height * 10));
+                return new Color(0, heightShade, 0);
+        }
+    }
+    
+    static Color getZoneColor(ZoneType zoneType) {
+        switch (zoneType) {
+            case RESIDENTIAL:
+                return Color.GREEN;
+            case COMMERCIAL:
+                return Color.BLUE;
+            case INDUSTRIAL:
+                return Color.YELLOW;
+            default:
+                return Color.WHITE;
+        }
+    }
+    
+    private static void drawBuilding(Graphics2D g2d, BuildingType type, boolean label) {
+        int width = BUILDING_WIDTH;
+        int height = BUILDING_HEIGHT;
+        
+        // Draw simple building representation
+        g2d.setColor(type.getColor());
+        g2d.fillRect(-width / 2, -height, width, height);
+        g2d.setColor(Color.BLACK);
+        g2d.drawRect(-width / 2, -height, width, height);
+        if (!label) {
+            return;
+        }
+        
+        // Draw building name
+        g2d.setFont(LABEL_FONT);
+        String shortName = type.getShortName();
+        FontMetrics fm = g2d.getFontMetrics();
+        int textWidth = fm.stringWidth(shortName);
+        g2d.drawString(shortName, -textWidth / 2, -height / 2);
+    }
+    
+    private static void drawNaturalFeature(Graphics2D g2d, NaturalFeature feature) {
+        switch (feature) {
+            case TREE:
+                g2d.setColor(new Color(34, 139, 34));
+                g2d.fillOval(-8, -20, 16, 16);
+                g2d.setColor(new Color(101, 67, 33));
+                g2d.fillRect(-3, -10, 6, 10);
+                break;
+            case ROCK:
+                g2d.setColor(Color.GRAY);
+                g2d.fillOval(-6, -6, 12, 12);
+                break;
+            case BUSH:
+                g2d.setColor(new Color(0, 128, 0));
+                g2d.fillOval(-6, -6, 12, 12);
+                break;
+        }
+    }
+    
+    private static void drawTrafficArrow(Graphics2D g2d, TrafficDirection direction) {
+        g2d.setColor(ARROW_COLOR);
+        g2d.setFont(ARROW_FONT);
+        
+        String arrow = direction.getArrow();
+        FontMetrics fm = g2d.getFontMetrics();
+        int textWidth = fm.stringWidth(arrow);
+        int textHeight = fm.getAscent();
+        
+        g2d.drawString(arrow, -textWidth / 2, textHeight / 4);
+    }
+    
+    /**
+     * One pre-rendered picture and the pixel in it that goes on the tile's
+     * screen anchor.
+     */
+    static final class Sprite {
+        final BufferedImage image;
+        final int anchorX;
+        final int anchorY;
+        
+        Sprite(BufferedImage image, int anchorX, int anchorY) {
+            this.image = image;
+            this.anchorX = anchorX;
+            this.anchorY = anchorY;
+        }
+        
+        void draw(Graphics2D g2d, int screenX, int screenY) {
+            g2d.drawImage(image, screenX - anchorX, screenY - anchorY, null);
+        }
+    }
+}
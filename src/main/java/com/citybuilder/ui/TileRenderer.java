@@ -0,0 +1,57 @@
+package com.citybuilder.ui;
+
+import com.citybuilder.model.*;
+import com.citybuilder.util.IsometricUtils;
+
+import java.awt.*;
+
+/**
+ * Draws a single map tile: terrain, zone overlay, building or natural
+ * feature and the traffic arrow on roads, each copied from a
+ * {@link SpriteAtlas}. Arrows are left out when the atlas has no detail.
+ */
+class TileRenderer {
+    // How far a tile's drawing reaches around its screen anchor
+    static final int EXTENT_SIDE = IsometricUtils.getTileWidth() / 2 + 2; // Outline reaches past the right corner
+    static final int EXTENT_ABOVE = 42; // Building top plus outline
+    static final int EXTENT_BELOW = IsometricUtils.getTileHeight() / 2 + 2;
+    
+    private final SpriteAtlas atlas;
+    
+    TileRenderer() {
+        this(new SpriteAtlas(1.0));
+    }
+    
+    TileRenderer(SpriteAtlas atlas) {
+        this.atlas = atlas;
+    }
+    
+    /**
+     * Draw the tile at map position (x, y) with its anchor at (screenX, screenY).
+     */
+    void renderTile(Graphics2D g2d, CityMap map, int x, int y, int screenX, int screenY) {
+        atlas.ground(map.getTerrainType(x, y), map.getHeight(x, y)).draw(g2d, screenX, screenY);
+        
+        // Draw zone overlay
+        ZoneType zoneType = map.getZoneType(x, y);
+        if (zoneType != ZoneType.NONE) {
+            atlas.zone(zoneType).draw(g2d, screenX, screenY);
+        }
+        
+        // Draw building or natural feature
+        BuildingType buildingType = map.getBuildingType(x, y);
+        if (buildingType != null) {
+            atlas.building(buildingType).draw(g2d, screenX, screenY);
+            
+            // Draw traffic direction arrow on roads
+            if (atlas.isDetailed() && map.isRoad(x, y)) {
+                atlas.arrow(map.getTrafficDirection(x, y)).draw(g2d, screenX, screenY);
+            }
+        } else {
+            NaturalFeature feature = map.getNaturalFeature(x, y);
+            if (feature != null) {
+                atlas.feature(feature).draw(g2d, screenX, screenY);
+            }
+        }
+    }
+}
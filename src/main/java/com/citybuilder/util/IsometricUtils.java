@@ -8,23 +8,42 @@ import java.awt.Point;
 public class IsometricUtils {
     private static final int TILE_WIDTH = 64;
     private static final int TILE_HEIGHT = 32;
+    private static final int HEIGHT_STEP = 8; // Screen pixels per terrain height level
     
     /**
      * Convert grid coordinates to screen coordinates (isometric).
      */
     public static Point gridToScreen(int gridX, int gridY, int height) {
-        int screenX = (gridX - gridY) * (TILE_WIDTH / 2);
-        int screenY = (gridX + gridY) * (TILE_HEIGHT / 2) - (height * 8);
-        return new Point(screenX, screenY);
+        return new Point(gridToScreenX(gridX, gridY), gridToScreenY(gridX, gridY, height));
     }
     
     /**
      * Convert screen coordinates to grid coordinates (isometric).
      */
     public static Point screenToGrid(int screenX, int screenY) {
-        int gridX = (screenX / (TILE_WIDTH / 2) + screenY / (TILE_HEIGHT / 2)) / 2;
-        int gridY = (screenY / (TILE_HEIGHT / 2) - screenX / (TILE_WIDTH / 2)) / 2;
-        return new Point(gridX, gridY);
+        return new Point(screenToGridX(screenX, screenY), screenToGridY(screenX, screenY));
+    }
+    
+    /**
+     * Screen x of a grid position; {@link #gridToScreen} without the Point.
+     */
+    public static int gridToScreenX(int gridX, int gridY) {
+        return (gridX - gridY) * (TILE_WIDTH / 2);
+    }
+    
+    public static int gridToScreenY(int gridX, int gridY, int height) {
+        return (gridX + gridY) * (TILE_HEIGHT / 2) - (height * HEIGHT_STEP);
+    }
+    
+    /**
+     * Grid x of a screen position; {@link #screenToGrid} without the Point.
+     */
+    public static int screenToGridX(int screenX, int screenY) {
+        return (screenX / (TILE_WIDTH / 2) + screenY / (TILE_HEIGHT / 2)) / 2;
+    }
+    
+    public static int screenToGridY(int screenX, int screenY) {
+        return (screenY / (TILE_HEIGHT / 2) - screenX / (TILE_WIDTH / 2)) / 2;
     }
     
     public static int getTileWidth() {
@@ -34,4 +53,8 @@ public class IsometricUtils {
     public static int getTileHeight() {
         return TILE_HEIGHT;
     }
+    
+    public static int getHeightStep() {
+        return HEIGHT_STEP;
+    }
 }
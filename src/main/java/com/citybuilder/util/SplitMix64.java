@@ -0,0 +1,117 @@
+package com.citybuilder.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small, fast, seeded random number generator (SplitMix64) whose whole
+ * state is two longs, so it can be saved with a game and resumed exactly.
+ *
+ * The same seed always gives the same sequence, on any JVM. {@link #split()}
+ * hands out an independent generator for a system that needs its own
+ * stream, so the numbers one system draws never shift another's. This is
+ * the algorithm behind {@link java.util.SplittableRandom}, which does not
+ * expose its state for saving.
+ */
+public final class SplitMix64 {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+    private static final AtomicLong SEEDS = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+    
+    private long state;
+    private final long gamma; // Odd step added to the state per draw
+    
+    public SplitMix64(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+    
+    /**
+     * Resume a generator from a saved {@link #getState() state} and
+     * {@link #getGamma() gamma}.
+     */
+    public SplitMix64(long state, long gamma) {
+        this.state = state;
+        this.gamma = gamma | 1;
+    }
+    
+    /**
+     * A seed that differs on every call, for games nobody asked to reproduce.
+     */
+    public static long randomSeed() {
+        return mix64(SEEDS.addAndGet(GOLDEN_GAMMA));
+    }
+    
+    public long nextLong() {
+        state += gamma;
+        return mix64(state);
+    }
+    
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+    
+    /**
+     * Uniform in 0 (inclusive) up to bound (exclusive).
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive: " + bound);
+        }
+        // Reject the top sliver of values so every result is equally likely
+        int bits;
+        int result;
+        do {
+            bits = (int) (nextLong() >>> 33);
+            result = bits % bound;
+        } while (bits - result + (bound - 1) < 0);
+        return result;
+    }
+    
+    /**
+     * Uniform in 0 (inclusive) up to 1 (exclusive).
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+    
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+    
+    /**
+     * A new generator drawing a sequence independent of this one, which
+     * advances this one by two draws.
+     */
+    public SplitMix64 split() {
+        return new SplitMix64(nextLong(), mixGamma(nextLong()));
+    }
+    
+    public SplitMix64 copy() {
+        return new SplitMix64(state, gamma);
+    }
+    
+    public long getState() {
+        return state;
+    }
+    
+    public long getGamma() {
+        return gamma;
+    }
+    
+    /**
+     * Stafford's variant 13 finalizer: spreads every input bit over the
+     * whole output. Also suits hashing.
+     */
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    // Odd, with enough bit transitions that the sequence looks random
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+    }
+}
@@ -0,0 +1,105 @@
+package com.citybuilder.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a scan over map rows or columns into stripes of
+ * {@link #STRIPE_SIZE} and runs the stripes on a fork/join pool.
+ *
+ * Every stripe returns its own partial result and the partials come back in
+ * stripe order, so combining them in that order gives the same answer as a
+ * single pass over the map, however many threads ran the stripes. Run with
+ * {@code -Dcitybuilder.sequentialScans=true} to scan on the calling thread,
+ * for debugging.
+ */
+public class StripedScan {
+    public static final int STRIPE_SIZE = 16; // Rows or columns per stripe
+    
+    private static final boolean SEQUENTIAL = Boolean.getBoolean("citybuilder.sequentialScans");
+    private static final StripedScan SEQUENTIAL_SCAN = new StripedScan(null);
+    private static final StripedScan SHARED = SEQUENTIAL ? SEQUENTIAL_SCAN : new StripedScan(ForkJoinPool.commonPool());
+    
+    /**
+     * Scans the rows or columns from {@code from} up to, not including,
+     * {@code to} and returns what it found there.
+     */
+    public interface Stripe<T> {
+        T scan(int from, int to);
+    }
+    
+    private final ForkJoinPool pool; // Null to scan on the calling thread
+    
+    /**
+     * A scan running its stripes on the given pool, or on the calling thread
+     * when the pool is null.
+     */
+    public StripedScan(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * The scan used by the simulation: the common fork/join pool, unless
+     * sequential scans were asked for.
+     */
+    public static StripedScan shared() {
+        return SHARED;
+    }
+    
+    public static StripedScan sequential() {
+        return SEQUENTIAL_SCAN;
+    }
+    
+    /**
+     * Scan {@code length} rows or columns stripe by stripe and return the
+     * partial results in stripe order.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> scan(int length, Stripe<T> stripe) {
+        int stripes = (length + STRIPE_SIZE - 1) / STRIPE_SIZE;
+        Object[] partials = new Object[stripes];
+        if (pool == null || stripes < 2) {
+            for (int i = 0; i < stripes; i++) {
+                partials[i] = scanStripe(stripe, length, i);
+            }
+        } else {
+            pool.invoke(new StripeTask<>(stripe, length, 0, stripes, partials));
+        }
+        return (List<T>) Arrays.asList(partials);
+    }
+    
+    private static <T> T scanStripe(Stripe<T> stripe, int length, int index) {
+        int from = index * STRIPE_SIZE;
+        return stripe.scan(from, Math.min(length, from + STRIPE_SIZE));
+    }
+    
+    // Halves its range of stripes until one is left, writing each partial to its own slot
+    private static class StripeTask<T> extends RecursiveAction {
+        private final Stripe<T> stripe;
+        private final int length;
+        private final int first;
+        private final int last;
+        private final Object[] partials;
+        
+        StripeTask(Stripe<T> stripe, int length, int first, int last, Object[] partials) {
+            this.stripe = stripe;
+            this.length = length;
+            this.first = first;
+            this.last = last;
+            this.partials = partials;
+        }
+        
+        @Override
+        protected void compute() {
+            if (last - first == 1) {
+                partials[first] = scanStripe(stripe, length, first);
+            } else {
+                int middle = (first + last) >>> 1;
+                invokeAll(new StripeTask<>(stripe, length, first, middle, partials),
+                          new StripeTask<>(stripe, length, middle, last, partials));
+            }
+        }
+    }
+}
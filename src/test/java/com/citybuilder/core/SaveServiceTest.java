@@ -0,0 +1,97 @@
+package com.citybuilder.core;
+
+import com.citybuilder.model.BinarySaveFormat;
+import com.citybuilder.model.GameState;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies background saves and autosave rotation.
+ */
+public class SaveServiceTest {
+    private Path directory;
+    private GameState gameState;
+    private SaveService saveService;
+    
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("citybuilder-saves");
+        gameState = new GameState();
+        gameState.initializeNewGame(20, 20);
+        saveService = new SaveService(gameState, directory, 1, 60, 3);
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        saveService.shutdown();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+    
+    @Test
+    public void testAutosavesRotateNewestFirst() throws Exception {
+        for (int month = 1; month <= 5; month++) {
+            gameState.updateMonthly();
+            saveService.autosaveNow().get(10, TimeUnit.SECONDS);
+        }
+        
+        assertEquals(5, gameMonth(1));
+        assertEquals(4, gameMonth(2));
+        assertEquals(3, gameMonth(3));
+        assertFalse(Files.exists(autosave(4)));
+    }
+    
+    @Test
+    public void testInterruptedWriteKeepsPreviousAutosave() throws Exception {
+        gameState.updateMonthly();
+        saveService.autosaveNow().get(10, TimeUnit.SECONDS);
+        
+        // A crash part way through the next autosave leaves a truncated temp file behind
+        Files.write(directory.resolve(SaveService.AUTOSAVE_PREFIX + "new" + BinarySaveFormat.EXTENSION + ".tmp"),
+            new byte[] {'C', 'T', 'Y', 'B', 0});
+        assertEquals(1, gameMonth(1));
+        
+        gameState.updateMonthly();
+        saveService.autosaveNow().get(10, TimeUnit.SECONDS);
+        assertEquals(2, gameMonth(1));
+        assertEquals(1, gameMonth(2));
+    }
+    
+    @Test
+    public void testSaveUsesSnapshotTakenWhenRequested() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicBoolean success = new AtomicBoolean();
+        gameState.setMoney(777);
+        saveService.save("manual", result -> {
+            success.set(result);
+            done.countDown();
+        });
+        gameState.setMoney(1);
+        
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(success.get());
+        GameState loaded = BinarySaveFormat.read(directory.resolve("manual" + BinarySaveFormat.EXTENSION));
+        assertEquals(777, loaded.getMoney());
+    }
+    
+    private Path autosave(int index) {
+        return directory.resolve(SaveService.AUTOSAVE_PREFIX + index + BinarySaveFormat.EXTENSION);
+    }
+    
+    private int gameMonth(int index) throws IOException {
+        return BinarySaveFormat.read(autosave(index)).getGameMonth();
+    }
+}
@@ -0,0 +1,106 @@
+package com.citybuilder.core;
+
+import com.citybuilder.model.*;
+import com.citybuilder.util.StripedScan;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the striped monthly passes give the same city on any number
+ * of threads as on one, and that a seeded game plays out the same tick for
+ * tick.
+ */
+public class SimulationTest {
+    @Test
+    public void testPopulationIndependentOfThreadCount() {
+        List<String> expected = moveIn(StripedScan.sequential());
+        assertFalse(expected.isEmpty());
+        for (int threads : new int[] {1, 2, 3, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                assertEquals("threads " + threads, expected, moveIn(new StripedScan(pool)));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+    
+    @Test
+    public void testSameSeedGivesSameTicks() {
+        List<Long> expected = playOut(77, StripedScan.sequential());
+        assertEquals(expected, playOut(77, StripedScan.sequential()));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(expected, playOut(77, new StripedScan(pool)));
+        } finally {
+            pool.shutdown();
+        }
+        assertNotEquals(expected, playOut(78, StripedScan.sequential()));
+    }
+    
+    // State hashes of a small seeded city with roads, housing and malls, tick by tick
+    private static List<Long> playOut(long seed, StripedScan scan) {
+        GameState state = new GameState();
+        state.initializeNewGame(60, 40, seed);
+        CityMap map = state.getCityMap();
+        for (int x = 0; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                map.setNaturalFeature(x, y, null);
+                map.setTerrainType(x, y, TerrainType.GRASS);
+                if (x % 6 == 0 || y % 6 == 0) {
+                    map.setBuildingType(x, y, BuildingType.ROAD);
+                } else if (x % 6 == 1 && y % 6 == 1) {
+                    map.setBuildingType(x, y, x < 30 ? BuildingType.POWER_PLANT : BuildingType.WATER_TOWER);
+                } else if (x % 12 == 1 && y % 6 == 3) { // Next to a road
+                    map.setBuildingType(x, y, BuildingType.MALL);
+                } else {
+                    map.setBuildingType(x, y, BuildingType.HOUSE);
+                }
+            }
+        }
+        
+        Simulation simulation = new Simulation(state, scan);
+        List<Long> hashes = new ArrayList<>();
+        for (int tick = 0; tick < 4 * Simulation.TICKS_PER_MONTH; tick++) {
+            simulation.tick();
+            hashes.add(simulation.getStateHash());
+        }
+        assertFalse(state.getVehicles().isEmpty());
+        return hashes;
+    }
+    
+    // Fill a random city for a few months and list where everyone lives
+    private static List<String> moveIn(StripedScan scan) {
+        Random random = new Random(18);
+        BuildingType[] types = BuildingType.values();
+        GameState state = new GameState();
+        state.initializeNewGame(150, 90);
+        CityMap map = state.getCityMap();
+        for (int x = 0; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                if (random.nextInt(3) == 0) {
+                    map.setBuildingType(x, y, types[random.nextInt(types.length)]);
+                    map.setHasElectricity(x, y, random.nextInt(4) != 0);
+                    map.setHasWater(x, y, random.nextInt(4) != 0);
+                }
+            }
+        }
+        
+        Simulation simulation = new Simulation(state, scan);
+        for (int month = 0; month < 4; month++) {
+            simulation.updatePopulation();
+        }
+        
+        List<String> residents = new ArrayList<>();
+        residents.add("population " + state.getPopulation());
+        state.getResidents().forEachGroup((x, y, birthYear, happiness, sleeping, count) ->
+            residents.add(x + "," + y + " " + birthYear + " " + happiness + " x" + count));
+        return residents;
+    }
+}
@@ -0,0 +1,278 @@
+package com.citybuilder.model;
+
+import com.citybuilder.core.Simulation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trips game states through the binary and JSON save formats.
+ */
+public class BinarySaveFormatTest {
+    private Path file;
+    
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("citybuilder-save", BinarySaveFormat.EXTENSION);
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+    
+    @Test
+    public void testCompressedRoundTrip() throws IOException {
+        GameState original = createCity(new Random(42));
+        BinarySaveFormat.write(original, file, true);
+        assertSameState(original, BinarySaveFormat.read(file));
+    }
+    
+    @Test
+    public void testUncompressedRoundTrip() throws IOException {
+        GameState original = createCity(new Random(7));
+        BinarySaveFormat.write(original, file, false);
+        assertSameState(original, BinarySaveFormat.read(file));
+    }
+    
+    @Test
+    public void testCompressionShrinksSave() throws IOException {
+        GameState original = createCity(new Random(3));
+        BinarySaveFormat.write(original, file, false);
+        long uncompressed = Files.size(file);
+        BinarySaveFormat.write(original, file, true);
+        assertTrue(Files.size(file) < uncompressed);
+    }
+    
+    @Test
+    public void testJsonExportRoundTrip() throws IOException {
+        GameState original = createCity(new Random(11));
+        JsonSaveFormat.write(original, file);
+        assertSameState(original, JsonSaveFormat.read(file));
+    }
+    
+    @Test
+    public void testLoadedGamePlaysOutTheSame() throws IOException {
+        GameState original = createCity(new Random(19));
+        BinarySaveFormat.write(original, file, true);
+        GameState loaded = BinarySaveFormat.read(file);
+        
+        Simulation first = new Simulation(original);
+        Simulation second = new Simulation(loaded);
+        for (int tick = 0; tick < 2 * Simulation.TICKS_PER_MONTH; tick++) {
+            first.tick();
+            second.tick();
+            assertEquals("tick " + tick, first.getStateHash(), second.getStateHash());
+        }
+    }
+    
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        Files.write(file, "{\"money\": 5}".getBytes("UTF-8"));
+        BinarySaveFormat.read(file);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testRejectsNegativeResidentCount() throws IOException {
+        writeWithTail(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 0, 0});
+        BinarySaveFormat.read(file);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testRejectsHugeVehicleCount() throws IOException {
+        writeWithTail(new byte[] {0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0});
+        BinarySaveFormat.read(file);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testRejectsEmptyResidentGroup() throws IOException {
+        // One group at (0, 0), born in year 0, happiness 50, awake, of size 0
+        writeWithTail(new byte[] {1, 0, 0, 0, 50, 0, 0, 0, 0});
+        BinarySaveFormat.read(file);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testRejectsResidentOutsideMap() throws IOException {
+        // One resident at (10, 0) on the 10x10 map, zigzag encoded
+        writeWithTail(new byte[] {1, 20, 0, 0, 50, 0, 1, 0, 0});
+        BinarySaveFormat.read(file);
+    }
+    
+    // An uncompressed save of an empty city with its resident, vehicle and traffic light counts replaced
+    private void writeWithTail(byte[] tail) throws IOException {
+        GameState state = new GameState();
+        state.initializeNewGame(10, 10);
+        BinarySaveFormat.write(state, file, false);
+        byte[] bytes = Files.readAllBytes(file);
+        assertArrayEquals(new byte[] {0, 0, 0}, Arrays.copyOfRange(bytes, bytes.length - 3, bytes.length));
+        byte[] patched = Arrays.copyOf(bytes, bytes.length - 3 + tail.length);
+        System.arraycopy(tail, 0, patched, bytes.length - 3, tail.length);
+        Files.write(file, patched);
+    }
+    
+    private static GameState createCity(Random random) {
+        GameState state = new GameState();
+        state.initializeNewGame(37, 23);
+        CityMap map = state.getCityMap();
+        
+        BuildingType[] buildingTypes = BuildingType.values();
+        ZoneType[] zoneTypes = ZoneType.values();
+        TrafficDirection[] directions = TrafficDirection.values();
+        for (int i = 0; i < 300; i++) {
+            int x = random.nextInt(map.getWidth());
+            int y = random.nextInt(map.getHeight());
+            switch (random.nextInt(5)) {
+                case 0:
+                    map.setBuildingType(x, y, buildingTypes[random.nextInt(buildingTypes.length)]);
+                    break;
+                case 1:
+                    map.setZoneType(x, y, zoneTypes[random.nextInt(zoneTypes.length)]);
+                    break;
+                case 2:
+                    map.setHeight(x, y, random.nextInt(Tile.MAX_HEIGHT - Tile.MIN_HEIGHT + 1) + Tile.MIN_HEIGHT);
+                    break;
+                case 3:
+                    map.setNaturalFeature(x, y, random.nextBoolean() ? NaturalFeature.ROCK : null);
+                    break;
+                default:
+                    map.setBuildingType(x, y, BuildingType.ROAD);
+                    map.setTrafficDirection(x, y, directions[random.nextInt(directions.length)]);
+                    break;
+            }
+        }
+        map.setTerrainType(3, 4, TerrainType.SAND);
+        map.setTerrainType(5, 6, TerrainType.DIRT);
+        state.recomputeUtilities();
+        
+        for (int i = 0; i < 50; i++) {
+            state.addResidents(random.nextInt(37), random.nextInt(23), 1990 + random.nextInt(10),
+                random.nextInt(101), 1 + random.nextInt(3));
+        }
+        
+        for (int i = 0; i < 40; i++) {
+            Vehicle vehicle = new Vehicle(random.nextInt(60) - 10, random.nextInt(40) - 10,
+                VehicleType.values()[random.nextInt(VehicleType.values().length)]);
+            if (random.nextBoolean()) {
+                vehicle.stop();
+            }
+            if (random.nextBoolean()) {
+                vehicle.setPath(Arrays.asList(new Point(random.nextInt(37), 1), new Point(-2, random.nextInt(23))));
+            }
+            if (random.nextBoolean()) {
+                vehicle.setWaypoints(Arrays.asList(new Point(random.nextInt(37), 5), new Point(20, random.nextInt(23))));
+            }
+            state.addVehicle(vehicle);
+        }
+        
+        for (int i = 0; i < 10; i++) {
+            TrafficLight light = new TrafficLight(random.nextInt(37), random.nextInt(23));
+            for (int tick = random.nextInt(200); tick > 0; tick--) {
+                light.update();
+            }
+            state.addTrafficLight(light);
+        }
+        
+        state.setMoney(123456);
+        state.setCurrency(Currency.GBP);
+        for (int hour = random.nextInt(500); hour > 0; hour--) {
+            state.advanceTime();
+        }
+        state.updateMonthly();
+        state.updateMonthly();
+        return state;
+    }
+    
+    private static void assertSameState(GameState expected, GameState actual) {
+        assertEquals(expected.getRandom().getState(), actual.getRandom().getState());
+        assertEquals(expected.getRandom().getGamma(), actual.getRandom().getGamma());
+        assertEquals(expected.computeStateHash(), actual.computeStateHash());
+        assertEquals(expected.getMoney(), actual.getMoney());
+        assertEquals(expected.getPopulation(), actual.getPopulation());
+        assertEquals(expected.getMonthlyIncome(), actual.getMonthlyIncome());
+        assertEquals(expected.getMonthlyExpenses(), actual.getMonthlyExpenses());
+        assertEquals(expected.getGameMonth(), actual.getGameMonth());
+        assertEquals(expected.getCityHappiness(), actual.getCityHappiness(), 0.0);
+        assertEquals(expected.getCurrency(), actual.getCurrency());
+        assertEquals(expected.getCurrentTimeOfDay(), actual.getCurrentTimeOfDay());
+        
+        GameDate expectedDate = expected.getGameDate();
+        GameDate actualDate = actual.getGameDate();
+        assertEquals(expectedDate.getYear(), actualDate.getYear());
+        assertEquals(expectedDate.getMonth(), actualDate.getMonth());
+        assertEquals(expectedDate.getDay(), actualDate.getDay());
+        assertEquals(expectedDate.getHour(), actualDate.getHour());
+        
+        CityBudget expectedBudget = expected.getCityBudget();
+        CityBudget actualBudget = actual.getCityBudget();
+        assertEquals(expectedBudget.getBalance(), actualBudget.getBalance());
+        assertEquals(expectedBudget.getMonthlyIncome(), actualBudget.getMonthlyIncome());
+        assertEquals(expectedBudget.getMonthlyExpenses(), actualBudget.getMonthlyExpenses());
+        assertEquals(expectedBudget.getResidentialTax(), actualBudget.getResidentialTax());
+        assertEquals(expectedBudget.getTransportationCost(), actualBudget.getTransportationCost());
+        assertEquals(expectedBudget.getUtilitiesCost(), actualBudget.getUtilitiesCost());
+        
+        CityMap expectedMap = expected.getCityMap();
+        CityMap actualMap = actual.getCityMap();
+        assertEquals(expectedMap.getWidth(), actualMap.getWidth());
+        assertEquals(expectedMap.getHeight(), actualMap.getHeight());
+        for (int y = 0; y < expectedMap.getHeight(); y++) {
+            for (int x = 0; x < expectedMap.getWidth(); x++) {
+                assertEquals(expectedMap.getHeight(x, y), actualMap.getHeight(x, y));
+                assertEquals(expectedMap.getTerrainType(x, y), actualMap.getTerrainType(x, y));
+                assertEquals(expectedMap.getZoneType(x, y), actualMap.getZoneType(x, y));
+                assertEquals(expectedMap.getBuildingType(x, y), actualMap.getBuildingType(x, y));
+                assertEquals(expectedMap.getNaturalFeature(x, y), actualMap.getNaturalFeature(x, y));
+                assertEquals(expectedMap.getTrafficDirection(x, y), actualMap.getTrafficDirection(x, y));
+                assertEquals(expectedMap.hasElectricity(x, y), actualMap.hasElectricity(x, y));
+                assertEquals(expectedMap.hasWater(x, y), actualMap.hasWater(x, y));
+            }
+        }
+        
+        assertEquals(expected.getPopulation(), actual.getPopulation());
+        assertEquals(residentGroups(expected.getResidents()), residentGroups(actual.getResidents()));
+        
+        List<Vehicle> expectedVehicles = expected.getVehicles();
+        List<Vehicle> actualVehicles = actual.getVehicles();
+        assertEquals(expectedVehicles.size(), actualVehicles.size());
+        for (int i = 0; i < expectedVehicles.size(); i++) {
+            Vehicle e = expectedVehicles.get(i);
+            Vehicle a = actualVehicles.get(i);
+            assertEquals(e.getX(), a.getX());
+            assertEquals(e.getY(), a.getY());
+            assertEquals(e.getType(), a.getType());
+            assertEquals(e.isStopped(), a.isStopped());
+            assertEquals(e.getPath(), a.getPath());
+            assertEquals(e.getWaypoints(), a.getWaypoints());
+        }
+        
+        List<TrafficLight> expectedLights = expected.getTrafficLights();
+        List<TrafficLight> actualLights = actual.getTrafficLights();
+        assertEquals(expectedLights.size(), actualLights.size());
+        for (int i = 0; i < expectedLights.size(); i++) {
+            TrafficLight e = expectedLights.get(i);
+            TrafficLight a = actualLights.get(i);
+            assertEquals(e.getX(), a.getX());
+            assertEquals(e.getY(), a.getY());
+            assertEquals(e.getState(), a.getState());
+            assertEquals(e.getTimer(), a.getTimer());
+        }
+    }
+    
+    private static List<String> residentGroups(Population residents) {
+        List<String> groups = new ArrayList<>();
+        residents.forEachGroup((x, y, birthYear, happiness, sleeping, count) ->
+            groups.add(x + "," + y + " " + birthYear + " " + happiness + " " + sleeping + " x" + count));
+        return groups;
+    }
+}
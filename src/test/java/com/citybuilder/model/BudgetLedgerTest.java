@@ -0,0 +1,100 @@
+package com.citybuilder.model;
+
+import com.citybuilder.util.StripedScan;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Places and demolishes buildings at random and checks the ledger against
+ * a full count of the map.
+ */
+public class BudgetLedgerTest {
+    @Test
+    public void testLedgerFollowsPlacementAndDemolition() {
+        Random random = new Random(5);
+        BuildingType[] types = BuildingType.values();
+        GameState state = new GameState();
+        state.initializeNewGame(40, 30);
+        CityMap map = state.getCityMap();
+        
+        for (int edit = 0; edit < 2000; edit++) {
+            int x = random.nextInt(map.getWidth());
+            int y = random.nextInt(map.getHeight());
+            if (random.nextInt(3) == 0) {
+                map.demolish(x, y);
+            } else {
+                map.setBuildingType(x, y, types[random.nextInt(types.length)]);
+            }
+            if (edit % 100 == 0) {
+                state.applyTileChanges();
+                state.getBudgetLedger().verify();
+            }
+        }
+        state.applyTileChanges();
+        state.getBudgetLedger().verify();
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testVerifyDetectsUnreportedEdit() {
+        GameState state = new GameState();
+        state.initializeNewGame(20, 20);
+        state.getCityMap().setBuildingType(3, 3, BuildingType.HOSPITAL);
+        state.getBudgetLedger().verify();
+    }
+    
+    @Test
+    public void testMonthlyTotalsDoNotAccumulate() {
+        GameState state = new GameState();
+        state.initializeNewGame(20, 20);
+        CityMap map = state.getCityMap();
+        map.setBuildingType(2, 2, BuildingType.HOUSE);
+        map.setBuildingType(3, 2, BuildingType.SHOP);
+        map.setBuildingType(4, 2, BuildingType.ROAD);
+        state.recomputeUtilities();
+        
+        int money = state.getMoney();
+        for (int month = 0; month < 3; month++) {
+            state.updateMonthly();
+            assertEquals(200, state.getMonthlyIncome());
+            assertEquals(5, state.getMonthlyExpenses());
+            assertEquals(200, state.getCityBudget().getMonthlyIncome());
+        }
+        assertEquals(money + 3 * 195, state.getMoney());
+        
+        map.demolish(3, 2);
+        state.applyTileChanges();
+        state.updateMonthly();
+        assertEquals(50, state.getMonthlyIncome());
+        assertEquals(0, state.getCityBudget().getCommercialTax());
+    }
+    
+    @Test
+    public void testStripedCountIndependentOfThreadCount() {
+        Random random = new Random(18);
+        BuildingType[] types = BuildingType.values();
+        CityMap map = new CityMap(70, 45);
+        for (int x = 0; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                if (random.nextBoolean()) {
+                    map.setBuildingType(x, y, types[random.nextInt(types.length)]);
+                }
+            }
+        }
+        
+        BudgetTotals expected = new BudgetLedger(map, StripedScan.sequential()).getTotals();
+        for (int threads : new int[] {1, 2, 5}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                BudgetLedger ledger = new BudgetLedger(map, new StripedScan(pool));
+                assertTrue(ledger.getTotals().matches(expected));
+                ledger.verify();
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.citybuilder.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the table-driven budget totals against summing building by
+ * building.
+ */
+public class BudgetTotalsTest {
+    @Test
+    public void testEveryTypeHasCategoriesAndLabel() {
+        for (BuildingType type : BuildingType.values()) {
+            assertNotNull(type.name(), type.getIncomeCategory());
+            assertNotNull(type.name(), type.getExpenseCategory());
+            assertNotNull(type.name(), type.getColor());
+            assertFalse(type.name(), type.getShortName().isEmpty());
+            if (type.getMonthlyIncome() == 0) {
+                assertEquals(type.name(), IncomeCategory.OTHER, type.getIncomeCategory());
+            }
+        }
+    }
+    
+    @Test
+    public void testTotalsMatchSumOverBuildings() {
+        Random random = new Random(11);
+        BuildingType[] types = BuildingType.values();
+        BudgetTotals totals = new BudgetTotals();
+        int[] income = new int[IncomeCategory.values().length];
+        int[] expenses = new int[ExpenseCategory.values().length];
+        int totalIncome = 0;
+        int totalExpenses = 0;
+        for (int i = 0; i < 1000; i++) {
+            BuildingType type = types[random.nextInt(types.length)];
+            totals.add(type);
+            income[type.getIncomeCategory().ordinal()] += type.getMonthlyIncome();
+            expenses[type.getExpenseCategory().ordinal()] += type.getMonthlyCost();
+            totalIncome += type.getMonthlyIncome();
+            totalExpenses += type.getMonthlyCost();
+        }
+        
+        assertArrayEquals(income, totals.getIncomeByOrdinal());
+        assertArrayEquals(expenses, totals.getExpensesByOrdinal());
+        assertEquals(totalIncome, totals.getTotalIncome());
+        assertEquals(totalExpenses, totals.getTotalExpenses());
+        for (IncomeCategory category : IncomeCategory.values()) {
+            assertEquals(income[category.ordinal()], (int) totals.getIncome().get(category));
+        }
+    }
+    
+    @Test
+    public void testBudgetLines() {
+        BudgetTotals totals = new BudgetTotals();
+        totals.add(BuildingType.HOUSE);
+        totals.add(BuildingType.APARTMENT);
+        totals.add(BuildingType.MALL);
+        totals.add(BuildingType.OFFICE);
+        totals.add(BuildingType.AIRPORT);
+        totals.add(BuildingType.ROAD);
+        totals.add(BuildingType.ROAD);
+        totals.add(BuildingType.TRAFFIC_LIGHT);
+        totals.add(BuildingType.HOSPITAL);
+        totals.add(BuildingType.LIBRARY);
+        totals.add(BuildingType.FIRE_STATION);
+        totals.add(BuildingType.POWER_PLANT);
+        totals.add(BuildingType.TOWN_HALL);
+        totals.remove(BuildingType.TRAFFIC_LIGHT);
+        
+        CityBudget budget = new CityBudget(0);
+        totals.applyTo(budget);
+        assertEquals(150, budget.getResidentialTax());
+        assertEquals(150, budget.getCommercialTax());
+        assertEquals(100, budget.getIndustrialTax());
+        assertEquals(10, budget.getTransportationCost());
+        assertEquals(80, budget.getHealthcareCost());
+        assertEquals(80, budget.getEducationCost());
+        assertEquals(100, budget.getPublicsafetyCost());
+        assertEquals(200, budget.getUtilitiesCost());
+        // The airport and town hall count towards the totals but no line
+        assertEquals(400, budget.getMonthlyIncome());
+        assertEquals(900, totals.getTotalIncome());
+        assertEquals(770, totals.getTotalExpenses());
+    }
+}
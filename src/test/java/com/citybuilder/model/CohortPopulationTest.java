@@ -0,0 +1,98 @@
+package com.citybuilder.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the same random arrivals, deaths and move-outs on a cohort
+ * population and on individually stored residents and compares them.
+ */
+public class CohortPopulationTest {
+    @Test
+    public void testCohortsMatchIndividualResidents() {
+        Random random = new Random(17);
+        CohortPopulation cohorts = new CohortPopulation();
+        ResidentStore individuals = new ResidentStore();
+        boolean[][] homes = new boolean[12][12];
+        
+        for (int month = 0; month < 600; month++) {
+            int year = 2000 + month / 12;
+            cohorts.setCurrentYear(year);
+            individuals.setCurrentYear(year);
+            
+            for (int i = 0; i < 5; i++) {
+                int x = random.nextInt(12);
+                int y = random.nextInt(12);
+                homes[x][y] = true;
+                int happiness = 60 + 5 * random.nextInt(8);
+                int count = 1 + random.nextInt(4);
+                cohorts.add(x, y, year, happiness, count);
+                individuals.add(x, y, year, happiness, count);
+            }
+            if (random.nextInt(4) == 0) {
+                homes[random.nextInt(12)][random.nextInt(12)] = false;
+            }
+            
+            assertEquals(individuals.removeAged(30), cohorts.removeAged(30));
+            assertEquals(individuals.removeHomeless((x, y) -> homes[x][y]),
+                cohorts.removeHomeless((x, y) -> homes[x][y]));
+            assertEquals(individuals.size(), cohorts.size());
+            assertEquals(individuals.getAverageHappiness(), cohorts.getAverageHappiness(), 1e-9);
+            assertArrayEquals(individuals.getMoodCounts(), cohorts.getMoodCounts());
+            assertEquals(individuals.getContentHash(), cohorts.getContentHash());
+        }
+        
+        assertTrue(cohorts.getCohortCount() < cohorts.size());
+        for (int x = 0; x < 12; x++) {
+            for (int y = 0; y < 12; y++) {
+                assertEquals(describe(individuals.residentsAt(x, y)), describe(cohorts.residentsAt(x, y)));
+            }
+        }
+    }
+    
+    @Test
+    public void testHappinessClampedLikeIndividualResidents() {
+        CohortPopulation cohorts = new CohortPopulation();
+        ResidentStore individuals = new ResidentStore();
+        for (int happiness : new int[] {-40, 250, 300, 100}) {
+            cohorts.add(3, 4, 1990, happiness, 2);
+            individuals.add(3, 4, 1990, happiness, 2);
+        }
+        
+        assertEquals(individuals.getAverageHappiness(), cohorts.getAverageHappiness(), 1e-9);
+        assertArrayEquals(individuals.getMoodCounts(), cohorts.getMoodCounts());
+        assertEquals(describe(individuals.residentsAt(3, 4)), describe(cohorts.residentsAt(3, 4)));
+        assertEquals(2, cohorts.getCohortCount());
+    }
+    
+    @Test
+    public void testCopyIsIndependent() {
+        CohortPopulation cohorts = new CohortPopulation();
+        cohorts.add(1, 2, 1990, 80, 10);
+        CohortPopulation copy = cohorts.copy();
+        cohorts.add(1, 2, 1990, 80, 5);
+        cohorts.removeHomeless((x, y) -> false);
+        
+        assertEquals(0, cohorts.size());
+        assertEquals(10, copy.size());
+        copy.add(1, 2, 1990, 80, 1);
+        assertEquals(1, copy.getCohortCount());
+        assertEquals(11, copy.residentsAt(1, 2).size());
+    }
+    
+    // Residents of a tile in a comparable order
+    private static List<String> describe(ResidentStore residents) {
+        List<String> described = new ArrayList<>();
+        for (Resident resident : residents) {
+            described.add(resident.getBirthYear() + " " + resident.getHappiness() + " " + resident.getAge() + " " +
+                resident.getMood() + " " + resident.isSleeping());
+        }
+        described.sort(null);
+        return described;
+    }
+}
@@ -0,0 +1,71 @@
+package com.citybuilder.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Loads JSON saves with corrupt maps, which must fail with an IOException
+ * rather than a runtime exception or a silently wrong city.
+ */
+public class JsonSaveFormatTest {
+    private Path file;
+    
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("citybuilder-save", JsonSaveFormat.EXTENSION);
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testRejectsTileOutsideMap() throws IOException {
+        writeWith("\"width\": 10", "\"width\": 9");
+        JsonSaveFormat.read(file);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testRejectsEmptyMap() throws IOException {
+        // With no tiles either, so none of them falls outside the map
+        writeWith("\"width\": 10", "\"width\": 0");
+        String json = new String(Files.readAllBytes(file), "UTF-8");
+        Files.write(file, json.replaceFirst("(?s)\"tiles\": \\[.*?\\]\\s*\\]", "\"tiles\": []").getBytes("UTF-8"));
+        JsonSaveFormat.read(file);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testRejectsUnknownZone() throws IOException {
+        writeWith("\"zoneType\": \"NONE\"", "\"zoneType\": \"SPACEPORT\"");
+        JsonSaveFormat.read(file);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testRejectsHeightOutOfRange() throws IOException {
+        writeWith("\"height\": 0,", "\"height\": 200,");
+        JsonSaveFormat.read(file);
+    }
+    
+    // A JSON export of an empty city with the first occurrence of some text replaced
+    private void writeWith(String text, String replacement) throws IOException {
+        GameState state = new GameState();
+        state.initializeNewGame(10, 10);
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                state.getCityMap().setHeight(x, y, 0);
+            }
+        }
+        JsonSaveFormat.write(state, file);
+        String json = new String(Files.readAllBytes(file), "UTF-8");
+        assertTrue(json.contains(text));
+        Files.write(file, json.replaceFirst(text, replacement).getBytes("UTF-8"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.citybuilder.model;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks slot reuse and iteration of the packed resident store, its
+ * content hash, and that residents die and move out of the city.
+ */
+public class ResidentStoreTest {
+    @Test
+    public void testFreedSlotsAreReused() {
+        Random random = new Random(9);
+        ResidentStore store = new ResidentStore();
+        Set<Integer> live = new HashSet<>();
+        long happiness = 0;
+        for (int step = 0; step < 20000; step++) {
+            if (!live.isEmpty() && random.nextInt(5) < 2) {
+                int slot = store.nextSlot(random.nextInt(store.getSlotCount()));
+                if (slot < 0) {
+                    slot = store.nextSlot(0);
+                }
+                happiness -= store.getHappiness(slot);
+                store.remove(slot);
+                assertTrue(live.remove(slot));
+            } else {
+                int slot = store.add(random.nextInt(100), random.nextInt(100), 1950 + random.nextInt(50));
+                store.adjustHappiness(slot, random.nextInt(200) - 100);
+                happiness += store.getHappiness(slot);
+                assertTrue(live.add(slot));
+            }
+        }
+        
+        assertEquals(live.size(), store.size());
+        // Slots only grow to the peak population
+        assertTrue(store.getSlotCount() < live.size() * 2);
+        Set<Integer> iterated = new HashSet<>();
+        for (Resident resident : store) {
+            assertTrue(iterated.add(resident.getSlot()));
+        }
+        assertEquals(live, iterated);
+        assertEquals((double) happiness / live.size(), store.getAverageHappiness(), 1e-9);
+    }
+    
+    @Test
+    public void testMoodAndAgeFollowStoredColumns() {
+        ResidentStore store = new ResidentStore();
+        store.setCurrentYear(2000);
+        int slot = store.add(3, 4, 1970);
+        Resident resident = store.get(slot);
+        assertEquals(ResidentMood.CONTENT, resident.getMood());
+        assertEquals(30, resident.getAge());
+        assertTrue(resident.isAdult());
+        
+        resident.adjustHappiness(50);
+        assertEquals(100, resident.getHappiness());
+        assertEquals(ResidentMood.HAPPY, resident.getMood());
+        resident.adjustHappiness(-90);
+        assertEquals(ResidentMood.ANGRY, resident.getMood());
+        
+        store.setCurrentYear(2040);
+        assertTrue(resident.isElderly());
+        store.setAllSleeping(true);
+        assertTrue(resident.isSleeping());
+        assertEquals(3, resident.getX());
+        assertEquals(4, resident.getY());
+    }
+    
+    @Test
+    public void testResidentsDieAndMoveOut() {
+        GameState state = new GameState();
+        state.initializeNewGame(20, 20);
+        CityMap map = state.getCityMap();
+        map.setBuildingType(2, 2, BuildingType.HOUSE);
+        map.setBuildingType(5, 5, BuildingType.HOUSE);
+        state.applyTileChanges();
+        
+        int year = state.getGameDate().getYear();
+        state.addResidents(2, 2, year - 30, 50, 2);
+        state.addResidents(2, 2, year - 100, 50, 1);
+        state.addResidents(5, 5, year - 10, 90, 3);
+        state.updateMonthly();
+        assertEquals(5, state.getPopulation());
+        assertEquals(5, state.getResidents().size());
+        
+        map.demolish(5, 5);
+        state.applyTileChanges();
+        state.updateMonthly();
+        assertEquals(2, state.getPopulation());
+        assertEquals(50.0, state.getResidents().getAverageHappiness(), 1e-9);
+        ResidentStore survivors = state.getResidents().residentsAt(2, 2);
+        assertEquals(2, survivors.size());
+        for (Resident survivor : survivors) {
+            assertEquals(30, survivor.getAge());
+        }
+        assertTrue(state.getResidents().residentsAt(5, 5).isEmpty());
+    }
+    
+    @Test
+    public void testContentHashFollowsHomesNotArrivalOrder() {
+        ResidentStore first = new ResidentStore();
+        ResidentStore second = new ResidentStore();
+        first.add(1, 2, 1990, 40, 1);
+        first.add(3, 4, 1985, 80, 2);
+        second.add(3, 4, 1985, 80, 1);
+        second.add(1, 2, 1990, 40, 1);
+        second.add(3, 4, 1985, 80, 1);
+        assertEquals(first.getContentHash(), second.getContentHash());
+        
+        // Same count and happiness, different home
+        long before = second.getContentHash();
+        second.setLocation(second.nextSlot(0), 4, 3);
+        assertNotEquals(before, second.getContentHash());
+        second.setLocation(second.nextSlot(0), 3, 4);
+        assertEquals(before, second.getContentHash());
+        
+        first.remove(first.nextSlot(0));
+        first.add(1, 2, 1991, 40, 1);
+        assertNotEquals(before, first.getContentHash());
+        first.clear();
+        assertEquals(new ResidentStore().getContentHash(), first.getContentHash());
+    }
+}
@@ -0,0 +1,94 @@
+package com.citybuilder.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that subscriptions see each changed tile once, only for the kinds
+ * of change they asked for, and that the log is kept only while needed.
+ */
+public class TileChangeJournalTest {
+    @Test
+    public void testDrainFiltersAndCoalesces() {
+        CityMap map = new CityMap(40, 30, false);
+        TileChangeJournal journal = map.getJournal();
+        TileChangeJournal.Subscription buildings = journal.subscribe(TileChangeJournal.Change.BUILDING);
+        TileChangeJournal.Subscription everything = journal.subscribe(EnumSet.allOf(TileChangeJournal.Change.class));
+        
+        map.setBuildingType(20, 3, BuildingType.HOUSE);
+        map.setBuildingType(20, 3, BuildingType.SHOP);
+        map.setBuildingType(2, 17, BuildingType.ROAD);
+        map.setZoneType(5, 5, ZoneType.RESIDENTIAL);
+        map.setHeight(39, 29, 2);
+        map.setTerrainType(0, 0, TerrainType.GRASS); // Unchanged, so not recorded
+        map.demolish(2, 17);
+        map.demolish(30, 20); // Nothing there
+        
+        // Chunk by chunk, rows in order within each chunk
+        assertEquals("20,3 2,17", drain(buildings));
+        assertEquals("5,5 20,3 2,17 39,29", drain(everything));
+        assertEquals("", drain(buildings));
+        assertEquals(0, journal.getPendingCount());
+        
+        map.setTrafficDirection(1, 1, TrafficDirection.NORTH);
+        assertEquals("", drain(buildings));
+        assertEquals("1,1", drain(everything));
+    }
+    
+    @Test
+    public void testLogKeptOnlyForSubscriptions() {
+        CityMap map = new CityMap(20, 20, false);
+        TileChangeJournal journal = map.getJournal();
+        map.setBuildingType(1, 1, BuildingType.HOUSE);
+        assertEquals(0, journal.getPendingCount());
+        
+        TileChangeJournal.Subscription slow = journal.subscribe(TileChangeJournal.Change.BUILDING);
+        TileChangeJournal.Subscription fast = journal.subscribe(TileChangeJournal.Change.BUILDING);
+        for (int i = 0; i < 200; i++) {
+            map.setBuildingType(i % 20, i / 20, BuildingType.ROAD);
+            fast.drain((x, y) -> { });
+        }
+        assertEquals(200, journal.getPendingCount());
+        assertEquals(200, slow.drain((x, y) -> { }));
+        assertEquals(0, journal.getPendingCount());
+        
+        map.setBuildingType(0, 0, BuildingType.SHOP);
+        slow.cancel();
+        fast.cancel();
+        assertEquals(0, journal.getPendingCount());
+        map.setBuildingType(0, 0, BuildingType.HOUSE);
+        assertEquals(0, journal.getPendingCount());
+    }
+    
+    @Test
+    public void testAppliedChangesReachTheSimulation() {
+        GameState state = new GameState();
+        state.initializeNewGame(20, 20);
+        CityMap map = state.getCityMap();
+        map.setBuildingType(4, 4, BuildingType.TRAFFIC_LIGHT);
+        state.addTrafficLight(new TrafficLight(4, 4));
+        map.setBuildingType(6, 4, BuildingType.POWER_PLANT);
+        map.setBuildingType(7, 4, BuildingType.HOUSE);
+        state.applyTileChanges();
+        assertTrue(map.hasElectricity(7, 4));
+        state.getBudgetLedger().verify();
+        
+        map.demolish(4, 4);
+        map.demolish(6, 4);
+        state.applyTileChanges();
+        assertTrue(state.getTrafficLights().isEmpty());
+        assertFalse(map.hasElectricity(7, 4));
+        state.getBudgetLedger().verify();
+    }
+    
+    private static String drain(TileChangeJournal.Subscription subscription) {
+        List<String> tiles = new ArrayList<>();
+        subscription.drain((x, y) -> tiles.add(x + "," + y));
+        return String.join(" ", tiles);
+    }
+}
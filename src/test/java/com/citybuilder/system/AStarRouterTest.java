@@ -0,0 +1,144 @@
+package com.citybuilder.system;
+
+import com.citybuilder.model.*;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.citybuilder.system.RoadNetworks.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks routes on random one-way road networks against a plain
+ * breadth-first search over the traffic rules.
+ */
+public class AStarRouterTest {
+    @Test
+    public void testRoutesAreShortestAndLegal() {
+        Random random = new Random(42);
+        CityMap map = createRoadNetwork(40, 30, random, true);
+        AStarRouter router = new AStarRouter(new RoadGraph(map));
+        Route route = new Route();
+        
+        int found = 0;
+        for (int trip = 0; trip < 400; trip++) {
+            int[] start = randomRoad(map, random);
+            int[] goal = randomRoad(map, random);
+            int expected = breadthFirstDistance(map, start[0], start[1], goal[0], goal[1]);
+            
+            boolean reachable = router.findRoute(start[0], start[1], goal[0], goal[1], route);
+            assertEquals("trip " + trip, expected >= 0, reachable);
+            if (reachable) {
+                found++;
+                assertEquals("trip " + trip, expected, route.getLength());
+                assertLegal(map, start, goal, route);
+            } else {
+                assertEquals(0, route.getLength());
+            }
+        }
+        assertTrue(found > 100);
+    }
+    
+    @Test
+    public void testIncrementalGraphMatchesRebuild() {
+        Random random = new Random(7);
+        CityMap map = createRoadNetwork(30, 30, random, true);
+        RoadGraph graph = new RoadGraph(map);
+        
+        for (int edit = 0; edit < 500; edit++) {
+            int x = random.nextInt(map.getWidth());
+            int y = random.nextInt(map.getHeight());
+            Tile tile = map.getTile(x, y);
+            if (tile.isRoad()) {
+                if (random.nextBoolean()) {
+                    tile.cycleTrafficDirection();
+                } else {
+                    tile.demolish();
+                }
+            } else if (tile.isEmpty()) {
+                tile.setBuilding(new Building(BuildingType.ROAD));
+            }
+            graph.tileChanged(x, y);
+            
+            RoadGraph full = new RoadGraph(map);
+            for (int i = 0; i < map.getWidth() * map.getHeight(); i++) {
+                assertEquals("edit " + edit + " at index " + i, full.isRoad(i), graph.isRoad(i));
+                assertEquals("edit " + edit + " at index " + i, full.getEdges(i), graph.getEdges(i));
+            }
+        }
+    }
+    
+    @Test
+    public void testVehicleFollowsRouteAlongRoads() {
+        Random random = new Random(3);
+        CityMap map = createRoadNetwork(40, 40, random, true);
+        AStarRouter router = new AStarRouter(new RoadGraph(map));
+        Route route = new Route();
+        
+        int driven = 0;
+        while (driven < 20) {
+            int[] start = randomRoad(map, random);
+            int[] goal = randomRoad(map, random);
+            if (!router.findRoute(start[0], start[1], goal[0], goal[1], route) || route.getLength() == 0) {
+                continue;
+            }
+            
+            Vehicle vehicle = new Vehicle(start[0], start[1], VehicleType.CAR);
+            vehicle.setPath(route.getXs(), route.getYs(), route.getLength());
+            for (int step = 0; step < route.getLength(); step++) {
+                int x = vehicle.getX();
+                int y = vehicle.getY();
+                vehicle.move();
+                assertEquals(1, Math.abs(vehicle.getX() - x) + Math.abs(vehicle.getY() - y));
+                assertTrue(map.isRoad(vehicle.getX(), vehicle.getY()));
+            }
+            assertEquals(goal[0], vehicle.getX());
+            assertEquals(goal[1], vehicle.getY());
+            assertFalse(vehicle.hasPath());
+            driven++;
+        }
+    }
+    
+    private static boolean canEnter(CityMap map, int x, int y, int dx, int dy) {
+        return map.isValidPosition(x, y) && map.isRoad(x, y) && map.getTrafficDirection(x, y).allowsDirection(dx, dy);
+    }
+    
+    private static int breadthFirstDistance(CityMap map, int startX, int startY, int goalX, int goalY) {
+        int width = map.getWidth();
+        int[] distance = new int[width * map.getHeight()];
+        Arrays.fill(distance, -1);
+        distance[startY * width + startX] = 0;
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        queue.add(new int[] {startX, startY});
+        int[][] steps = {{0, -1}, {1, 0}, {0, 1}, {-1, 0}};
+        while (!queue.isEmpty()) {
+            int[] tile = queue.poll();
+            for (int[] step : steps) {
+                int x = tile[0] + step[0];
+                int y = tile[1] + step[1];
+                if (canEnter(map, x, y, step[0], step[1]) && distance[y * width + x] < 0) {
+                    distance[y * width + x] = distance[tile[1] * width + tile[0]] + 1;
+                    queue.add(new int[] {x, y});
+                }
+            }
+        }
+        return distance[goalY * width + goalX];
+    }
+    
+    private static void assertLegal(CityMap map, int[] start, int[] goal, Route route) {
+        int x = start[0];
+        int y = start[1];
+        for (int i = 0; i < route.getLength(); i++) {
+            int dx = route.getX(i) - x;
+            int dy = route.getY(i) - y;
+            assertEquals(1, Math.abs(dx) + Math.abs(dy));
+            assertTrue(canEnter(map, route.getX(i), route.getY(i), dx, dy));
+            x = route.getX(i);
+            y = route.getY(i);
+        }
+        assertEquals(goal[0], x);
+        assertEquals(goal[1], y);
+    }
+}
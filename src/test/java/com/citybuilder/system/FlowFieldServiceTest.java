@@ -0,0 +1,93 @@
+package com.citybuilder.system;
+
+import com.citybuilder.model.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.citybuilder.system.RoadNetworks.*;
+import static org.junit.Assert.*;
+
+/**
+ * Follows flow fields on random one-way road networks and compares the
+ * trips with flat A*.
+ */
+public class FlowFieldServiceTest {
+    @Test
+    public void testFieldsFollowShortestRoutes() {
+        Random random = new Random(42);
+        CityMap map = createRoadNetwork(50, 40, random);
+        RoadGraph graph = new RoadGraph(map);
+        FlowFieldService flowFields = new FlowFieldService(graph);
+        AStarRouter flat = new AStarRouter(graph);
+        Route shortest = new Route();
+        
+        int driven = 0;
+        for (int trip = 0; trip < 300; trip++) {
+            int[] start = randomRoad(map, random);
+            int[] goal = randomRoad(map, random);
+            int destination = goal[1] * map.getWidth() + goal[0];
+            boolean reachable = flat.findRoute(start[0], start[1], goal[0], goal[1], shortest);
+            assertEquals("trip " + trip, reachable, flowFields.canReach(destination, start[0], start[1]));
+            if (!reachable) {
+                continue;
+            }
+            
+            Vehicle vehicle = new Vehicle(start[0], start[1], VehicleType.CAR);
+            vehicle.setWaypoints(new int[] {goal[0]}, new int[] {goal[1]}, 1);
+            assertEquals("trip " + trip, shortest.getLength(), drive(map, flowFields::advance, vehicle));
+            assertEquals("trip " + trip, goal[0], vehicle.getX());
+            assertEquals("trip " + trip, goal[1], vehicle.getY());
+            driven++;
+        }
+        assertTrue(driven > 100);
+    }
+    
+    @Test
+    public void testFieldsRebuiltAfterRoadChange() {
+        CityMap map = createEmptyMap(30, 10);
+        for (int x = 0; x < 30; x++) {
+            map.setBuildingType(x, 2, BuildingType.ROAD);
+            map.setBuildingType(x, 7, BuildingType.ROAD);
+        }
+        for (int y = 2; y <= 7; y++) {
+            map.setBuildingType(0, y, BuildingType.ROAD);
+            map.setBuildingType(29, y, BuildingType.ROAD);
+        }
+        map.setBuildingType(25, 1, BuildingType.MALL);
+        RoadGraph graph = new RoadGraph(map);
+        FlowFieldService flowFields = new FlowFieldService(graph);
+        flowFields.refreshDestinations();
+        assertEquals(1, flowFields.getDestinationCount());
+        int mall = flowFields.getDestination(0);
+        assertEquals(2 * 30 + 25, mall);
+        assertTrue(flowFields.isDestination(25, 2));
+        assertFalse(flowFields.isDestination(24, 2));
+        assertEquals(RoadGraph.EAST, flowFields.nextStep(mall, 5, 2));
+        
+        // Cut the direct road, leaving the way round through the south
+        map.demolish(10, 2);
+        graph.tileChanged(10, 2);
+        assertEquals(RoadGraph.WEST, flowFields.nextStep(mall, 5, 2));
+        
+        Vehicle vehicle = new Vehicle(5, 2, VehicleType.CAR);
+        vehicle.setWaypoints(new int[] {25}, new int[] {2}, 1);
+        assertEquals(5 + 5 + 29 + 5 + 4, drive(map, flowFields::advance, vehicle));
+    }
+    
+    @Test
+    public void testLeastRecentlyUsedFieldsEvicted() {
+        CityMap map = createEmptyMap(20, 20);
+        for (int x = 0; x < 20; x++) {
+            map.setBuildingType(x, 5, BuildingType.ROAD);
+        }
+        RoadGraph graph = new RoadGraph(map);
+        FlowFieldService flowFields = new FlowFieldService(graph, 3 * 20 * 20);
+        
+        for (int x = 0; x < 10; x++) {
+            assertTrue(flowFields.canReach(5 * 20 + x, 0, 5));
+            assertTrue(flowFields.getUsedBytes() <= 3 * 20 * 20);
+        }
+        assertEquals(3 * 20 * 20, flowFields.getUsedBytes());
+    }
+}
@@ -0,0 +1,111 @@
+package com.citybuilder.system;
+
+import com.citybuilder.model.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.citybuilder.system.RoadNetworks.*;
+import static org.junit.Assert.*;
+
+/**
+ * Drives vehicles along hierarchical plans on random one-way road networks
+ * and compares them with flat A*.
+ */
+public class HierarchicalRouterTest {
+    @Test
+    public void testTripsReachEveryReachableGoal() {
+        Random random = new Random(42);
+        CityMap map = createRoadNetwork(75, 53, random);
+        RoadGraph graph = new RoadGraph(map);
+        HierarchicalRouter router = new HierarchicalRouter(graph);
+        AStarRouter flat = new AStarRouter(graph);
+        Route shortest = new Route();
+        
+        int driven = 0;
+        for (int trip = 0; trip < 300; trip++) {
+            int[] start = randomRoad(map, random);
+            int[] goal = randomRoad(map, random);
+            boolean reachable = flat.findRoute(start[0], start[1], goal[0], goal[1], shortest);
+            
+            Vehicle vehicle = new Vehicle(start[0], start[1], VehicleType.CAR);
+            boolean planned = router.planTrip(vehicle, goal[0], goal[1]);
+            assertEquals("trip " + trip, reachable && shortest.getLength() > 0, planned);
+            if (planned) {
+                int steps = drive(map, router::advance, vehicle);
+                assertEquals("trip " + trip, goal[0], vehicle.getX());
+                assertEquals("trip " + trip, goal[1], vehicle.getY());
+                assertTrue("trip " + trip, steps >= shortest.getLength());
+                driven++;
+            }
+        }
+        assertTrue(driven > 100);
+    }
+    
+    @Test
+    public void testIncrementalClustersMatchFreshRouter() {
+        Random random = new Random(7);
+        CityMap map = createRoadNetwork(64, 48, random);
+        RoadGraph graph = new RoadGraph(map);
+        HierarchicalRouter incremental = new HierarchicalRouter(graph);
+        Route expected = new Route();
+        Route actual = new Route();
+        
+        for (int edit = 0; edit < 200; edit++) {
+            for (int i = 0; i < 5; i++) {
+                int x = random.nextInt(map.getWidth());
+                int y = random.nextInt(map.getHeight());
+                Tile tile = map.getTile(x, y);
+                if (tile.isRoad()) {
+                    if (random.nextBoolean()) {
+                        tile.cycleTrafficDirection();
+                    } else {
+                        tile.demolish();
+                    }
+                } else {
+                    tile.setBuilding(new Building(BuildingType.ROAD));
+                }
+                graph.tileChanged(x, y);
+            }
+            
+            HierarchicalRouter fresh = new HierarchicalRouter(graph);
+            for (int query = 0; query < 10; query++) {
+                int[] start = randomRoad(map, random);
+                int[] goal = randomRoad(map, random);
+                boolean found = fresh.findRoute(start[0], start[1], goal[0], goal[1], expected);
+                assertEquals("edit " + edit, found, incremental.findRoute(start[0], start[1], goal[0], goal[1], actual));
+                assertEquals("edit " + edit, expected.getLength(), actual.getLength());
+                for (int i = 0; i < expected.getLength(); i++) {
+                    assertEquals(expected.getX(i), actual.getX(i));
+                    assertEquals(expected.getY(i), actual.getY(i));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testVehicleReroutesAroundDemolishedRoad() {
+        CityMap map = createEmptyMap(48, 20);
+        for (int x = 0; x < 48; x++) {
+            map.setBuildingType(x, 2, BuildingType.ROAD);
+            map.setBuildingType(x, 12, BuildingType.ROAD);
+        }
+        for (int y = 2; y <= 12; y++) {
+            map.setBuildingType(0, y, BuildingType.ROAD);
+            map.setBuildingType(47, y, BuildingType.ROAD);
+        }
+        RoadGraph graph = new RoadGraph(map);
+        HierarchicalRouter router = new HierarchicalRouter(graph);
+        
+        Vehicle vehicle = new Vehicle(2, 2, VehicleType.CAR);
+        assertTrue(router.planTrip(vehicle, 45, 2));
+        
+        // Cut the direct road in a cluster the vehicle has not reached yet
+        map.demolish(40, 2);
+        graph.tileChanged(40, 2);
+        
+        drive(map, router::advance, vehicle);
+        assertEquals(45, vehicle.getX());
+        assertEquals(2, vehicle.getY());
+    }
+}
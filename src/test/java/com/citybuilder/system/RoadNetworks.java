@@ -0,0 +1,97 @@
+package com.citybuilder.system;
+
+import com.citybuilder.model.*;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Maps and helpers shared by the routing tests: random one-way road
+ * networks, and driving a vehicle along a plan while checking every step.
+ */
+final class RoadNetworks {
+    private static final TrafficDirection[] DIRECTIONS = TrafficDirection.values();
+    
+    /**
+     * Hands a vehicle the next stretch of its plan, like
+     * {@link HierarchicalRouter#advance(Vehicle)}.
+     */
+    interface Planner {
+        boolean advance(Vehicle vehicle);
+    }
+    
+    private RoadNetworks() {
+    }
+    
+    /**
+     * Grass everywhere, with no rivers or trees splitting the network.
+     */
+    static CityMap createEmptyMap(int width, int height) {
+        CityMap map = new CityMap(width, height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                map.setTerrainType(x, y, TerrainType.GRASS);
+                map.setNaturalFeature(x, y, null);
+            }
+        }
+        return map;
+    }
+    
+    static CityMap createRoadNetwork(int width, int height, Random random) {
+        return createRoadNetwork(width, height, random, false);
+    }
+    
+    /**
+     * Roads on about 70% of the tiles, one in six of them one-way, and with
+     * roundabouts one road in eight is a roundabout.
+     */
+    static CityMap createRoadNetwork(int width, int height, Random random, boolean roundabouts) {
+        CityMap map = createEmptyMap(width, height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (random.nextInt(10) < 7) {
+                    boolean roundabout = roundabouts && random.nextInt(8) == 0;
+                    map.setBuildingType(x, y, roundabout ? BuildingType.ROUNDABOUT : BuildingType.ROAD);
+                    if (random.nextInt(6) == 0) {
+                        map.setTrafficDirection(x, y, DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+                    }
+                }
+            }
+        }
+        return map;
+    }
+    
+    static int[] randomRoad(CityMap map, Random random) {
+        while (true) {
+            int x = random.nextInt(map.getWidth());
+            int y = random.nextInt(map.getHeight());
+            if (map.isRoad(x, y)) {
+                return new int[] {x, y};
+            }
+        }
+    }
+    
+    /**
+     * Follow the plan to the end, checking every step, and return the number of steps.
+     */
+    static int drive(CityMap map, Planner planner, Vehicle vehicle) {
+        int steps = 0;
+        while (vehicle.hasPath() || vehicle.hasWaypoints()) {
+            if (!vehicle.hasPath()) {
+                assertTrue(planner.advance(vehicle));
+                continue;
+            }
+            int x = vehicle.getX();
+            int y = vehicle.getY();
+            vehicle.move();
+            int dx = vehicle.getX() - x;
+            int dy = vehicle.getY() - y;
+            assertEquals(1, Math.abs(dx) + Math.abs(dy));
+            assertTrue(map.isRoad(vehicle.getX(), vehicle.getY()));
+            assertTrue(map.getTrafficDirection(vehicle.getX(), vehicle.getY()).allowsDirection(dx, dy));
+            steps++;
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,135 @@
+package com.citybuilder.system;
+
+import com.citybuilder.model.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies that incremental utility repairs match a full recompute.
+ */
+public class UtilityPropagatorTest {
+    private static final BuildingType[] EDIT_TYPES = {
+        BuildingType.ROAD, BuildingType.ROAD, BuildingType.ROAD, BuildingType.ROAD,
+        BuildingType.HOUSE, BuildingType.SHOP, BuildingType.ROAD, BuildingType.ROAD
+    };
+    
+    @Test
+    public void testIncrementalElectricityMatchesFullRecompute() {
+        Random random = new Random(42);
+        CityMap map = createRoadNetwork(60, 45, random);
+        ElectricitySystem incremental = new ElectricitySystem(map);
+        incremental.recompute();
+        
+        for (int edit = 0; edit < 500; edit++) {
+            int x = random.nextInt(map.getWidth());
+            int y = random.nextInt(map.getHeight());
+            applyRandomEdit(map.getTile(x, y), random);
+            incremental.tileChanged(x, y);
+            
+            boolean[] coverage = snapshotElectricity(map);
+            ElectricitySystem full = new ElectricitySystem(map);
+            full.recompute();
+            assertSameField("edit " + edit, map, incremental::getDistanceToSource, full::getDistanceToSource);
+            assertSameCoverage("edit " + edit, coverage, snapshotElectricity(map));
+        }
+    }
+    
+    @Test
+    public void testIncrementalWaterMatchesFullRecompute() {
+        Random random = new Random(7);
+        CityMap map = createRoadNetwork(50, 50, random);
+        WaterSystem incremental = new WaterSystem(map);
+        incremental.recompute();
+        
+        for (int edit = 0; edit < 500; edit++) {
+            int x = random.nextInt(map.getWidth());
+            int y = random.nextInt(map.getHeight());
+            applyRandomEdit(map.getTile(x, y), random);
+            incremental.tileChanged(x, y);
+            
+            boolean[] coverage = snapshotWater(map);
+            WaterSystem full = new WaterSystem(map);
+            full.recompute();
+            assertSameField("edit " + edit, map, incremental::getDistanceToSource, full::getDistanceToSource);
+            assertSameCoverage("edit " + edit, coverage, snapshotWater(map));
+        }
+    }
+    
+    private CityMap createRoadNetwork(int width, int height, Random random) {
+        CityMap map = new CityMap(width, height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                Tile tile = map.getTile(x, y);
+                int roll = random.nextInt(200);
+                if (!tile.isEmpty()) {
+                    continue;
+                } else if (roll == 0) {
+                    tile.setBuilding(new Building(BuildingType.POWER_PLANT));
+                } else if (roll == 1) {
+                    tile.setBuilding(new Building(BuildingType.WATER_TOWER));
+                } else if (roll < 120) {
+                    tile.setBuilding(new Building(BuildingType.ROAD));
+                }
+            }
+        }
+        return map;
+    }
+    
+    private void applyRandomEdit(Tile tile, Random random) {
+        // Mostly long conductive chains with the occasional source so that
+        // edits regularly change distances far away from the edited tile
+        if (tile.getBuilding() != null && random.nextInt(4) == 0) {
+            tile.demolish();
+        } else if (tile.getBuilding() == null) {
+            int roll = random.nextInt(40);
+            if (roll == 0) {
+                tile.setBuilding(new Building(BuildingType.POWER_PLANT));
+            } else if (roll == 1) {
+                tile.setBuilding(new Building(BuildingType.WATER_TOWER));
+            } else {
+                tile.setBuilding(new Building(EDIT_TYPES[random.nextInt(EDIT_TYPES.length)]));
+            }
+        }
+    }
+    
+    private interface DistanceField {
+        int get(int x, int y);
+    }
+    
+    private void assertSameField(String message, CityMap map, DistanceField actual, DistanceField expected) {
+        for (int x = 0; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                assertEquals(message + " at " + x + "," + y, expected.get(x, y), actual.get(x, y));
+            }
+        }
+    }
+    
+    private void assertSameCoverage(String message, boolean[] actual, boolean[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(message + " at index " + i, expected[i], actual[i]);
+        }
+    }
+    
+    private boolean[] snapshotElectricity(CityMap map) {
+        boolean[] coverage = new boolean[map.getWidth() * map.getHeight()];
+        for (int x = 0; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                coverage[y * map.getWidth() + x] = map.getTile(x, y).hasElectricity();
+            }
+        }
+        return coverage;
+    }
+    
+    private boolean[] snapshotWater(CityMap map) {
+        boolean[] coverage = new boolean[map.getWidth() * map.getHeight()];
+        for (int x = 0; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                coverage[y * map.getWidth() + x] = map.getTile(x, y).hasWater();
+            }
+        }
+        return coverage;
+    }
+}
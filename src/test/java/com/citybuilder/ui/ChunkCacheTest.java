@@ -0,0 +1,107 @@
+package com.citybuilder.ui;
+
+import com.citybuilder.model.*;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the zoom levels and that chunks averaged down from the level
+ * below look like that level shrunk on screen.
+ */
+public class ChunkCacheTest {
+    @Test
+    public void testLevelsHalveWithZoom() {
+        assertEquals(0, ChunkCache.levelFor(Camera.MAX_ZOOM));
+        assertEquals(0, ChunkCache.levelFor(0.51));
+        assertEquals(1, ChunkCache.levelFor(0.5));
+        assertEquals(2, ChunkCache.levelFor(0.2));
+        assertEquals(ChunkCache.LEVELS - 1, ChunkCache.levelFor(Camera.MIN_ZOOM));
+        assertTrue(ChunkCache.showsDetail(1.0));
+        assertFalse(ChunkCache.showsDetail(0.5));
+    }
+    
+    @Test
+    public void testAveragedLevelMatchesShrunkLevelBelow() {
+        GameState state = new GameState();
+        state.initializeNewGame(300, 200);
+        CityMap map = state.getCityMap();
+        Random random = new Random(22);
+        BuildingType[] types = BuildingType.values();
+        for (int x = 0; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                map.setHeight(x, y, random.nextInt(Tile.MAX_HEIGHT + 1));
+                if (random.nextInt(3) == 0) {
+                    map.setBuildingType(x, y, types[random.nextInt(types.length)]);
+                }
+            }
+        }
+        Camera camera = state.getCamera();
+        camera.setRotation(1);
+        ChunkCache cache = new ChunkCache(state);
+        
+        // Level 3 is drawn from tiles, level 4 averaged from level 3
+        camera.setZoom(1.0 / 8);
+        camera.setOffsetX(1200);
+        camera.setOffsetY(40);
+        BufferedImage near = paint(cache, 2400, 1400);
+        camera.setZoom(1.0 / 16);
+        camera.setOffsetX(600);
+        camera.setOffsetY(20);
+        BufferedImage far = paint(cache, 1200, 700);
+        
+        long difference = 0;
+        int covered = 0;
+        for (int y = 0; y < far.getHeight(); y++) {
+            for (int x = 0; x < far.getWidth(); x++) {
+                int expected = average(near, 2 * x, 2 * y);
+                int actual = pixel(far, x, y);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    difference += Math.abs(((expected >>> shift) & 0xFF) - ((actual >>> shift) & 0xFF));
+                }
+                if ((actual >>> 24) != 0) {
+                    covered++;
+                }
+            }
+        }
+        
+        // Compositing before or after averaging only differs along chunk edges
+        assertTrue("covered " + covered, covered > far.getWidth() * far.getHeight() / 5);
+        double perChannel = difference / (4.0 * far.getWidth() * far.getHeight());
+        assertTrue("mean difference " + perChannel, perChannel < 1.0);
+    }
+    
+    private static BufferedImage paint(ChunkCache cache, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            cache.paint(g2d, new Rectangle(0, 0, width, height));
+        } finally {
+            g2d.dispose();
+        }
+        return image;
+    }
+    
+    // Premultiplied 2x2 average, like the cache's own
+    private static int average(BufferedImage image, int x, int y) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int sum = 0;
+            for (int dy = 0; dy < 2; dy++) {
+                for (int dx = 0; dx < 2; dx++) {
+                    sum += (pixel(image, x + dx, y + dy) >>> shift) & 0xFF;
+                }
+            }
+            result |= ((sum + 2) >> 2) << shift;
+        }
+        return result;
+    }
+    
+    private static int pixel(BufferedImage image, int x, int y) {
+        return image.getRaster().getDataBuffer().getElem(y * image.getWidth() + x);
+    }
+}
@@ -0,0 +1,42 @@
+package com.citybuilder.ui;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds the pacer made-up frame times and checks its waits and counts.
+ */
+public class FramePacerTest {
+    @Test
+    public void testFramesStayOnSchedule() {
+        FramePacer pacer = new FramePacer(50); // 20 ms frames
+        long ms = 1_000_000;
+        pacer.start(0);
+        
+        // A quick frame waits out the rest of its slot
+        assertEquals(15 * ms, pacer.frameRendered(5 * ms));
+        
+        // A frame that overran two slots drops them and keeps the grid
+        assertEquals(5 * ms, pacer.frameRendered(75 * ms));
+        assertEquals(2, pacer.getFramesDropped());
+        
+        // Finishing exactly on time drops nothing
+        assertEquals(0, pacer.frameRendered(100 * ms));
+        assertEquals(3, pacer.getFramesRendered());
+        assertEquals(2, pacer.getFramesDropped());
+    }
+    
+    @Test
+    public void testHiddenTimeIsNotDropped() {
+        FramePacer pacer = new FramePacer(50);
+        long ms = 1_000_000;
+        pacer.start(0);
+        assertEquals(20 * ms, pacer.frameSkipped(0));
+        
+        // A long pause with nothing drawn restarts the schedule
+        assertEquals(0, pacer.frameSkipped(500 * ms));
+        assertEquals(20 * ms, pacer.frameRendered(500 * ms));
+        assertEquals(0, pacer.getFramesDropped());
+    }
+}
@@ -0,0 +1,61 @@
+package com.citybuilder.ui;
+
+import com.citybuilder.model.*;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that patching the tiles the journal reports keeps the minimap identical to one
+ * drawn from scratch, and that clicking it centres the main view.
+ */
+public class MinimapPanelTest {
+    @Test
+    public void testPatchedTilesMatchFreshMinimap() {
+        GameState state = new GameState();
+        state.initializeNewGame(40, 30);
+        GamePanel gamePanel = new GamePanel(state);
+        MinimapPanel minimap = new MinimapPanel(state, gamePanel);
+        minimap.getImage();
+        
+        CityMap map = state.getCityMap();
+        map.setBuildingType(3, 4, BuildingType.HOUSE);
+        map.setZoneType(10, 20, ZoneType.COMMERCIAL);
+        map.setTerrainType(39, 29, TerrainType.SAND);
+        map.setHeight(0, 0, Tile.MAX_HEIGHT);
+        map.setZoneType(5, 5, ZoneType.INDUSTRIAL);
+        map.setBuildingType(5, 5, BuildingType.FACTORY);
+        
+        BufferedImage patched = minimap.getImage();
+        BufferedImage fresh = new MinimapPanel(state, gamePanel).getImage();
+        for (int y = 0; y < map.getHeight(); y++) {
+            for (int x = 0; x < map.getWidth(); x++) {
+                assertEquals(x + "," + y, fresh.getRGB(x, y), patched.getRGB(x, y));
+            }
+        }
+        assertNotEquals(patched.getRGB(4, 4), patched.getRGB(3, 4));
+    }
+    
+    @Test
+    public void testJumpCentresMainView() {
+        GameState state = new GameState();
+        state.initializeNewGame(60, 40);
+        GamePanel gamePanel = new GamePanel(state);
+        gamePanel.setSize(800, 600);
+        MinimapPanel minimap = new MinimapPanel(state, gamePanel);
+        minimap.setSize(140, 120); // 2 pixels per tile, 10 pixels of margin
+        ScreenTransform transform = new ScreenTransform();
+        Camera camera = state.getCamera();
+        
+        for (int rotation = 0; rotation < 4; rotation++) {
+            camera.setRotation(rotation);
+            camera.setZoom(rotation % 2 == 0 ? 1.0 : 0.5);
+            minimap.jumpTo(10 + 2 * 45 + 1, 20 + 2 * 7 + 1);
+            transform.update(camera, state.getCityMap());
+            assertEquals(400, transform.screenX(45, 7));
+            assertEquals(300, transform.screenY(45, 7, state.getCityMap().getHeight(45, 7)));
+        }
+    }
+}
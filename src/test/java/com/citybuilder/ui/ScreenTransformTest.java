@@ -0,0 +1,117 @@
+package com.citybuilder.ui;
+
+import com.citybuilder.model.Camera;
+import com.citybuilder.model.CityMap;
+import com.citybuilder.util.IsometricUtils;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks the precomputed transforms against rotating and projecting one
+ * Point at a time, picking when zoomed, and that projecting and picking
+ * allocate nothing.
+ */
+public class ScreenTransformTest {
+    @Test
+    public void testMatchesPointTransformsInEveryRotation() {
+        CityMap map = new CityMap(37, 23);
+        Camera camera = new Camera();
+        camera.setOffsetX(123);
+        camera.setOffsetY(-45);
+        ScreenTransform transform = new ScreenTransform();
+        
+        for (int rotation = 0; rotation < 4; rotation++) {
+            camera.setRotation(rotation);
+            transform.update(camera, map);
+            for (int x = 0; x < map.getWidth(); x++) {
+                for (int y = 0; y < map.getHeight(); y++) {
+                    Point rotated = camera.applyRotation(x, y, map.getWidth(), map.getHeight());
+                    Point screen = IsometricUtils.gridToScreen(rotated.x, rotated.y, 3);
+                    int screenX = transform.screenX(x, y);
+                    int screenY = transform.screenY(x, y, 3);
+                    assertEquals(screen.x + camera.getOffsetX(), screenX);
+                    assertEquals(screen.y + camera.getOffsetY(), screenY);
+                    
+                    // The top corner of a flat tile picks that tile, also on a non-square map
+                    assertEquals(x, transform.gridX(screenX, transform.screenY(x, y, 0)));
+                    assertEquals(y, transform.gridY(screenX, transform.screenY(x, y, 0)));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testPicksTileCentresWhenZoomed() {
+        CityMap map = new CityMap(37, 23);
+        Camera camera = new Camera();
+        camera.setRotation(1);
+        ScreenTransform transform = new ScreenTransform();
+        
+        for (double zoom : new double[] {0.5, 0.75, 1.5, 2.0}) {
+            camera.setZoom(zoom);
+            transform.update(camera, map);
+            int halfHeight = transform.scale(IsometricUtils.getTileHeight() / 2);
+            for (int x = 0; x < map.getWidth(); x++) {
+                for (int y = 0; y < map.getHeight(); y++) {
+                    int screenX = transform.screenX(x, y);
+                    int screenY = transform.screenY(x, y, 0) + halfHeight;
+                    assertEquals("zoom " + zoom, x, transform.gridX(screenX, screenY));
+                    assertEquals("zoom " + zoom, y, transform.gridY(screenX, screenY));
+                }
+            }
+        }
+        
+        // Zooming keeps the tile under the cursor there
+        camera.setZoom(1.0);
+        transform.update(camera, map);
+        int screenX = transform.screenX(20, 10);
+        int screenY = transform.screenY(20, 10, 0) + IsometricUtils.getTileHeight() / 2;
+        camera.zoomAt(0.5, screenX, screenY);
+        transform.update(camera, map);
+        assertEquals(20, transform.gridX(screenX, screenY));
+        assertEquals(10, transform.gridY(screenX, screenY));
+    }
+    
+    @Test
+    public void testProjectAndPickWithoutAllocating() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+        
+        CityMap map = new CityMap(300, 200);
+        Camera camera = new Camera();
+        camera.setRotation(3);
+        ScreenTransform transform = new ScreenTransform();
+        // Load and initialise everything on a tiny map first, but measure before the
+        // JIT compiler gets a chance to optimise short-lived objects away
+        long checksum = sweep(transform, camera, new CityMap(2, 2));
+        
+        long thread = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(thread);
+        checksum += sweep(transform, camera, map);
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+        
+        // One Point per tile would be over a megabyte; allow for the measurement itself
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+        assertTrue(checksum != 0);
+    }
+    
+    private static long sweep(ScreenTransform transform, Camera camera, CityMap map) {
+        long checksum = 0;
+        transform.update(camera, map);
+        for (int x = 0; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                int screenX = transform.screenX(x, y);
+                int screenY = transform.screenY(x, y, 0);
+                checksum += transform.gridX(screenX, screenY) * 31L + transform.gridY(screenX, screenY);
+            }
+        }
+        return checksum;
+    }
+}
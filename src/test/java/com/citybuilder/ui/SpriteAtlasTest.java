@@ -0,0 +1,51 @@
+package com.citybuilder.ui;
+
+import com.citybuilder.model.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that every sprite stays within the tile extents chunk images are
+ * sized by.
+ */
+public class SpriteAtlasTest {
+    @Test
+    public void testSpritesFitTileExtents() {
+        SpriteAtlas atlas = new SpriteAtlas(1.0);
+        List<SpriteAtlas.Sprite> sprites = new ArrayList<>();
+        for (TerrainType terrain : TerrainType.values()) {
+            for (int height = Tile.MIN_HEIGHT; height <= Tile.MAX_HEIGHT; height++) {
+                sprites.add(atlas.ground(terrain, height));
+            }
+        }
+        for (ZoneType zone : ZoneType.values()) {
+            if (zone != ZoneType.NONE) {
+                sprites.add(atlas.zone(zone));
+            }
+        }
+        for (BuildingType type : BuildingType.values()) {
+            sprites.add(atlas.building(type));
+        }
+        for (NaturalFeature feature : NaturalFeature.values()) {
+            sprites.add(atlas.feature(feature));
+        }
+        for (TrafficDirection direction : TrafficDirection.values()) {
+            sprites.add(atlas.arrow(direction));
+        }
+        
+        for (SpriteAtlas.Sprite sprite : sprites) {
+            assertTrue(sprite.anchorX <= TileRenderer.EXTENT_SIDE);
+            assertTrue(sprite.image.getWidth() - sprite.anchorX <= TileRenderer.EXTENT_SIDE);
+            assertTrue(sprite.anchorY <= TileRenderer.EXTENT_ABOVE);
+            assertTrue(sprite.image.getHeight() - sprite.anchorY <= TileRenderer.EXTENT_BELOW);
+        }
+        
+        // Grass is shaded by height, other terrain is not
+        assertNotSame(atlas.ground(TerrainType.GRASS, 0), atlas.ground(TerrainType.GRASS, 1));
+        assertSame(atlas.ground(TerrainType.WATER, 0), atlas.ground(TerrainType.WATER, 1));
+    }
+}